@@ -0,0 +1,68 @@
+package interpreter;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import javafx.scene.Group;
+import javafx.scene.image.ImageView;
+
+/**
+ * Stand-alone benchmark comparing the two ExecutionEngines on loop-heavy programs. Each program is run through
+ * a TextFieldParser with one turtle, so after the first run it is taken from the ProgramCache and only its
+ * execution is timed. There are more warmup runs than it takes for a program to be translated into a JVM class
+ * (see CompiledProgram), so the times are those of programs run many times; see ExecutionEngine for when the
+ * bytecode is worth selecting. Prints the best time per run for each engine and the tree time divided by the
+ * bytecode time, which is below 1 where the tree-walker is faster. Set the system property
+ * "slogo.tierUpThreshold" to 0 to compare the engines themselves, with nothing translated into JVM classes.
+ *
+ * Lives in the benchmark source root (see ParserBenchmark). Run from the project directory:
+ * mvn -Pbenchmark compile exec:java [-Dslogo.tierUpThreshold=0]
+ */
+class ExecutionBenchmark {
+
+	public static final String[] DEFAULT_PROGRAMS = {
+			"make :total 0 repeat 20000 [ make :total sum :total product :repcount 2 ]",
+			"repeat 100 [ repeat 100 [ make :x remainder sum :x 7 13 ] ]",
+			"pu for [ :k 1 2000 1 ] [ fd quotient :k 1000 rt 7 ]",
+			"to count [ :n ] [ repeat :n [ make :c sum :c 1 ] ] repeat 200 [ count 50 ]",
+			"dotimes [ :i 1000 ] [ if less? remainder :i 3 1 [ make :y sum :y 1 ] ]"
+	};
+	// enough for the JIT compiler to settle even when programs are not translated into JVM classes
+	public static final int NUM_WARMUP_RUNS = Math.max(300, 2 * Integer.getInteger(UserProcedure.DEFAULT_TIER_UP_PROPERTY, UserProcedure.DEFAULT_TIER_UP_THRESHOLD));
+	public static final int NUM_TRIALS = 50;
+
+	public static void main(String[] args) throws Exception {
+		PrintStream out = System.out;
+		// commands print as they run; keep that out of the results
+		System.setOut(new PrintStream(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+		}));
+		out.println(String.format("%12s %12s %8s  %s", "tree ms", "bytecode ms", "speedup", "program"));
+		for (String program : DEFAULT_PROGRAMS) {
+			double treeMillis = time(program, ExecutionEngine.TREE_WALKER);
+			double bytecodeMillis = time(program, ExecutionEngine.BYTECODE);
+			out.println(String.format("%12.3f %12.3f %7.1fx  %s", treeMillis, bytecodeMillis, treeMillis / bytecodeMillis, program));
+		}
+	}
+
+	/**
+	 * @return best time, in milliseconds, of one run of the program with the given engine
+	 */
+	private static double time(String program, ExecutionEngine engine) throws Exception {
+		TextFieldParser parser = new TextFieldParser();
+		parser.addNewTurtle("1", new ImageView(), "000000", new Group());
+		parser.setExecutionEngine(engine);
+		for (int run = 0; run < NUM_WARMUP_RUNS; run++) {
+			parser.parseText(program);
+		}
+		long bestNanos = Long.MAX_VALUE;
+		for (int trial = 0; trial < NUM_TRIALS; trial++) {
+			long start = System.nanoTime();
+			parser.parseText(program);
+			bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+		}
+		return bestNanos / 1e6;
+	}
+}
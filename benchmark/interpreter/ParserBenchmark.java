@@ -0,0 +1,138 @@
+package interpreter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.ResourceBundle;
+
+/**
+ * Stand-alone benchmark of the parsing stages (Lexer, translation of commands and CommandTreeBuilder) on the
+ * example programs in data/examples. Each program is repeated 1, 2, 4, ... times and built (not executed); the
+ * time per token should stay roughly constant as the input grows. A second series builds a single, increasingly
+ * deeply nested expression ("fd sum 1 sum 1 ... 1").
+ *
+ * Lives in the benchmark source root, which only the benchmark profile of the pom compiles (with the
+ * interpreter, in its package); it is not packaged. Run from the project directory:
+ * mvn -Pbenchmark compile exec:java -Dbenchmark=interpreter.ParserBenchmark [-Dexec.args="examples directory"]
+ */
+class ParserBenchmark {
+
+	public static final String DEFAULT_EXAMPLES_DIRECTORY = "data/examples";
+	public static final String DEFAULT_EXAMPLE_EXTENSION = ".logo";
+	public static final String DEFAULT_LANGUAGE = "interpreter/English";
+	public static final int MAX_REPETITIONS = 64;
+	public static final int MAX_NESTING = 1024;
+	public static final int NUM_WARMUP_RUNS = 20;
+	public static final int NUM_TRIALS = 5;
+
+	private Lexer myLexer;
+	private PatternTable myLanguage;
+	private Turtle myTurtles;
+
+	protected ParserBenchmark() {
+		myLexer = new Lexer();
+		myLanguage = PatternTable.forBundle(ResourceBundle.getBundle(DEFAULT_LANGUAGE));
+		myTurtles = new MultipleTurtles(new ArrayList<SingleTurtle>());
+	}
+
+	public static void main(String[] args) throws Exception {
+		File examplesDirectory = new File(args.length > 0 ? args[0] : DEFAULT_EXAMPLES_DIRECTORY);
+		ParserBenchmark benchmark = new ParserBenchmark();
+		List<String> programs = benchmark.readPrograms(examplesDirectory);
+		for (int run = 0; run < NUM_WARMUP_RUNS; run++) {
+			for (String program : programs) {
+				benchmark.build(program);
+			}
+		}
+		System.out.println("Example programs (" + programs.size() + " that parse)");
+		System.out.println(String.format("%8s %10s %10s %10s", "copies", "tokens", "ms", "ns/token"));
+		for (int copies = 1; copies <= MAX_REPETITIONS; copies *= 2) {
+			List<String> inputs = new ArrayList<String>();
+			for (String program : programs) {
+				inputs.add(repeat(program, copies));
+			}
+			benchmark.report(copies, inputs);
+		}
+		System.out.println("Nested expression");
+		System.out.println(String.format("%8s %10s %10s %10s", "depth", "tokens", "ms", "ns/token"));
+		for (int depth = MAX_NESTING/16; depth <= MAX_NESTING; depth *= 2) {
+			benchmark.report(depth, Arrays.asList("fd " + repeat("sum 1 ", depth) + "1"));
+		}
+	}
+
+	/**
+	 * @return contents of every example program that can be built on its own
+	 */
+	private List<String> readPrograms(File directory) throws IOException {
+		List<String> programs = new ArrayList<String>();
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return programs;
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			if (file.isDirectory()) {
+				programs.addAll(readPrograms(file));
+			}
+			else if (file.getName().endsWith(DEFAULT_EXAMPLE_EXTENSION)) {
+				String program = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+				try {
+					build(program);
+					programs.add(program);
+				}
+				catch (Exception e) {
+					System.out.println("Skipping " + file.getPath() + ": " + e.getMessage());
+				}
+			}
+		}
+		return programs;
+	}
+
+	private void report(int size, List<String> inputs) throws Exception {
+		long bestNanos = Long.MAX_VALUE;
+		int numTokens = 0;
+		for (int trial = 0; trial < NUM_TRIALS; trial++) {
+			long start = System.nanoTime();
+			numTokens = 0;
+			for (String input : inputs) {
+				numTokens += build(input);
+			}
+			bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+		}
+		System.out.println(String.format("%8d %10d %10.3f %10.1f", size, numTokens, bestNanos / 1e6, (double) bestNanos / numTokens));
+	}
+
+	/**
+	 * Lexes, translates and builds (without executing) a program, with its own variables and user-defined commands
+	 * @return number of tokens in the program
+	 */
+	private int build(String program) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		Token[] tokens = myLexer.tokenize(program);
+		List<Token> userInput = new ArrayList<Token>(tokens.length);
+		for (Token token : tokens) {
+			if (token.getType() == TokenType.COMMAND) {
+				String commandType = myLanguage.findKey(token.getText());
+				userInput.add((commandType == null) ? token : new Token(commandType, TokenType.COMMAND, token.getOffset()));
+			}
+			else if (token.getType() != TokenType.COMMENT) {
+				userInput.add(token);
+			}
+		}
+		CommandTreeBuilder builder = new CommandTreeBuilder(new VariableTable(), new HashMap<String, String>(), new HashMap<String, UserProcedure>());
+		builder.build(myTurtles, myTurtles, userInput.toArray(new Token[userInput.size()]));
+		return userInput.size();
+	}
+
+	private static String repeat(String text, int copies) {
+		StringBuilder repeated = new StringBuilder(text.length() * copies + copies);
+		for (int k = 0; k < copies; k++) {
+			repeated.append(text).append('\n');
+		}
+		return repeated.toString();
+	}
+}
@@ -13,6 +13,8 @@ import java.util.Map;
 class AndCommand extends Command {
     private Command testOneCommand;
     private Command testTwoCommand;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected AndCommand(Command test1, Command test2, Map<String, Double> variables, Turtle turtles) {
@@ -20,10 +22,17 @@ class AndCommand extends Command {
 	testTwoCommand = test2;
 	myVariables = variables; 
 	setActiveTurtles(turtles);
+	isPure = test1.isPure() && test2.isPure();
+	isTurtleIndependent = test1.isTurtleIndependent() && test2.isTurtleIndependent();
     }
 
     @Override
     protected double execute() throws UnidentifiedCommandException{
+    if (isPure) {
+    	// the tests change nothing, so the second is only needed if the first passes, and only for one turtle
+    	Turtle turtle = getActiveTurtles().toSingleTurtle();
+    	return (getCommandValue(testOneCommand, myVariables, turtle) > 0 && getCommandValue(testTwoCommand, myVariables, turtle) > 0) ? 1.0 : 0.0;
+    }
     double arg1Val = getCommandValue(testOneCommand, myVariables, getActiveTurtles().toSingleTurtle());
     double arg2Val = getCommandValue(testTwoCommand, myVariables, getActiveTurtles().toSingleTurtle()); 
     	getActiveTurtles().executeSequentially(myTurtle -> {
@@ -38,4 +47,14 @@ class AndCommand extends Command {
 	
 	return ((arg1Val > 0) && (arg2Val > 0)) ? 1.0 : 0.0; 
     }	
+
+    @Override
+    protected boolean isPure() {
+	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+	return isTurtleIndependent;
+    }
 }
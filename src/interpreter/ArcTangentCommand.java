@@ -13,27 +13,43 @@ import java.util.Map;
 class ArcTangentCommand extends Command{
 	
 	private Command degreesCommand;
+	private boolean isPure;
+	private boolean isTurtleIndependent;
 	private Map<String, Double> myVariables; 
 
 	protected ArcTangentCommand(Command degrees, Map<String, Double> variables, Turtle turtles) {
 		degreesCommand = degrees;
 		myVariables = variables; 
 		setActiveTurtles(turtles);
+		isPure = degrees.isPure();
+		isTurtleIndependent = degrees.isTurtleIndependent();
 	}
 	
 	@Override
 	protected double execute() throws UnidentifiedCommandException{
 		double degrees = getCommandValue(degreesCommand, myVariables, getActiveTurtles().toSingleTurtle());
 		
-		getActiveTurtles().executeSequentially(myTurtle -> {
-			try {
-			getCommandValue(degreesCommand, myVariables, myTurtle);
-			}
-			catch(UnidentifiedCommandException e){
-				throw new UnidentifiedCommandError("Improper # arguments");
-			}
-		});
+		if (!isPure) {
+			getActiveTurtles().executeSequentially(myTurtle -> {
+				try {
+				getCommandValue(degreesCommand, myVariables, myTurtle);
+				}
+				catch(UnidentifiedCommandException e){
+					throw new UnidentifiedCommandError("Improper # arguments");
+				}
+			});
+		}
 		
 	    	return Math.toDegrees(Math.atan(Math.toRadians(degrees)));
 	}
+
+	@Override
+	protected boolean isPure() {
+		return isPure;
+	}
+
+	@Override
+	protected boolean isTurtleIndependent() {
+		return isTurtleIndependent;
+	}
 }
\ No newline at end of file
@@ -13,37 +13,40 @@ public class AskCommand extends Command {
 	Command myIdCommand;
 	Command myActionCommand;
 	Turtle myAllTurtles;
-	CommandTreeBuilder myBuilder;
-	Map<String, Double> myVariables;
+	CommandList myActions;
+	ParallelAsk myParallelActions;
+	VariableTable myVariables;
+	TurtleIDList myIDList;
 	protected AskCommand(Command turtleIds, Command actions, Turtle allTurtles,
-			Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommandNumArgs) {
+			VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
 		myIdCommand = turtleIds;
 		myActionCommand = actions;
 		myAllTurtles = allTurtles;
-		myBuilder = new CommandTreeBuilder(variables, userDefCommands, userDefCommandNumArgs);
+		myActions = new CommandList(((StringCommand) actions).getString(), variables, userDefCommands, userProcedures);
+		myParallelActions = new ParallelAsk(((StringCommand) actions).getString(), variables, userDefCommands, userProcedures);
 		myVariables = variables;
 	}
 	@Override
 	protected double execute() throws UnidentifiedCommandException{
-		String IDString = ((StringCommand) myIdCommand).getString();
-		String[] IDs = IDString.split(" ");
-		String actionString = ((StringCommand) myActionCommand).getString();
-		String[] actions = actionString.split(" ");
+		if (myIDList == null) {
+			myIDList = new TurtleIDList(((StringCommand) myIdCommand).getString(), myVariables);
+		}
+		String[] IDs = myIDList.getIDs();
 		ArrayList<SingleTurtle> tempActiveTurtles = new ArrayList<>();
 		for(int k = 0; k<IDs.length; k+=1) {
-			if(myVariables.containsKey(IDs[k])){
-				IDs[k] = myVariables.get(IDs[k]).toString();
-			}
 			if(!myAllTurtles.containsTurtleWithID(IDs[k])) {
 				IDs[k] = Double.toString(0);
 				System.out.println(IDs[k]);
 			}
 			tempActiveTurtles.add(myAllTurtles.getTurtleWithID(IDs[k]));
 		}
-		MultipleTurtles tempActive = new MultipleTurtles(tempActiveTurtles);
 		double returnVal = -1;
 		try {
-			returnVal = myBuilder.buildAndExecute(myAllTurtles, tempActive, actions, true);
+			if (myAllTurtles instanceof TurtleArray && myParallelActions.canRun(tempActiveTurtles, ((TurtleArray) myAllTurtles).getStore())) {
+				return myParallelActions.execute(tempActiveTurtles, ((TurtleArray) myAllTurtles).getStore());
+			}
+			MultipleTurtles tempActive = new MultipleTurtles(tempActiveTurtles);
+			returnVal = myActions.execute(myAllTurtles, tempActive);
 		}
 		catch(Exception e) {
 			throw new UnidentifiedCommandException(e.getMessage());
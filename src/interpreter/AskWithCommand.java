@@ -15,21 +15,19 @@ public class AskWithCommand extends Command {
 	Command myCriteriaCommand;
 	Command myActionCommand;
 	Turtle myAllTurtles;
-	CommandTreeBuilder myBuilder;
+	CommandList myCriteria;
+	CommandList myActions;
 	protected AskWithCommand(Command turtleIds, Command actions, Turtle allTurtles,
-			Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommandNumArgs) {
+			VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
 		myCriteriaCommand = turtleIds;
 		myActionCommand = actions;
 		myAllTurtles = allTurtles;
-		myBuilder = new CommandTreeBuilder(variables, userDefCommands, userDefCommandNumArgs);
+		myCriteria = new CommandList(((StringCommand) turtleIds).getString(), variables, userDefCommands, userProcedures);
+		myActions = new CommandList(((StringCommand) actions).getString(), variables, userDefCommands, userProcedures);
 	}
 	@Override
 	protected double execute() throws UnidentifiedCommandException{
-		String criteriaString = ((StringCommand) myCriteriaCommand).getString();
-		String[] criteria = criteriaString.split(" ");
-		String actionString = ((StringCommand) myActionCommand).getString();
-		String[] actions = actionString.split(" ");
-		List<Double> iDsToUse = getIDsMatching(criteria);
+		List<Double> iDsToUse = getIDsMatching();
 		ArrayList<SingleTurtle> tempTurtles = new ArrayList<>();
 		for(double iD : iDsToUse) {
 			tempTurtles.add(myAllTurtles.getTurtleWithID(Double.toString(iD)));
@@ -41,7 +39,7 @@ public class AskWithCommand extends Command {
 			return returnVal;
 		}
 		try {
-			returnVal =  myBuilder.buildAndExecute(myAllTurtles, tempActive, actions, true);
+			returnVal =  myActions.execute(myAllTurtles, tempActive);
 		}
 		catch(Exception e) {
 			e.printStackTrace();
@@ -49,7 +47,7 @@ public class AskWithCommand extends Command {
 		}
 		return returnVal;
 	}
-	protected List<Double> getIDsMatching(String[] criteria) throws UnidentifiedCommandException {
+	protected List<Double> getIDsMatching() throws UnidentifiedCommandException {
 		ArrayList<Double> iDsToUse = new ArrayList<>();
 		for(SingleTurtle turtleSingle : myAllTurtles.getAllImmutableTurtles()) {
 			ArrayList<SingleTurtle> singleTurtleList = new ArrayList<>();
@@ -57,7 +55,7 @@ public class AskWithCommand extends Command {
 			MultipleTurtles turtle = new MultipleTurtles(singleTurtleList);
 			double result = 0;
 			try {
-				result = myBuilder.buildAndExecute(myAllTurtles, turtle, criteria, true);
+				result = myCriteria.execute(myAllTurtles, turtle);
 			}
 			catch(Exception e) {
 				throw new UnidentifiedCommandException(e.getMessage());
@@ -0,0 +1,37 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command holding the already-compiled contents of a bracketed list of commands (e.g. the body
+ * of a Repeat, DoTimes or For loop). The list is built into Commands once, when the enclosing
+ * command is built, so that executing it again only costs the execution of its commands.
+ *
+ */
+class BlockCommand extends Command {
+	private List<Command> myCommands;
+
+	/**
+	 * @param commands is list of Commands (one for each command tree in the list) in order of execution
+	 * @param activeTurtles is Turtle the block is being executed on
+	 */
+	protected BlockCommand(List<Command> commands, Turtle activeTurtles) {
+		myCommands = new ArrayList<Command>(commands);
+		setActiveTurtles(activeTurtles);
+	}
+
+	/**
+	 * Executes each command in the block in turn
+	 * @return return value of the last command in the block (0 if the block is empty)
+	 * @see interpreter.Command#execute()
+	 */
+	@Override
+	protected double execute() throws UnidentifiedCommandException {
+		double returnVal = 0;
+		for (Command command : myCommands) {
+			returnVal = command.execute();
+		}
+		return returnVal;
+	}
+}
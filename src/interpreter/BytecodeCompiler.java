@@ -0,0 +1,593 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles CommandNode trees (see CommandTreeBuilder) into a BytecodeProgram. Math and logic on constants and
+ * variables, turtle movement with such arguments, MakeVariable, Repeat, DoTimes, For, If, IfElse and calls of
+ * user-defined commands become instructions (common sequences of turtle commands become one, see compileFused);
+ * every other subtree is left to the tree-walker. Arguments of math and turtle
+ * commands are compiled only if they cannot depend on the turtle (those commands evaluate their arguments
+ * once for every active turtle), so a subtree using e.g. Random or XCoordinate is left to the tree-walker whole;
+ * arguments that call user-defined commands are compiled with a check that the commands are pure (see
+ * compileCallExpression).
+ *
+ */
+class BytecodeCompiler {
+	public static final int NOT_AN_EXPRESSION = -1;
+	private static final Map<String, Integer> EXPRESSION_OPCODES = new HashMap<String, Integer>();
+	private static final Map<String, Integer> TURTLE_OPCODES = new HashMap<String, Integer>();
+	static {
+		EXPRESSION_OPCODES.put("Sum", BytecodeProgram.ADD);
+		EXPRESSION_OPCODES.put("Difference", BytecodeProgram.SUB);
+		EXPRESSION_OPCODES.put("Product", BytecodeProgram.MUL);
+		EXPRESSION_OPCODES.put("Quotient", BytecodeProgram.DIV);
+		EXPRESSION_OPCODES.put("Remainder", BytecodeProgram.REM);
+		EXPRESSION_OPCODES.put("Power", BytecodeProgram.POW);
+		EXPRESSION_OPCODES.put("Minus", BytecodeProgram.NEG);
+		EXPRESSION_OPCODES.put("Sine", BytecodeProgram.SIN);
+		EXPRESSION_OPCODES.put("Cosine", BytecodeProgram.COS);
+		EXPRESSION_OPCODES.put("Tangent", BytecodeProgram.TAN);
+		EXPRESSION_OPCODES.put("ArcTangent", BytecodeProgram.ATAN);
+		EXPRESSION_OPCODES.put("NaturalLog", BytecodeProgram.LOG);
+		EXPRESSION_OPCODES.put("Pi", BytecodeProgram.PI);
+		EXPRESSION_OPCODES.put("LessThan", BytecodeProgram.LESS);
+		EXPRESSION_OPCODES.put("GreaterThan", BytecodeProgram.GREATER);
+		EXPRESSION_OPCODES.put("Equal", BytecodeProgram.EQUAL);
+		EXPRESSION_OPCODES.put("NotEqual", BytecodeProgram.NOT_EQUAL);
+		EXPRESSION_OPCODES.put("And", BytecodeProgram.AND);
+		EXPRESSION_OPCODES.put("Or", BytecodeProgram.OR);
+		EXPRESSION_OPCODES.put("Not", BytecodeProgram.NOT);
+		TURTLE_OPCODES.put("Forward", BytecodeProgram.FORWARD);
+		TURTLE_OPCODES.put("Backward", BytecodeProgram.BACKWARD);
+		TURTLE_OPCODES.put("Left", BytecodeProgram.LEFT);
+		TURTLE_OPCODES.put("Right", BytecodeProgram.RIGHT);
+		TURTLE_OPCODES.put("SetHeading", BytecodeProgram.SET_HEADING);
+		TURTLE_OPCODES.put("SetPosition", BytecodeProgram.SET_POSITION);
+		TURTLE_OPCODES.put("PenDown", BytecodeProgram.PEN_DOWN);
+		TURTLE_OPCODES.put("PenUp", BytecodeProgram.PEN_UP);
+		TURTLE_OPCODES.put("ShowTurtle", BytecodeProgram.SHOW_TURTLE);
+		TURTLE_OPCODES.put("HideTurtle", BytecodeProgram.HIDE_TURTLE);
+		TURTLE_OPCODES.put("Home", BytecodeProgram.HOME);
+		TURTLE_OPCODES.put("ClearScreen", BytecodeProgram.CLEAR_SCREEN);
+	}
+
+	private VariableTable myVariableTable;
+	private Map<String, String> myUserDefCommands;
+	private Map<String, UserProcedure> myUserProcedures;
+	private String[] myLocalNames;
+	private int[] myCode;
+	private int myCodeSize;
+	private List<Double> myConstants;
+	private List<Variable> myVariables;
+	private List<UserProcedure> myProcedures;
+	private List<CommandNode> myTrees;
+	private int myStackSize;
+	private int myMaxStackSize;
+	private int myNumMayThrow;
+	private int myNumHandlers;
+	private int myMaxNumHandlers;
+
+	protected BytecodeCompiler(VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		myVariableTable = variables;
+		myUserDefCommands = userDefCommands;
+		myUserProcedures = userProcedures;
+	}
+
+	/**
+	 * @param commandTrees is trees of the commands of an input (or of the body of a user-defined command), in order
+	 * @param localNames is names of the parameters in scope where the trees run (null if none), with which the
+	 * bodies of conditionals are built
+	 * @return program that, run by BytecodeInterpreter, does what executing the trees in order would do
+	 */
+	protected BytecodeProgram compile(List<CommandNode> commandTrees, String[] localNames) {
+		myLocalNames = localNames;
+		myCode = new int[16];
+		myCodeSize = 0;
+		myConstants = new ArrayList<Double>();
+		myVariables = new ArrayList<Variable>();
+		myProcedures = new ArrayList<UserProcedure>();
+		myTrees = new ArrayList<CommandNode>();
+		myStackSize = 0;
+		myMaxStackSize = 0;
+		myNumMayThrow = 0;
+		myNumHandlers = 0;
+		myMaxNumHandlers = 0;
+		if (commandTrees.isEmpty()) {
+			emitConstant(-1);
+		}
+		compileSequence(commandTrees, BytecodeProgram.EXEC_STATEMENT);
+		double[] constants = new double[myConstants.size()];
+		for (int k = 0; k < constants.length; k++) {
+			constants[k] = myConstants.get(k);
+		}
+		return new BytecodeProgram(Arrays.copyOf(myCode, myCodeSize), constants, myVariables.toArray(new Variable[myVariables.size()]),
+				myProcedures.toArray(new UserProcedure[myProcedures.size()]), myTrees.toArray(new CommandNode[myTrees.size()]), myMaxStackSize, myMaxNumHandlers);
+	}
+
+	/**
+	 * Compiles commands that are executed in order, leaving the return value of the last on the stack
+	 * @param fallbackOpcode is EXEC_STATEMENT if each command is a whole command of an input (see
+	 * compileStatement), otherwise EXEC_TREE
+	 */
+	private void compileSequence(List<CommandNode> commands, int fallbackOpcode) {
+		for (int k = 0; k < commands.size(); ) {
+			if (k > 0) {
+				emit(BytecodeProgram.POP, -1);
+			}
+			int numFused = compileFused(commands, k);
+			if (numFused == 0) {
+				if (fallbackOpcode == BytecodeProgram.EXEC_STATEMENT) {
+					compileStatement(commands.get(k));
+				}
+				else {
+					compileCommand(commands.get(k), fallbackOpcode);
+				}
+				numFused = 1;
+			}
+			k += numFused;
+		}
+	}
+
+	/**
+	 * Compiles one command of the input. A command that is missing arguments is left to the tree-walker whole,
+	 * so that it is reported before any part of it is executed (see CommandTreeReader)
+	 */
+	private void compileStatement(CommandNode root) {
+		if (isComplete(root)) {
+			compileCommand(root, BytecodeProgram.EXEC_STATEMENT);
+		}
+		else {
+			emitTree(BytecodeProgram.EXEC_STATEMENT, root);
+		}
+	}
+
+	/**
+	 * Compiles a command that is executed once, on the active turtles it was given (i.e. not as an argument of a
+	 * math or turtle command), leaving its return value on the stack
+	 * @param fallbackOpcode is EXEC_STATEMENT or EXEC_TREE, used if the command is left to the tree-walker
+	 */
+	private void compileCommand(CommandNode node, int fallbackOpcode) {
+		if (isTurtleIndependent(node)) {
+			compileExpression(node);
+			return;
+		}
+		String name = node.getInfo();
+		List<CommandNode> children = node.getChildren();
+		if (TURTLE_OPCODES.containsKey(name) && !node.getIsString() && allTurtleIndependent(children)) {
+			for (CommandNode child : children) {
+				compileExpression(child);
+			}
+			emit(TURTLE_OPCODES.get(name), 1 - children.size());
+			return;
+		}
+		if ((name.equals(CommandTreeBuilder.DEFAULT_REPEAT_IDENTIFIER) || name.equals(CommandTreeBuilder.DEFAULT_DOTIMES_IDENTIFIER)
+				|| name.equals(CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER)) && compileLoop(node)) {
+			return;
+		}
+		if ((name.equals(CommandTreeBuilder.DEFAULT_IF_IDENTIFIER) || name.equals(CommandTreeBuilder.DEFAULT_IFELSE_IDENTIFIER))
+				&& node.getNumChildren() == node.getNumArgs() && compileConditional(node)) {
+			return;
+		}
+		if (name.equals(CommandTreeBuilder.DEFAULT_MAKE_VARIABLE_IDENTIFIER) && isVariableName(children.get(0))) {
+			compileCommand(children.get(1), BytecodeProgram.EXEC_TREE);
+			emit(BytecodeProgram.STORE, 0, indexOf(myVariables, children.get(0).getVariable()));
+			return;
+		}
+		if (isCall(node)) {
+			for (CommandNode arg : children.subList(1, children.size())) {
+				compileCommand(arg, BytecodeProgram.EXEC_TREE);
+			}
+			emitCall(node);
+			return;
+		}
+		if ((EXPRESSION_OPCODES.containsKey(name) || TURTLE_OPCODES.containsKey(name)) && !node.getIsString() && allCallExpressions(children)) {
+			compileCallExpression(node, fallbackOpcode);
+			return;
+		}
+		emitTree(fallbackOpcode, node);
+	}
+
+	/**
+	 * Compiles math, logic or a turtle command whose arguments call user-defined commands (e.g. "sum 1 size :n"),
+	 * so that the calls run on the BytecodeInterpreter's stack of Activations rather than nesting Java frames. Such
+	 * a command evaluates its arguments again for every active turtle, so computing them once is only the same if
+	 * every command called is pure (see PurityAnalyzer), which is known only once the program runs: a
+	 * JUMP_UNLESS_PURE for each command called leaves the command to the tree-walker if one is not.
+	 * @param fallbackOpcode is EXEC_STATEMENT or EXEC_TREE, used if the command is left to the tree-walker
+	 */
+	private void compileCallExpression(CommandNode node, int fallbackOpcode) {
+		List<CommandNode> calls = new ArrayList<CommandNode>();
+		findCalls(node, calls);
+		List<Integer> checked = new ArrayList<Integer>();
+		List<Integer> guards = new ArrayList<Integer>();
+		for (CommandNode call : calls) {
+			int procedureIdx = indexOf(myProcedures, myUserProcedures.get(call.getChildren().get(0).getInfo()));
+			if (!checked.contains(procedureIdx)) {
+				checked.add(procedureIdx);
+				guards.add(myCodeSize);
+				emit(BytecodeProgram.JUMP_UNLESS_PURE, 0, procedureIdx, call.getNumChildren() - 1, 0);
+			}
+		}
+		compileCallArgument(node);
+		int endJump = myCodeSize;
+		// the value of the command is on the stack at the end, but not where the tree-walker starts
+		emit(BytecodeProgram.JUMP, -1, 0);
+		for (int guard : guards) {
+			myCode[guard + 3] = myCodeSize;
+		}
+		emitTree(fallbackOpcode, node);
+		myCode[endJump + 1] = myCodeSize;
+	}
+
+	/**
+	 * Compiles a constant, a variable, or math, logic or a turtle command on those and calls (see
+	 * allCallExpressions), with no check of the commands called
+	 */
+	private void compileCallArgument(CommandNode node) {
+		if (isTurtleIndependent(node)) {
+			compileExpression(node);
+			return;
+		}
+		List<CommandNode> children = node.getChildren();
+		if (isCall(node)) {
+			for (CommandNode arg : children.subList(1, children.size())) {
+				compileCallArgument(arg);
+			}
+			emitCall(node);
+			return;
+		}
+		for (CommandNode child : children) {
+			compileCallArgument(child);
+		}
+		Integer opcode = EXPRESSION_OPCODES.get(node.getInfo());
+		emit((opcode != null) ? opcode : TURTLE_OPCODES.get(node.getInfo()), 1 - children.size());
+	}
+
+	/**
+	 * Adds the calls of user-defined commands in the tree of node to calls, in the order they are made
+	 */
+	private void findCalls(CommandNode node, List<CommandNode> calls) {
+		for (CommandNode child : node.getChildren()) {
+			findCalls(child, calls);
+		}
+		if (isCall(node)) {
+			calls.add(node);
+		}
+	}
+
+	/**
+	 * @return true if each node is a constant, a variable, or math and logic on those and calls of user-defined
+	 * commands with such arguments
+	 */
+	private boolean allCallExpressions(List<CommandNode> nodes) {
+		for (CommandNode node : nodes) {
+			if (isTurtleIndependent(node)) {
+				continue;
+			}
+			List<CommandNode> children = node.getChildren();
+			if (isCall(node)) {
+				children = children.subList(1, children.size());
+			}
+			else if (node.getIsString() || !EXPRESSION_OPCODES.containsKey(node.getInfo())) {
+				return false;
+			}
+			if (!allCallExpressions(children)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if node calls a user-defined command that is defined
+	 */
+	private boolean isCall(CommandNode node) {
+		return node.getInfo().equals(CommandTreeBuilder.DEFAULT_USERCOMMAND_NAME) && !node.getIsString() && node.getNumChildren() > 0
+				&& myUserProcedures.containsKey(node.getChildren().get(0).getInfo());
+	}
+
+	/**
+	 * Emits the CALL of a user-defined command, whose arguments are on the stack
+	 */
+	private void emitCall(CommandNode node) {
+		myNumMayThrow++;
+		emit(BytecodeProgram.CALL, 2 - node.getNumChildren(), indexOf(myProcedures, myUserProcedures.get(node.getChildren().get(0).getInfo())), node.getNumChildren() - 1);
+	}
+
+	/**
+	 * Compiles the command at index k of commands together with the ones after it as a single instruction, if
+	 * they are one of the sequences common in drawings (arguments must be turtle-independent, so that computing
+	 * them all before moving any turtle changes nothing):
+	 * - Forward or Backward, then Left or Right: FORWARD_RIGHT, FORWARD_LEFT, BACKWARD_RIGHT or BACKWARD_LEFT
+	 * - PenDown, Forward or Backward, PenUp: PEN_DOWN_FORWARD_PEN_UP or PEN_DOWN_BACKWARD_PEN_UP
+	 * @return number of commands compiled (0, having emitted nothing, if they are not such a sequence)
+	 */
+	private int compileFused(List<CommandNode> commands, int k) {
+		if (k + 2 < commands.size() && isCommand(commands.get(k), "PenDown", 0) && isMove(commands.get(k+1))
+				&& isCommand(commands.get(k+2), "PenUp", 0)) {
+			CommandNode move = commands.get(k+1);
+			compileExpression(move.getChildren().get(0));
+			emit(move.getInfo().equals("Forward") ? BytecodeProgram.PEN_DOWN_FORWARD_PEN_UP : BytecodeProgram.PEN_DOWN_BACKWARD_PEN_UP, 0);
+			return 3;
+		}
+		if (k + 1 < commands.size() && isMove(commands.get(k)) && isTurn(commands.get(k+1))) {
+			boolean isForward = commands.get(k).getInfo().equals("Forward");
+			boolean isRight = commands.get(k+1).getInfo().equals("Right");
+			compileExpression(commands.get(k).getChildren().get(0));
+			compileExpression(commands.get(k+1).getChildren().get(0));
+			if (isForward) {
+				emit(isRight ? BytecodeProgram.FORWARD_RIGHT : BytecodeProgram.FORWARD_LEFT, -1);
+			}
+			else {
+				emit(isRight ? BytecodeProgram.BACKWARD_RIGHT : BytecodeProgram.BACKWARD_LEFT, -1);
+			}
+			return 2;
+		}
+		return 0;
+	}
+
+	private boolean isMove(CommandNode node) {
+		return (isCommand(node, "Forward", 1) || isCommand(node, "Backward", 1)) && isTurtleIndependent(node.getChildren().get(0));
+	}
+
+	private boolean isTurn(CommandNode node) {
+		return (isCommand(node, "Left", 1) || isCommand(node, "Right", 1)) && isTurtleIndependent(node.getChildren().get(0));
+	}
+
+	/**
+	 * @return true if node is the command with the given name and all numArgs of its arguments
+	 */
+	private boolean isCommand(CommandNode node, String name, int numArgs) {
+		return node.getInfo().equals(name) && !node.getIsString() && !node.getIsDouble() && node.getNumChildren() == numArgs
+				&& node.getNumArgs() == numArgs;
+	}
+
+	/**
+	 * Compiles a Repeat, DoTimes or For. The loop keeps four values on the stack while it runs: the return value
+	 * of the last execution of its body, the end of its range, its increment and the current value of its variable.
+	 * A For is compiled only if nothing in its body can throw, since ForCommand stops quietly if its body throws.
+	 * @return false (having emitted nothing) if the loop is left to the tree-walker
+	 */
+	private boolean compileLoop(CommandNode loopNode) {
+		List<CommandNode> children = loopNode.getChildren();
+		CommandNode body = children.get(children.size() - 1);
+		if (!isVariableName(children.get(0)) || !body.getInfo().equals(CommandTreeBuilder.DEFAULT_BLOCK_IDENTIFIER)) {
+			return false;
+		}
+		int codeSize = myCodeSize;
+		int[] poolSizes = {myConstants.size(), myVariables.size(), myProcedures.size(), myTrees.size()};
+		int stackSize = myStackSize;
+		boolean isFor = loopNode.getInfo().equals(CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER);
+		int variableIdx = indexOf(myVariables, children.get(0).getVariable());
+		if (isFor) {
+			emitConstant(0);
+			for (CommandNode rangeExpression : children.subList(1, 4)) {
+				compileCommand(rangeExpression, BytecodeProgram.EXEC_TREE);
+			}
+		}
+		else {
+			emitConstant(-1);
+			emitConstant(1);
+			compileCommand(children.get(1), BytecodeProgram.EXEC_TREE);
+			emitConstant(1);
+		}
+		int numMayThrow = myNumMayThrow;
+		emit(BytecodeProgram.LOOP_BEGIN, 0, variableIdx);
+		int loopStart = myCodeSize;
+		emit(BytecodeProgram.LOOP_TEST, 0, variableIdx, 0);
+		List<CommandNode> bodyCommands = body.getChildren();
+		if (bodyCommands.isEmpty()) {
+			emitConstant(0);
+		}
+		compileSequence(bodyCommands, BytecodeProgram.EXEC_TREE);
+		emit(BytecodeProgram.LOOP_NEXT, -1, loopStart);
+		myCode[loopStart + 2] = myCodeSize;
+		emit(BytecodeProgram.LOOP_END, -3, variableIdx);
+		if (isFor && myNumMayThrow > numMayThrow) {
+			myCodeSize = codeSize;
+			myConstants.subList(poolSizes[0], myConstants.size()).clear();
+			myVariables.subList(poolSizes[1], myVariables.size()).clear();
+			myProcedures.subList(poolSizes[2], myProcedures.size()).clear();
+			myTrees.subList(poolSizes[3], myTrees.size()).clear();
+			myStackSize = stackSize;
+			myNumMayThrow = numMayThrow;
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Compiles an If or IfElse. IfCommand and IfElseCommand build the list they execute the first time they
+	 * execute it (see CommandList), and return 0 if that fails or the list throws; here the lists are built at
+	 * compile time, and each is compiled between TRY_BEGIN and TRY_END, so that the BytecodeInterpreter makes
+	 * the conditional return 0 if the list throws.
+	 * @return false (having emitted nothing) if a list cannot be built now, or defines a command (which
+	 * building it would do), so the conditional is left to the tree-walker
+	 */
+	private boolean compileConditional(CommandNode node) {
+		List<CommandNode> children = node.getChildren();
+		List<List<CommandNode>> lists = new ArrayList<List<CommandNode>>();
+		for (CommandNode listNode : children.subList(0, children.size() - 1)) {
+			List<CommandNode> list = buildList(listNode);
+			if (list == null) {
+				return false;
+			}
+			lists.add(list);
+		}
+		compileCommand(children.get(children.size() - 1), BytecodeProgram.EXEC_TREE);
+		int elseJump = myCodeSize;
+		emit(BytecodeProgram.JUMP_UNLESS_POSITIVE, -1, 0);
+		List<Integer> handlers = new ArrayList<Integer>();
+		handlers.add(compileList(lists.get(0)));
+		int endJump = myCodeSize;
+		// the value of the first list is on the stack at the end, but not where the second starts
+		emit(BytecodeProgram.JUMP, -1, 0);
+		myCode[elseJump + 1] = myCodeSize;
+		if (lists.size() > 1) {
+			handlers.add(compileList(lists.get(1)));
+		}
+		else {
+			emitConstant(0);
+		}
+		myCode[endJump + 1] = myCodeSize;
+		for (int handler : handlers) {
+			myCode[handler + 1] = myCodeSize;
+		}
+		return true;
+	}
+
+	/**
+	 * Builds a list of commands of a conditional as IfCommand does
+	 * @return its trees, or null if it cannot be built now or defines a command
+	 */
+	private List<CommandNode> buildList(CommandNode listNode) {
+		String[] words = listNode.getInfo().split("\\s+");
+		if (Arrays.asList(words).contains(CommandTreeBuilder.DEFAULT_USERCOMMAND_IDENTIFIER)) {
+			return null;
+		}
+		try {
+			return new CommandTreeBuilder(myVariableTable, myUserDefCommands, myUserProcedures).build(null, null, words, myLocalNames);
+		}
+		catch (BadFormatException | UnidentifiedCommandException | MissingInformationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Compiles a list of commands of a conditional
+	 * @return position of its TRY_BEGIN, whose target is still to be set
+	 */
+	private int compileList(List<CommandNode> commands) {
+		int handler = myCodeSize;
+		emit(BytecodeProgram.TRY_BEGIN, 0, 0, myStackSize);
+		myNumHandlers++;
+		myMaxNumHandlers = Math.max(myMaxNumHandlers, myNumHandlers);
+		if (commands.isEmpty()) {
+			emitConstant(-1);
+		}
+		compileSequence(commands, BytecodeProgram.EXEC_STATEMENT);
+		emit(BytecodeProgram.TRY_END, 0);
+		myNumHandlers--;
+		return handler;
+	}
+
+	/**
+	 * Compiles a constant, a variable or math and logic on those (see isTurtleIndependent)
+	 */
+	private void compileExpression(CommandNode node) {
+		if (node.getIsDouble()) {
+			emitConstant(node.getValue());
+			return;
+		}
+		if (node.getVariable() != null) {
+			emit(BytecodeProgram.LOAD, 1, indexOf(myVariables, node.getVariable()));
+			return;
+		}
+		for (CommandNode child : node.getChildren()) {
+			compileExpression(child);
+		}
+		emit(EXPRESSION_OPCODES.get(node.getInfo()), 1 - node.getNumChildren());
+	}
+
+	/**
+	 * @return true if node is a constant, a variable or math and logic on those, whose value therefore does
+	 * not depend on the turtle it is evaluated for and does not change if it is evaluated again
+	 */
+	private boolean isTurtleIndependent(CommandNode node) {
+		if (node.getIsDouble()) {
+			return true;
+		}
+		if (node.getIsString()) {
+			return false;
+		}
+		if (node.getVariable() != null) {
+			return true;
+		}
+		return EXPRESSION_OPCODES.containsKey(node.getInfo()) && allTurtleIndependent(node.getChildren());
+	}
+
+	/**
+	 * @param commandName is language-independent name of a command, e.g. "Sum"
+	 * @return instruction for the command if it is math or logic, otherwise NOT_AN_EXPRESSION
+	 */
+	protected static int getExpressionOpcode(String commandName) {
+		Integer opcode = EXPRESSION_OPCODES.get(commandName);
+		return (opcode == null) ? NOT_AN_EXPRESSION : opcode;
+	}
+
+	private boolean allTurtleIndependent(List<CommandNode> nodes) {
+		for (CommandNode node : nodes) {
+			if (!isTurtleIndependent(node)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if node names the variable set by a MakeVariable or a loop
+	 */
+	private boolean isVariableName(CommandNode node) {
+		return node.getVariable() != null && node.getIsString();
+	}
+
+	/**
+	 * Same check as CommandTreeReader makes before executing a tree: every command has all of its arguments
+	 */
+	private boolean isComplete(CommandNode node) {
+		if (node.getIsDouble() || node.getIsString()) {
+			return true;
+		}
+		for (CommandNode child : node.getChildren()) {
+			if (!isComplete(child)) {
+				return false;
+			}
+		}
+		return node.getNumChildren() == node.getNumArgs();
+	}
+
+	private void emitConstant(double value) {
+		myConstants.add(value);
+		emit(BytecodeProgram.CONST, 1, myConstants.size() - 1);
+	}
+
+	private void emitTree(int opcode, CommandNode tree) {
+		myTrees.add(tree);
+		myNumMayThrow++;
+		emit(opcode, 1, myTrees.size() - 1);
+	}
+
+	/**
+	 * Appends an instruction
+	 * @param stackEffect is how many values the instruction leaves on the stack minus how many it takes off
+	 */
+	private void emit(int opcode, int stackEffect, int... operands) {
+		if (myCodeSize + 1 + operands.length > myCode.length) {
+			myCode = Arrays.copyOf(myCode, 2 * myCode.length + operands.length);
+		}
+		myCode[myCodeSize++] = opcode;
+		for (int operand : operands) {
+			myCode[myCodeSize++] = operand;
+		}
+		myStackSize += stackEffect;
+		myMaxStackSize = Math.max(myMaxStackSize, myStackSize);
+	}
+
+	/**
+	 * @return index of item in pool (compared by identity), adding it if it is not there yet
+	 */
+	private <T> int indexOf(List<T> pool, T item) {
+		for (int k = 0; k < pool.size(); k++) {
+			if (pool.get(k) == item) {
+				return k;
+			}
+		}
+		pool.add(item);
+		return pool.size() - 1;
+	}
+}
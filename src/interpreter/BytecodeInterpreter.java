@@ -0,0 +1,594 @@
+package interpreter;
+
+/**
+ * Runs a BytecodeProgram with an operand stack of doubles. Subtrees the BytecodeCompiler left to the tree-walker
+ * are compressed into Commands by the CommandTreeReader (once per run, so that loops reuse them, as they do
+ * when the whole tree is compressed) and executed on the turtles the program is run on.
+ * Calls of user-defined commands run on a stack of Activations rather than the Java stack, so recursion as deep
+ * as memory allows does not overflow the Java stack; a call that is the last thing its caller does (tail call)
+ * replaces the caller's Activation (unless the caller's return value goes in a MemoTable). Calls of pure
+ * commands with the arguments of a call in the command's MemoTable are not run at all. Only calls that run a JVM
+ * class (see UserProcedure.runsCompiled) or are made by subtrees left to the tree-walker nest Java frames: the
+ * BytecodeCompiler leaves to the tree-walker calls of commands that are not pure made in the arguments of math
+ * and turtle commands (e.g. "fd square 10", where square draws), and everything else it does not compile.
+ *
+ */
+class BytecodeInterpreter {
+	public static final String DEFAULT_LOOP_ERROR_MESSAGE = "One or more commands has incorrect number of arguments";
+
+	private CommandTreeReader myCommandTreeReader;
+	private VariableTable myVariables;
+
+	protected BytecodeInterpreter(CommandTreeReader commandTreeReader, VariableTable variables) {
+		myCommandTreeReader = commandTreeReader;
+		myVariables = variables;
+	}
+
+	/**
+	 * @return return value of the last command of the program (-1 if it has none)
+	 */
+	protected double execute(BytecodeProgram program, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return run(new Activation(program, myCommandTreeReader, false, false, null), turtles, activeTurtles);
+	}
+
+	/**
+	 * Runs a call prepared by UserProcedure.prepareCall with the program of the body of its command
+	 * @return return value of the last command of the body
+	 */
+	protected double call(UserProcedure procedure, double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		myVariables.pushFrame(procedure.makeFrame(args));
+		return run(new Activation(procedure.getBodyBytecode(), procedure.getCommandTreeReader(), true, false, null), turtles, activeTurtles);
+	}
+
+	private double run(Activation first, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		Activation activation = first;
+		run:
+		while (true) {
+			BytecodeProgram program = activation.myProgram;
+			int[] code = program.getFusedCode();
+			double[] constants = program.getConstants();
+			Variable[] variables = program.getVariables();
+			double[] stack = activation.myStack;
+			int sp = activation.mySp;
+			int pc = activation.myPc;
+			try {
+				while (pc < code.length) {
+					switch (code[pc]) {
+					case BytecodeProgram.CONST:
+						stack[sp++] = constants[code[pc+1]];
+						pc += 2;
+						break;
+					case BytecodeProgram.LOAD:
+						stack[sp++] = variables[code[pc+1]].get();
+						pc += 2;
+						break;
+					case BytecodeProgram.STORE:
+						variables[code[pc+1]].set(stack[sp-1]);
+						pc += 2;
+						break;
+					case BytecodeProgram.POP:
+						sp--;
+						pc++;
+						break;
+					case BytecodeProgram.STORE_POP:
+						sp--;
+						variables[code[pc+1]].set(stack[sp]);
+						pc += 3;
+						break;
+					case BytecodeProgram.CONST_OPERATOR:
+						stack[sp-1] = applyOperator(code[pc+2], stack[sp-1], constants[code[pc+1]]);
+						pc += 3;
+						break;
+					case BytecodeProgram.LOAD_CONST_OPERATOR:
+						stack[sp++] = applyOperator(code[pc+4], variables[code[pc+1]].get(), constants[code[pc+3]]);
+						pc += 5;
+						break;
+					case BytecodeProgram.ADD:
+						sp--;
+						stack[sp-1] += stack[sp];
+						pc++;
+						break;
+					case BytecodeProgram.SUB:
+						sp--;
+						stack[sp-1] -= stack[sp];
+						pc++;
+						break;
+					case BytecodeProgram.MUL:
+						sp--;
+						stack[sp-1] *= stack[sp];
+						pc++;
+						break;
+					case BytecodeProgram.DIV:
+						sp--;
+						stack[sp-1] /= stack[sp];
+						pc++;
+						break;
+					case BytecodeProgram.REM:
+						sp--;
+						stack[sp-1] %= stack[sp];
+						pc++;
+						break;
+					case BytecodeProgram.NEG:
+					case BytecodeProgram.SIN:
+					case BytecodeProgram.COS:
+					case BytecodeProgram.TAN:
+					case BytecodeProgram.ATAN:
+					case BytecodeProgram.LOG:
+					case BytecodeProgram.NOT:
+						stack[sp-1] = applyOperator(code[pc], stack[sp-1], 0);
+						pc++;
+						break;
+					case BytecodeProgram.POW:
+					case BytecodeProgram.LESS:
+					case BytecodeProgram.GREATER:
+					case BytecodeProgram.EQUAL:
+					case BytecodeProgram.NOT_EQUAL:
+					case BytecodeProgram.AND:
+					case BytecodeProgram.OR:
+						sp--;
+						stack[sp-1] = applyOperator(code[pc], stack[sp-1], stack[sp]);
+						pc++;
+						break;
+					case BytecodeProgram.PI:
+						stack[sp++] = Math.PI;
+						pc++;
+						break;
+					case BytecodeProgram.FORWARD:
+					case BytecodeProgram.BACKWARD:
+					case BytecodeProgram.LEFT:
+					case BytecodeProgram.RIGHT:
+					case BytecodeProgram.SET_HEADING:
+					case BytecodeProgram.PEN_DOWN_FORWARD_PEN_UP:
+					case BytecodeProgram.PEN_DOWN_BACKWARD_PEN_UP:
+						stack[sp-1] = executeTurtleCommand(code[pc], activeTurtles, stack[sp-1], 0);
+						pc++;
+						break;
+					case BytecodeProgram.SET_POSITION:
+					case BytecodeProgram.FORWARD_RIGHT:
+					case BytecodeProgram.FORWARD_LEFT:
+					case BytecodeProgram.BACKWARD_RIGHT:
+					case BytecodeProgram.BACKWARD_LEFT:
+						sp--;
+						stack[sp-1] = executeTurtleCommand(code[pc], activeTurtles, stack[sp-1], stack[sp]);
+						pc++;
+						break;
+					case BytecodeProgram.PEN_DOWN:
+					case BytecodeProgram.PEN_UP:
+					case BytecodeProgram.SHOW_TURTLE:
+					case BytecodeProgram.HIDE_TURTLE:
+					case BytecodeProgram.HOME:
+					case BytecodeProgram.CLEAR_SCREEN:
+						stack[sp++] = executeTurtleCommand(code[pc], activeTurtles, 0, 0);
+						pc++;
+						break;
+					case BytecodeProgram.LOOP_BEGIN: {
+						// start, end, increment -> end, increment, current value
+						Variable variable = variables[code[pc+1]];
+						int loop = activation.myNumLoops;
+						activation.myLoopVariables[loop] = code[pc+1];
+						activation.myOuterIsSet[loop] = variable.isSet();
+						activation.myOuterValues[loop] = variable.get();
+						activation.myNumLoops++;
+						double start = stack[sp-3];
+						stack[sp-3] = stack[sp-2];
+						stack[sp-2] = stack[sp-1];
+						stack[sp-1] = start;
+						pc += 2;
+						break;
+					}
+					case BytecodeProgram.LOOP_TEST:
+						if (stack[sp-1] <= stack[sp-3]) {
+							variables[code[pc+1]].set(stack[sp-1]);
+							pc += 3;
+						}
+						else {
+							pc = code[pc+2];
+						}
+						break;
+					case BytecodeProgram.LOOP_NEXT:
+						sp--;
+						stack[sp-4] = stack[sp];
+						stack[sp-1] += stack[sp-2];
+						pc = code[pc+1];
+						break;
+					case BytecodeProgram.LOOP_NEXT_TEST: {
+						sp--;
+						stack[sp-4] = stack[sp];
+						stack[sp-1] += stack[sp-2];
+						int test = code[pc+1];
+						if (stack[sp-1] <= stack[sp-3]) {
+							variables[code[test+1]].set(stack[sp-1]);
+							pc = test + 3;
+						}
+						else {
+							pc = code[test+2];
+						}
+						break;
+					}
+					case BytecodeProgram.LOOP_END:
+						activation.myNumLoops--;
+						restoreLoopVariable(activation);
+						sp -= 3;
+						pc += 2;
+						break;
+					case BytecodeProgram.CALL: {
+						int numArgs = code[pc+2];
+						double[] args = new double[numArgs];
+						System.arraycopy(stack, sp - numArgs, args, 0, numArgs);
+						sp -= numArgs;
+						UserProcedure procedure = program.getProcedures()[code[pc+1]].prepareCall(args);
+						MemoTable memoTable = procedure.getMemoTable();
+						Double memoized = (memoTable == null) ? null : memoTable.get(args);
+						if (memoized != null) {
+							stack[sp++] = memoized;
+							pc += 3;
+							break;
+						}
+						// the body may change the values of its parameters, which are kept in args
+						double[] memoKey = (memoTable == null) ? null : args.clone();
+						if (procedure.runsCompiled()) {
+							stack[sp] = procedure.callCompiled(args, turtles, activeTurtles);
+							if (memoTable != null) {
+								memoTable.put(memoKey, stack[sp]);
+							}
+							sp++;
+							pc += 3;
+							break;
+						}
+						if (activation.hasFrame && activation.myNumLoops == 0 && activation.myMemoTable == null && isTailCall(code, pc + 3)) {
+							// the caller would only return what the call returns (or, if a conditional it is in catches
+							// what the call throws, 0)
+							myVariables.popFrame();
+							activation = new Activation(procedure.getBodyBytecode(), procedure.getCommandTreeReader(), true,
+									activation.returnsZeroOnException || activation.myNumHandlers > 0, activation.myCaller);
+						}
+						else {
+							activation.mySp = sp;
+							activation.myPc = pc + 3;
+							activation = new Activation(procedure.getBodyBytecode(), procedure.getCommandTreeReader(), true, false, activation);
+						}
+						activation.myMemoTable = memoTable;
+						activation.myMemoKey = memoKey;
+						myVariables.pushFrame(procedure.makeFrame(args));
+						continue run;
+					}
+					case BytecodeProgram.EXEC_TREE: {
+						int treeIdx = code[pc+1];
+						if (activation.myCompressedTrees[treeIdx] == null) {
+							activation.myCompressedTrees[treeIdx] = activation.myCommandTreeReader.compress(program.getTrees()[treeIdx], turtles, activeTurtles);
+						}
+						stack[sp++] = activation.myCompressedTrees[treeIdx].execute();
+						pc += 2;
+						break;
+					}
+					case BytecodeProgram.EXEC_STATEMENT:
+						stack[sp++] = activation.myCommandTreeReader.readAndExecute(program.getTrees()[code[pc+1]], turtles, activeTurtles);
+						pc += 2;
+						break;
+					case BytecodeProgram.JUMP:
+						pc = code[pc+1];
+						break;
+					case BytecodeProgram.JUMP_UNLESS_POSITIVE:
+						sp--;
+						pc = (stack[sp] > 0) ? pc + 2 : code[pc+1];
+						break;
+					case BytecodeProgram.JUMP_UNLESS_PURE:
+						pc = program.getProcedures()[code[pc+1]].isPureCall(code[pc+2]) ? pc + 4 : code[pc+3];
+						break;
+					case BytecodeProgram.TRY_BEGIN: {
+						int handler = activation.myNumHandlers++;
+						activation.myHandlerTargets[handler] = code[pc+1];
+						activation.myHandlerStackSizes[handler] = code[pc+2];
+						activation.myHandlerNumLoops[handler] = activation.myNumLoops;
+						pc += 3;
+						break;
+					}
+					case BytecodeProgram.TRY_END:
+						activation.myNumHandlers--;
+						pc++;
+						break;
+					default:
+						throw new IllegalStateException("Unknown opcode " + code[pc]);
+					}
+				}
+				double returnVal = stack[0];
+				if (activation.myMemoTable != null) {
+					activation.myMemoTable.put(activation.myMemoKey, returnVal);
+				}
+				Activation caller = finish(activation);
+				if (caller == null) {
+					return returnVal;
+				}
+				caller.myStack[caller.mySp++] = returnVal;
+				activation = caller;
+			}
+			catch (Throwable e) {
+				activation = unwind(activation, e);
+				if (activation == null) {
+					return 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if the instruction at pc, and the ones it leads to, only end conditionals (so that a call just
+	 * before it is the last thing its program does)
+	 */
+	private static boolean isTailCall(int[] code, int pc) {
+		while (pc < code.length) {
+			if (code[pc] == BytecodeProgram.JUMP) {
+				pc = code[pc+1];
+			}
+			else if (code[pc] == BytecodeProgram.TRY_END) {
+				pc++;
+			}
+			else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ends an Activation that returned or threw, popping its VariableFrame
+	 * @return the Activation that called it (null if none did)
+	 */
+	private Activation finish(Activation activation) {
+		if (activation.hasFrame) {
+			myVariables.popFrame();
+		}
+		return activation.myCaller;
+	}
+
+	/**
+	 * Ends the loops and conditionals e is thrown out of, from the innermost out, as LoopCommands, IfCommand and
+	 * IfElseCommand would: loops give their variables back their outer values (and report errors in their bodies
+	 * as DoTimesCommand does), and a conditional stops e if it is an UnidentifiedCommandException
+	 * @return Activation to resume (with the conditional's return value of 0 on its stack), or null if the first
+	 * Activation returns 0
+	 */
+	private Activation unwind(Activation thrower, Throwable e) throws UnidentifiedCommandException {
+		Throwable thrown = e;
+		Activation activation = thrower;
+		while (activation != null) {
+			while (activation.myNumLoops > 0 || activation.myNumHandlers > 0) {
+				int handler = activation.myNumHandlers - 1;
+				if (handler >= 0 && activation.myHandlerNumLoops[handler] == activation.myNumLoops) {
+					activation.myNumHandlers--;
+					if (thrown instanceof UnidentifiedCommandException) {
+						activation.mySp = activation.myHandlerStackSizes[handler];
+						activation.myStack[activation.mySp++] = 0;
+						activation.myPc = activation.myHandlerTargets[handler];
+						return activation;
+					}
+				}
+				else {
+					activation.myNumLoops--;
+					restoreLoopVariable(activation);
+					if (thrown instanceof UnidentifiedCommandError) {
+						thrown = new UnidentifiedCommandException(DEFAULT_LOOP_ERROR_MESSAGE);
+					}
+				}
+			}
+			Activation caller = finish(activation);
+			if (activation.returnsZeroOnException && thrown instanceof UnidentifiedCommandException) {
+				if (caller == null) {
+					return null;
+				}
+				caller.myStack[caller.mySp++] = 0;
+				return caller;
+			}
+			activation = caller;
+		}
+		if (thrown instanceof UnidentifiedCommandException) {
+			throw (UnidentifiedCommandException) thrown;
+		}
+		if (thrown instanceof RuntimeException) {
+			throw (RuntimeException) thrown;
+		}
+		if (thrown instanceof Error) {
+			throw (Error) thrown;
+		}
+		throw new IllegalStateException(thrown);
+	}
+
+	/**
+	 * Gives the variable of the loop of activation that just ended its outer value back
+	 */
+	private static void restoreLoopVariable(Activation activation) {
+		int loop = activation.myNumLoops;
+		restoreVariable(activation.myProgram.getVariables()[activation.myLoopVariables[loop]], activation.myOuterIsSet[loop], activation.myOuterValues[loop]);
+	}
+
+	/**
+	 * Applies a math or logic instruction (execute does ADD, SUB, MUL, DIV and REM itself)
+	 * @param left is the first operand (ignored by PI)
+	 * @param right is the second operand (ignored by instructions that take fewer)
+	 */
+	protected static double applyOperator(int opcode, double left, double right) {
+		switch (opcode) {
+		case BytecodeProgram.ADD:
+			return left + right;
+		case BytecodeProgram.SUB:
+			return left - right;
+		case BytecodeProgram.MUL:
+			return left * right;
+		case BytecodeProgram.DIV:
+			return left / right;
+		case BytecodeProgram.REM:
+			return left % right;
+		case BytecodeProgram.POW:
+			return Math.pow(left, right);
+		case BytecodeProgram.NEG:
+			return -left;
+		case BytecodeProgram.SIN:
+			return Math.sin(Math.toRadians(left));
+		case BytecodeProgram.COS:
+			return Math.cos(Math.toRadians(left));
+		case BytecodeProgram.TAN:
+			return Math.tan(Math.toRadians(left));
+		case BytecodeProgram.ATAN:
+			return Math.toDegrees(Math.atan(Math.toRadians(left)));
+		case BytecodeProgram.LOG:
+			return Math.log(left);
+		case BytecodeProgram.PI:
+			return Math.PI;
+		case BytecodeProgram.LESS:
+			return (left < right) ? 1.0 : 0.0;
+		case BytecodeProgram.GREATER:
+			return (left > right) ? 1.0 : 0.0;
+		case BytecodeProgram.EQUAL:
+			return (left == right) ? 1.0 : 0.0;
+		case BytecodeProgram.NOT_EQUAL:
+			return (left != right) ? 1.0 : 0.0;
+		case BytecodeProgram.AND:
+			return (left > 0 && right > 0) ? 1.0 : 0.0;
+		case BytecodeProgram.OR:
+			return (left != 0 || right != 0) ? 1.0 : 0.0;
+		case BytecodeProgram.NOT:
+			return (left == 0) ? 1.0 : 0.0;
+		default:
+			throw new IllegalStateException("Unknown opcode " + opcode);
+		}
+	}
+
+	/**
+	 * Executes a turtle instruction on the active turtles, as the corresponding Command does
+	 * @param arg1 is the first argument (ignored by instructions that take none)
+	 * @param arg2 is the second argument (ignored by instructions that take fewer)
+	 * @return return value of the command
+	 */
+	protected static double executeTurtleCommand(int opcode, Turtle activeTurtles, double arg1, double arg2) {
+		switch (opcode) {
+		case BytecodeProgram.FORWARD:
+			activeTurtles.forward(arg1);
+			return arg1;
+		case BytecodeProgram.BACKWARD:
+			activeTurtles.forward(-arg1);
+			return arg1;
+		case BytecodeProgram.LEFT:
+			activeTurtles.turn(-arg1);
+			return arg1;
+		case BytecodeProgram.RIGHT:
+			activeTurtles.turn(arg1);
+			return arg1;
+		case BytecodeProgram.SET_HEADING: {
+			double oldAngle = activeTurtles.toSingleTurtle().getAngle();
+			activeTurtles.setAngle(arg1);
+			return arg1 - oldAngle;
+		}
+		case BytecodeProgram.SET_POSITION:
+			return activeTurtles.setXY(arg1, arg2);
+		case BytecodeProgram.PEN_DOWN:
+			activeTurtles.showPen();
+			return 1;
+		case BytecodeProgram.PEN_UP:
+			activeTurtles.hidePen();
+			return 0;
+		case BytecodeProgram.SHOW_TURTLE:
+			activeTurtles.showTurtle();
+			return 1;
+		case BytecodeProgram.HIDE_TURTLE:
+			activeTurtles.hideTurtle();
+			return 0;
+		case BytecodeProgram.HOME:
+			activeTurtles.setAngle(0);
+			return activeTurtles.setXY(0, 0);
+		case BytecodeProgram.CLEAR_SCREEN: {
+			double distance = activeTurtles.setXY(0, 0);
+			activeTurtles.setAngle(0);
+			activeTurtles.clearPen();
+			return distance;
+		}
+		case BytecodeProgram.FORWARD_RIGHT:
+		case BytecodeProgram.FORWARD_LEFT:
+		case BytecodeProgram.BACKWARD_RIGHT:
+		case BytecodeProgram.BACKWARD_LEFT: {
+			// subtracting is adding the negation, so each turtle ends up exactly where the two commands would leave it
+			double distance = (opcode == BytecodeProgram.FORWARD_RIGHT || opcode == BytecodeProgram.FORWARD_LEFT) ? arg1 : -arg1;
+			double degrees = (opcode == BytecodeProgram.FORWARD_LEFT || opcode == BytecodeProgram.BACKWARD_LEFT) ? -arg2 : arg2;
+			activeTurtles.forwardAndTurn(distance, degrees);
+			return arg2;
+		}
+		case BytecodeProgram.PEN_DOWN_FORWARD_PEN_UP:
+		case BytecodeProgram.PEN_DOWN_BACKWARD_PEN_UP: {
+			// each turtle's pen is down only while it moves, whichever order the turtles do this in
+			activeTurtles.showPen();
+			activeTurtles.forward((opcode == BytecodeProgram.PEN_DOWN_FORWARD_PEN_UP) ? arg1 : -arg1);
+			activeTurtles.hidePen();
+			return 0;
+		}
+		default:
+			throw new IllegalStateException("Unknown opcode " + opcode);
+		}
+	}
+
+	protected static void restoreVariable(Variable variable, boolean outerIsSet, double outerValue) {
+		if (outerIsSet) {
+			variable.set(outerValue);
+		}
+		else {
+			variable.unset();
+		}
+	}
+
+	/**
+	 * State of a running program: the program run by execute, or the body of a user-defined command
+	 */
+	private static final class Activation {
+		// shared by the Activations of programs that need no trees, loops or handlers, so that calls allocate less
+		private static final Command[] NO_TREES = new Command[0];
+		private static final int[] NO_INTS = new int[0];
+		private static final double[] NO_DOUBLES = new double[0];
+		private static final boolean[] NO_BOOLEANS = new boolean[0];
+
+		private final BytecodeProgram myProgram;
+		private final CommandTreeReader myCommandTreeReader;
+		private final boolean hasFrame;
+		private final boolean returnsZeroOnException;
+		private final Activation myCaller;
+		private final double[] myStack;
+		private final Command[] myCompressedTrees;
+		// every loop keeps four values on the stack, so at most this many loops run at once
+		private final int[] myLoopVariables;
+		private final double[] myOuterValues;
+		private final boolean[] myOuterIsSet;
+		private int myNumLoops;
+		private final int[] myHandlerTargets;
+		private final int[] myHandlerStackSizes;
+		private final int[] myHandlerNumLoops;
+		private int myNumHandlers;
+		private int mySp;
+		private int myPc;
+		// where to keep the return value, if the program is the body of a pure command (see PurityAnalyzer)
+		private MemoTable myMemoTable;
+		private double[] myMemoKey;
+
+		/**
+		 * @param frame is true if the program is the body of a user-defined command, whose VariableFrame must be
+		 * popped when it ends
+		 * @param returnsZero is true if the Activation replaced one (see the tail call in run) whose conditionals
+		 * would have made it return 0 had the call thrown an UnidentifiedCommandException
+		 * @param caller is the Activation to return to (null to return from run)
+		 */
+		private Activation(BytecodeProgram program, CommandTreeReader commandTreeReader, boolean frame, boolean returnsZero, Activation caller) {
+			myProgram = program;
+			myCommandTreeReader = commandTreeReader;
+			hasFrame = frame;
+			returnsZeroOnException = returnsZero;
+			myCaller = caller;
+			myStack = new double[program.getMaxStackSize()];
+			int numTrees = program.getTrees().length;
+			myCompressedTrees = (numTrees == 0) ? NO_TREES : new Command[numTrees];
+			int maxNumLoops = program.getMaxStackSize()/4;
+			myLoopVariables = (maxNumLoops == 0) ? NO_INTS : new int[maxNumLoops];
+			myOuterValues = (maxNumLoops == 0) ? NO_DOUBLES : new double[maxNumLoops];
+			myOuterIsSet = (maxNumLoops == 0) ? NO_BOOLEANS : new boolean[maxNumLoops];
+			int maxNumHandlers = program.getMaxNumHandlers();
+			myHandlerTargets = (maxNumHandlers == 0) ? NO_INTS : new int[maxNumHandlers];
+			myHandlerStackSizes = (maxNumHandlers == 0) ? NO_INTS : new int[maxNumHandlers];
+			myHandlerNumLoops = (maxNumHandlers == 0) ? NO_INTS : new int[maxNumHandlers];
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package interpreter;
+
+/**
+ * Flat instruction array compiled from CommandNode trees by BytecodeCompiler and run by BytecodeInterpreter.
+ * Each instruction is an opcode followed by its operands (indexes into the pools below); all values are
+ * doubles on the interpreter's operand stack. Subtrees the compiler does not handle are kept as CommandNodes
+ * and executed by the tree-walker (EXEC_TREE, EXEC_STATEMENT). The BytecodeInterpreter runs a copy of the code
+ * in which common sequences start with an instruction that does the whole sequence (see getFusedCode).
+ *
+ */
+final class BytecodeProgram {
+	// values: push constant (constant idx), push variable (variable idx), set variable to top of stack (variable idx), drop top of stack
+	protected static final int CONST = 0;
+	protected static final int LOAD = 1;
+	protected static final int STORE = 2;
+	protected static final int POP = 3;
+	// math and logic (pop operands, push result)
+	protected static final int ADD = 4;
+	protected static final int SUB = 5;
+	protected static final int MUL = 6;
+	protected static final int DIV = 7;
+	protected static final int REM = 8;
+	protected static final int POW = 9;
+	protected static final int NEG = 10;
+	protected static final int SIN = 11;
+	protected static final int COS = 12;
+	protected static final int TAN = 13;
+	protected static final int ATAN = 14;
+	protected static final int LOG = 15;
+	protected static final int PI = 16;
+	protected static final int LESS = 17;
+	protected static final int GREATER = 18;
+	protected static final int EQUAL = 19;
+	protected static final int NOT_EQUAL = 20;
+	protected static final int AND = 21;
+	protected static final int OR = 22;
+	protected static final int NOT = 23;
+	// turtle commands on the active turtles (pop arguments, push return value)
+	protected static final int FORWARD = 24;
+	protected static final int BACKWARD = 25;
+	protected static final int LEFT = 26;
+	protected static final int RIGHT = 27;
+	protected static final int SET_HEADING = 28;
+	protected static final int SET_POSITION = 29;
+	protected static final int PEN_DOWN = 30;
+	protected static final int PEN_UP = 31;
+	protected static final int SHOW_TURTLE = 32;
+	protected static final int HIDE_TURTLE = 33;
+	protected static final int HOME = 34;
+	protected static final int CLEAR_SCREEN = 35;
+	// loops (variable idx; jump target): see BytecodeCompiler.compileLoop
+	protected static final int LOOP_BEGIN = 36;
+	protected static final int LOOP_TEST = 37;
+	protected static final int LOOP_NEXT = 38;
+	protected static final int LOOP_END = 39;
+	// user-defined command (procedure idx, number of arguments)
+	protected static final int CALL = 40;
+	// tree-walker: nested subtree (tree idx), whole command of the input (tree idx)
+	protected static final int EXEC_TREE = 41;
+	protected static final int EXEC_STATEMENT = 42;
+	// common sequences of turtle commands fused into one instruction (see BytecodeCompiler.compileFused):
+	// move then turn (pop distance and degrees, push degrees), pen down, move, pen up (pop distance, push 0)
+	protected static final int FORWARD_RIGHT = 43;
+	protected static final int FORWARD_LEFT = 44;
+	protected static final int BACKWARD_RIGHT = 45;
+	protected static final int BACKWARD_LEFT = 46;
+	protected static final int PEN_DOWN_FORWARD_PEN_UP = 47;
+	protected static final int PEN_DOWN_BACKWARD_PEN_UP = 48;
+	// If and IfElse (see BytecodeCompiler.compileConditional): jump (target), pop and jump unless positive (target),
+	// start a body whose UnidentifiedCommandExceptions make the conditional return 0 (end of the conditional, stack
+	// size at its start), end the body
+	protected static final int JUMP = 49;
+	protected static final int JUMP_UNLESS_POSITIVE = 50;
+	protected static final int TRY_BEGIN = 51;
+	protected static final int TRY_END = 52;
+	// math, logic or a turtle command whose arguments call user-defined commands (see
+	// BytecodeCompiler.compileCallExpression): jump unless a call of a procedure runs a pure command (procedure idx,
+	// number of arguments, target)
+	protected static final int JUMP_UNLESS_PURE = 53;
+	// only in the fused code, each in place of the first instruction of the sequence it does: STORE then POP
+	// (variable idx), CONST then a math or logic instruction taking two operands (constant idx, opcode), LOAD, CONST
+	// and such an instruction (variable idx, CONST, constant idx, opcode), LOOP_NEXT and the LOOP_TEST it jumps to
+	// (target)
+	protected static final int STORE_POP = 54;
+	protected static final int CONST_OPERATOR = 55;
+	protected static final int LOAD_CONST_OPERATOR = 56;
+	protected static final int LOOP_NEXT_TEST = 57;
+
+	private final int[] myCode;
+	private final int[] myFusedCode;
+	private final double[] myConstants;
+	private final Variable[] myVariables;
+	private final UserProcedure[] myProcedures;
+	private final CommandNode[] myTrees;
+	private final int myMaxStackSize;
+	private final int myMaxNumHandlers;
+
+	protected BytecodeProgram(int[] code, double[] constants, Variable[] variables, UserProcedure[] procedures, CommandNode[] trees, int maxStackSize, int maxNumHandlers) {
+		myCode = code;
+		myFusedCode = fuse(code);
+		myConstants = constants;
+		myVariables = variables;
+		myProcedures = procedures;
+		myTrees = trees;
+		myMaxStackSize = maxStackSize;
+		myMaxNumHandlers = maxNumHandlers;
+	}
+
+	/**
+	 * @return number of ints the instruction takes in the code (its opcode and its operands)
+	 */
+	protected static int getLength(int opcode) {
+		switch (opcode) {
+		case LOAD_CONST_OPERATOR:
+			return 5;
+		case JUMP_UNLESS_PURE:
+			return 4;
+		case LOOP_TEST:
+		case CALL:
+		case TRY_BEGIN:
+		case STORE_POP:
+		case CONST_OPERATOR:
+			return 3;
+		case CONST:
+		case LOAD:
+		case STORE:
+		case LOOP_BEGIN:
+		case LOOP_NEXT:
+		case LOOP_END:
+		case EXEC_TREE:
+		case EXEC_STATEMENT:
+		case JUMP:
+		case JUMP_UNLESS_POSITIVE:
+		case LOOP_NEXT_TEST:
+			return 2;
+		default:
+			return 1;
+		}
+	}
+
+	/**
+	 * @return copy of code in which the first instruction of each common sequence is replaced by one that does the
+	 * whole sequence. The other instructions of the sequence are left as they are, so that a jump to one of them
+	 * still does the rest of the sequence.
+	 */
+	private static int[] fuse(int[] code) {
+		int[] fused = code.clone();
+		int pc = 0;
+		while (pc < code.length) {
+			int next = pc + getLength(code[pc]);
+			if (code[pc] == LOOP_NEXT) {
+				fused[pc] = LOOP_NEXT_TEST;
+			}
+			else if (code[pc] == STORE && next < code.length && code[next] == POP) {
+				fused[pc] = STORE_POP;
+				next++;
+			}
+			else if (code[pc] == CONST && next < code.length && isBinaryOperator(code[next])) {
+				fused[pc] = CONST_OPERATOR;
+				next++;
+			}
+			else if (code[pc] == LOAD && next + 2 < code.length && code[next] == CONST && isBinaryOperator(code[next+2])) {
+				fused[pc] = LOAD_CONST_OPERATOR;
+				next += 3;
+			}
+			pc = next;
+		}
+		return fused;
+	}
+
+	/**
+	 * @return true if opcode is a math or logic instruction that takes two operands
+	 */
+	private static boolean isBinaryOperator(int opcode) {
+		return (opcode >= ADD && opcode <= REM) || opcode == POW || (opcode >= LESS && opcode <= OR);
+	}
+
+	protected int[] getCode() {
+		return myCode;
+	}
+	/**
+	 * @return the code with common sequences fused, for the BytecodeInterpreter
+	 */
+	protected int[] getFusedCode() {
+		return myFusedCode;
+	}
+	protected double[] getConstants() {
+		return myConstants;
+	}
+	protected Variable[] getVariables() {
+		return myVariables;
+	}
+	protected UserProcedure[] getProcedures() {
+		return myProcedures;
+	}
+	protected CommandNode[] getTrees() {
+		return myTrees;
+	}
+	protected int getMaxStackSize() {
+		return myMaxStackSize;
+	}
+	/**
+	 * @return most bodies of conditionals that are running at once
+	 */
+	protected int getMaxNumHandlers() {
+		return myMaxNumHandlers;
+	}
+}
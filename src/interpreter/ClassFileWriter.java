@@ -0,0 +1,219 @@
+package interpreter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer of JVM class files, with just what ProcedureCompiler needs: a constant pool of strings, classes,
+ * methods and doubles, and methods whose code is given as bytes. Writes version 49 class files, which the JVM
+ * verifies by type inference, so the code needs no stack map frames.
+ *
+ */
+class ClassFileWriter {
+	public static final int CLASS_FILE_VERSION = 49;
+	public static final int ACC_PUBLIC = 0x0001;
+	public static final int ACC_PROTECTED = 0x0004;
+	public static final int ACC_FINAL = 0x0010;
+	public static final int ACC_SUPER = 0x0020;
+
+	// instructions used by ProcedureCompiler
+	protected static final int ICONST_0 = 0x03;
+	protected static final int DCONST_0 = 0x0e;
+	protected static final int BIPUSH = 0x10;
+	protected static final int SIPUSH = 0x11;
+	protected static final int LDC2_W = 0x14;
+	protected static final int ILOAD = 0x15;
+	protected static final int DLOAD = 0x18;
+	protected static final int ALOAD = 0x19;
+	protected static final int ALOAD_0 = 0x2a;
+	protected static final int ISTORE = 0x36;
+	protected static final int DSTORE = 0x39;
+	protected static final int ASTORE = 0x3a;
+	protected static final int DASTORE = 0x52;
+	protected static final int POP2 = 0x58;
+	protected static final int DADD = 0x63;
+	protected static final int DSUB = 0x67;
+	protected static final int DMUL = 0x6b;
+	protected static final int DDIV = 0x6f;
+	protected static final int DREM = 0x73;
+	protected static final int DCMPL = 0x97;
+	protected static final int DCMPG = 0x98;
+	protected static final int IFEQ = 0x99;
+	protected static final int IFGT = 0x9d;
+	protected static final int IFLE = 0x9e;
+	protected static final int GOTO = 0xa7;
+	protected static final int DRETURN = 0xaf;
+	protected static final int RETURN = 0xb1;
+	protected static final int INVOKEVIRTUAL = 0xb6;
+	protected static final int INVOKESPECIAL = 0xb7;
+	protected static final int INVOKESTATIC = 0xb8;
+	protected static final int NEWARRAY = 0xbc;
+	protected static final int ANEWARRAY = 0xbd;
+	protected static final int ATHROW = 0xbf;
+	protected static final int T_DOUBLE = 7;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+	private ByteArrayOutputStream myConstantPool;
+	private DataOutputStream myConstantPoolOut;
+	private int myNumConstants;
+	private Map<String, Integer> myConstantIndexes;
+	private ByteArrayOutputStream myMethods;
+	private DataOutputStream myMethodsOut;
+	private int myNumMethods;
+	private int myThisClass;
+	private int mySuperClass;
+
+	/**
+	 * @param className is internal name of the class, e.g. "interpreter/CompiledProcedure1"
+	 * @param superName is internal name of its superclass
+	 */
+	protected ClassFileWriter(String className, String superName) {
+		myConstantPool = new ByteArrayOutputStream();
+		myConstantPoolOut = new DataOutputStream(myConstantPool);
+		myNumConstants = 1;
+		myConstantIndexes = new HashMap<String, Integer>();
+		myMethods = new ByteArrayOutputStream();
+		myMethodsOut = new DataOutputStream(myMethods);
+		myThisClass = classRef(className);
+		mySuperClass = classRef(superName);
+	}
+
+	protected int utf8(String value) {
+		String key = "U" + value;
+		if (!myConstantIndexes.containsKey(key)) {
+			try {
+				myConstantPoolOut.writeByte(CONSTANT_UTF8);
+				myConstantPoolOut.writeUTF(value);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			myConstantIndexes.put(key, myNumConstants++);
+		}
+		return myConstantIndexes.get(key);
+	}
+
+	protected int classRef(String internalName) {
+		int name = utf8(internalName);
+		return constant("C" + internalName, CONSTANT_CLASS, name);
+	}
+
+	protected int methodRef(String owner, String name, String descriptor) {
+		int ownerIdx = classRef(owner);
+		int nameAndType = constant("N" + name + " " + descriptor, CONSTANT_NAME_AND_TYPE, utf8(name), utf8(descriptor));
+		return constant("M" + owner + "." + name + descriptor, CONSTANT_METHODREF, ownerIdx, nameAndType);
+	}
+
+	/**
+	 * @return index of a double constant (for LDC2_W)
+	 */
+	protected int doubleConstant(double value) {
+		String key = "D" + Double.doubleToRawLongBits(value);
+		if (!myConstantIndexes.containsKey(key)) {
+			try {
+				myConstantPoolOut.writeByte(CONSTANT_DOUBLE);
+				myConstantPoolOut.writeDouble(value);
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			myConstantIndexes.put(key, myNumConstants);
+			// doubles take two entries of the pool
+			myNumConstants += 2;
+		}
+		return myConstantIndexes.get(key);
+	}
+
+	private int constant(String key, int tag, int... references) {
+		if (!myConstantIndexes.containsKey(key)) {
+			try {
+				myConstantPoolOut.writeByte(tag);
+				for (int reference : references) {
+					myConstantPoolOut.writeShort(reference);
+				}
+			}
+			catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			myConstantIndexes.put(key, myNumConstants++);
+		}
+		return myConstantIndexes.get(key);
+	}
+
+	/**
+	 * @param exceptionTable is, for each handler, the start, end and handler offsets in code (each handler
+	 * catches any Throwable)
+	 */
+	protected void addMethod(int access, String name, String descriptor, byte[] code, int maxStack, int maxLocals, List<int[]> exceptionTable) {
+		try {
+			myMethodsOut.writeShort(access);
+			myMethodsOut.writeShort(utf8(name));
+			myMethodsOut.writeShort(utf8(descriptor));
+			myMethodsOut.writeShort(1);
+			myMethodsOut.writeShort(utf8("Code"));
+			myMethodsOut.writeInt(12 + code.length + 8*exceptionTable.size());
+			myMethodsOut.writeShort(maxStack);
+			myMethodsOut.writeShort(maxLocals);
+			myMethodsOut.writeInt(code.length);
+			myMethodsOut.write(code);
+			myMethodsOut.writeShort(exceptionTable.size());
+			for (int[] handler : exceptionTable) {
+				myMethodsOut.writeShort(handler[0]);
+				myMethodsOut.writeShort(handler[1]);
+				myMethodsOut.writeShort(handler[2]);
+				myMethodsOut.writeShort(0);
+			}
+			myMethodsOut.writeShort(0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		myNumMethods++;
+	}
+
+	/**
+	 * Adds a public constructor that takes no arguments and only calls the superclass's
+	 */
+	protected void addDefaultConstructor(String superName) {
+		int superConstructor = methodRef(superName, "<init>", "()V");
+		byte[] code = {(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (superConstructor >> 8), (byte) superConstructor, (byte) RETURN};
+		addMethod(ACC_PUBLIC, "<init>", "()V", code, 1, 1, new ArrayList<int[]>());
+	}
+
+	/**
+	 * @return the class file
+	 */
+	protected byte[] toByteArray() {
+		ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(classFile);
+		try {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(CLASS_FILE_VERSION);
+			out.writeShort(myNumConstants);
+			myConstantPool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(myThisClass);
+			out.writeShort(mySuperClass);
+			out.writeShort(0);
+			out.writeShort(0);
+			out.writeShort(myNumMethods);
+			myMethods.writeTo(out);
+			out.writeShort(0);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return classFile.toByteArray();
+	}
+}
@@ -21,25 +21,53 @@ abstract class Command {
 	abstract double execute() throws UnidentifiedCommandException;
 	
 	/**
-	 * Method used in the event that a Command takes another Command as an argument. If
-	 * the command in question is a StringCommand, will recognize that it must be a variable
-	 * and return the double corresponding to it. Otherwise executes the command in question
-	 * and returns the proper value. Executes on one turtle to ensure that concatenated commands
-	 * execute on the same turtle.
+	 * Evaluates this command as the argument of another command, on the given turtle(s). By default
+	 * executes it with turtle as its active turtles; literals (DoubleCommand, PiCommand), variable reads
+	 * (VariableCommand, StringCommand), turtle queries and calls of user-defined commands
+	 * (UserInstructionCommand) are final classes that compute their value directly.
+	 * @param turtle is turtle command is being executed on
+	 * @return proper return value
+	 * @throws UnidentifiedCommandException
+	 */
+	protected double evaluate(Turtle turtle) throws UnidentifiedCommandException {
+		setActiveTurtles(turtle);
+		return execute();
+	}
+
+	/**
+	 * Tells whether evaluating this command only computes its value: it changes no turtle, variable or command
+	 * and cannot fail, so evaluating it again, for each active turtle, or not at all when the value is not
+	 * needed, makes no difference. True for literals, variable reads and turtle queries, and for math and logic
+	 * on pure commands, which then skip evaluating their arguments for each turtle (and And and Or short-circuit)
+	 * @return true if this command is pure
+	 */
+	protected boolean isPure() {
+		return false;
+	}
+
+	/**
+	 * Tells whether this command is pure and also has the same value for every turtle: true for literals and
+	 * variable reads, and for math and logic on those, but not for turtle queries. Turtle commands whose
+	 * arguments are turtle independent evaluate them once and move or turn all the active turtles at once
+	 * (see Turtle.forward and Turtle.turn)
+	 * @return true if this command is turtle independent
+	 */
+	protected boolean isTurtleIndependent() {
+		return false;
+	}
+
+	/**
+	 * Method used in the event that a Command takes another Command as an argument. Evaluates
+	 * the command in question (see evaluate) and returns the proper value. Executes on one turtle
+	 * to ensure that concatenated commands execute on the same turtle.
 	 * @param command is Command needed to be executed
-	 * @param varsMap is map of variables to their double values
+	 * @param varsMap is map of variables to their double values (StringCommands look themselves up in it)
 	 * @param turtle is turtle command is being executed on
 	 * @return proper return value
 	 * @throws UnidentifiedCommandException
 	 */
 	protected double getCommandValue(Command command, Map<String, Double> varsMap, Turtle turtle) throws UnidentifiedCommandException {
-		if(command instanceof StringCommand) {
-			return getValueOfVar(((StringCommand)command).toString(), varsMap);
-		}
-		else {
-			command.setActiveTurtles(turtle);
-			return command.execute();
-		}
+		return command.evaluate(turtle);
 	}
 	
 	/**
@@ -0,0 +1,19 @@
+package interpreter;
+
+import java.util.List;
+
+/**
+ * Makes a Command of one kind from its (already made) argument Commands. Registered with the CommandRegistry
+ * under the language-independent name of the command, e.g. "Forward".
+ *
+ */
+interface CommandConstructor {
+	/**
+	 * @param factory is CommandFactory making the command, which holds the variables and user-defined commands
+	 * @param args is argument Commands, in order
+	 * @param turtles is all turtles
+	 * @param activeTurtles is Turtle the command will execute upon
+	 * @return the command
+	 */
+	Command make(CommandFactory factory, List<Command> args, Turtle turtles, Turtle activeTurtles);
+}
@@ -0,0 +1,68 @@
+package interpreter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of commands that If or IfElse is given as text (e.g. "fd 50 rt 90"). It is built into trees the first
+ * time it is executed rather than every time, and each tree is compressed into a Command once for the turtles
+ * it runs on, so executing the list again, e.g. in a loop, only executes those Commands. The trees are built
+ * again if the list runs with different parameters in scope, and a list that cannot be built yet (it uses a
+ * command that is not defined) is built again the next time.
+ *
+ */
+class CommandList {
+	private String[] myWords;
+	private VariableTable myVariables;
+	private CommandTreeBuilder myBuilder;
+	private List<CommandNode> myTrees;
+	private String[] myLocalNames;
+	private Command[] myCommands;
+	private Turtle myTurtles;
+	private Turtle myActiveTurtles;
+
+	/**
+	 * @param text is language-independent words of the list, e.g. "Forward 50 Right 90"
+	 */
+	protected CommandList(String text, VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		myWords = text.split("\\s+");
+		myVariables = variables;
+		myBuilder = new CommandTreeBuilder(variables, userDefCommands, userProcedures);
+	}
+
+	/**
+	 * Executes the commands of the list in order, as CommandTreeBuilder.buildAndExecute does
+	 * @return return value of the last command executed (-1 if there are none)
+	 */
+	protected double execute(Turtle turtles, Turtle activeTurtles) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		String[] localNames = myVariables.getLocalNames();
+		if (myTrees == null || localNames != myLocalNames) {
+			myTrees = myBuilder.build(turtles, activeTurtles, myWords);
+			myLocalNames = localNames;
+			myCommands = new Command[myTrees.size()];
+		}
+		else if (turtles != myTurtles || activeTurtles != myActiveTurtles) {
+			// a new array, since a call of the list that is still running may be using the old one
+			myCommands = new Command[myTrees.size()];
+		}
+		myTurtles = turtles;
+		myActiveTurtles = activeTurtles;
+		List<CommandNode> trees = myTrees;
+		Command[] commands = myCommands;
+		CommandTreeReader reader = myBuilder.getCommandTreeReader();
+		double returnVal = -1;
+		for (int k = 0; k < commands.length; k++) {
+			CommandNode tree = trees.get(k);
+			if (tree.getInfo().equals(CommandTreeReader.DEFAULT_BACKCHANGE_IDENTIFIER)) {
+				// the reader also records the new background color
+				returnVal = reader.readAndExecute(tree, turtles, activeTurtles);
+				continue;
+			}
+			if (commands[k] == null) {
+				commands[k] = reader.compress(tree, turtles, activeTurtles);
+			}
+			returnVal = commands[k].execute();
+		}
+		return returnVal;
+	}
+}
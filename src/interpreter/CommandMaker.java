@@ -16,12 +16,12 @@ package interpreter;
 
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.IntegerProperty;
@@ -37,7 +37,7 @@ import javafx.scene.image.ImageView;
  * @author Susie Choi
  * Second stage in the command-parsing process: checks that all user input that is syntactically-identified
  * as a Command in TextFieldParser is, in fact, a recognized Command. Assumes that TextFieldParser has 
- * correctly populated a parallel array of "types of input" as an argument to the parseValidTextArray method. 
+ * correctly classified each token (see Lexer) before passing the tokens to the parseValidTokens method. 
  * Depends on RegexMatcher to check each token in the text array against a language file, e.g. English.properties.
  */
 
@@ -52,13 +52,16 @@ class CommandMaker {
 	protected static final String[] DEFAULT_CONTROLFLOW_IDENTIFIERS = {"Repeat", "DoTimes", "For"};
 	public static final String DEFAULT_VAR_IDENTIFIER = ":";
 	
-	private HashMap<String, Double> myVariables; 
+	private VariableTable myVariables; 
 	private HashMap<String, String> myUserDefCommands; 
-	private HashMap<String, Integer> myUserCommandsNumArgs; 
-	private MultipleTurtles myActiveTurtles; 
-	private MultipleTurtles myTurtles;
-	private ResourceBundle myLanguage; 
+	private HashMap<String, UserProcedure> myUserProcedures; 
+	private Turtle myActiveTurtles; 
+	private Turtle myTurtles;
+	private PatternTable myLanguage; 
 	private CommandTreeBuilder myCommandTreeBuilder; 
+	private ProgramCache myProgramCache; 
+	private String myLanguageName; 
+	private ExecutionEngine myExecutionEngine; 
 	private IntegerProperty myBackColor; 
 	private BooleanProperty myBackColorChangeHeard; 
 
@@ -69,11 +72,14 @@ class CommandMaker {
 	protected CommandMaker(ResourceBundle languageBundle, String numArgsFileName) {
 		myTurtles = new MultipleTurtles(new ArrayList<SingleTurtle>()); 
 		myActiveTurtles = new MultipleTurtles(new ArrayList<SingleTurtle>());
-		myLanguage = languageBundle;
-		myVariables = new HashMap<String, Double>(); 
+		myLanguage = PatternTable.forBundle(languageBundle);
+		myLanguageName = languageBundle.getBaseBundleName();
+		myVariables = new VariableTable(); 
 		myUserDefCommands = new HashMap<String, String>(); 
-		myUserCommandsNumArgs = new HashMap<String, Integer>(); 
-		myCommandTreeBuilder = new CommandTreeBuilder(numArgsFileName, myVariables, myUserDefCommands, myUserCommandsNumArgs); 
+		myUserProcedures = new HashMap<String, UserProcedure>(); 
+		myCommandTreeBuilder = new CommandTreeBuilder(numArgsFileName, myVariables, myUserDefCommands, myUserProcedures); 
+		myProgramCache = new ProgramCache(); 
+		myExecutionEngine = ExecutionEngine.TREE_WALKER; 
 		myBackColor = new SimpleIntegerProperty(0);
 		myBackColorChangeHeard = new SimpleBooleanProperty(false);
 		setUpBackColorChangeListener();
@@ -89,55 +95,131 @@ class CommandMaker {
 		});
 	}
 	
-	protected double parseValidTextArray(String turtleID, String[] userInput, String[] typesOfInput) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		return parseValidTextArray(turtleID, userInput, typesOfInput, DEFAULT_COMMAND_IDENTIFIER);
+	/**
+	 * @param normalizedSource is input normalized by ProgramCache.normalize
+	 * @return program built earlier from the same input in the current language, or null if it must be built again
+	 */
+	protected CompiledProgram findCompiledProgram(String normalizedSource) {
+		CompiledProgram program = myProgramCache.get(myLanguageName, normalizedSource);
+		if (program != null && !program.isValidFor(myTurtles)) {
+			myProgramCache.remove(myLanguageName, normalizedSource);
+			return null;
+		}
+		return program;
 	}
 
-	private double parseValidTextArray(String turtleID, String[] userInput, String[] typesOfInput, String commandIdentifier) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		boolean turtleIdentified = myTurtles.containsTurtleWithID(turtleID);
-		String[] commandTypes = new String[userInput.length];
+	/**
+	 * Translates each Command token to its language-independent name, then builds, caches and executes the result
+	 * @param normalizedSource is input normalized by ProgramCache.normalize, under which the program is cached
+	 * @param userInput is tokens of the user's input, without comments
+	 * @return return value of the last command executed
+	 */
+	protected double parseValidTokens(String normalizedSource, Token[] userInput) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
 		int startIdx = 0; 
-		if (turtleIdentified) {
+		if (userInput.length > 0 && myTurtles.containsTurtleWithID(userInput[0].getText())) {
 			startIdx = 1; 
 		}
+		Token[] tokensToPass = new Token[userInput.length - startIdx];
 		for (int idx = startIdx; idx < userInput.length; idx++) {
-			if (typesOfInput[idx].equals(commandIdentifier)) {
-				try{
-					commandTypes[idx] = getCommandType(userInput[idx]);
-				} 
-				catch (Exception e) {
-					commandTypes[idx] = "";
+			Token token = userInput[idx];
+			if (token.getType() == TokenType.COMMAND) {
+				String commandType = getCommandType(token.getText());
+				if (commandType.length() > 0) {
+					token = new Token(commandType, TokenType.COMMAND, token.getOffset());
 				}
 			}
-			else {
-				commandTypes[idx] = "";
-			}
+			tokensToPass[idx - startIdx] = token;
 		}
+		int numUserCommands = myUserDefCommands.size();
+		List<CommandNode> commandTrees = myCommandTreeBuilder.build(myTurtles, myActiveTurtles, tokensToPass);
+		checkUserCommandsUnchanged(numUserCommands);
+		CompiledProgram program = new CompiledProgram(commandTrees, (userInput.length > 0) ? userInput[0].getText() : "", startIdx > 0);
+		myProgramCache.put(myLanguageName, normalizedSource, program);
+		return execute(program);
+	}
 
-		String[] userInputArrayToPass = userInput;
-		String[] commandTypesToPass = commandTypes; 
-
-		if (turtleIdentified) {
-			userInputArrayToPass = Arrays.copyOfRange(userInputArrayToPass, 1, userInputArrayToPass.length); 
-		}
-		
-		for (int i = 0; i < userInputArrayToPass.length; i++) {
-			if (commandTypesToPass[i].length() > 0) {
-				userInputArrayToPass[i] = commandTypesToPass[i];
+	/**
+	 * Executes a program built earlier (see findCompiledProgram)
+	 * @return return value of the last command executed
+	 */
+	protected double execute(CompiledProgram program) throws UnidentifiedCommandException {
+		int numUserCommands = myUserDefCommands.size();
+		try {
+			if (myExecutionEngine == ExecutionEngine.BYTECODE) {
+				CompiledProcedure compiled = program.getCompiledBytecode(myCommandTreeBuilder);
+				if (compiled != null) {
+					return compiled.run(myTurtles, myActiveTurtles);
+				}
+				return myCommandTreeBuilder.executeBytecode(program.getBytecode(myCommandTreeBuilder), myTurtles, myActiveTurtles);
 			}
+			return myCommandTreeBuilder.execute(program.getCommandTrees());
+		}
+		finally {
+			checkUserCommandsUnchanged(numUserCommands);
+		}
+	}
+
+	/**
+	 * Clears the ProgramCache if a user-defined command was added (user-defined commands are never redefined) 
+	 */
+	private void checkUserCommandsUnchanged(int numUserCommands) {
+		if (myUserDefCommands.size() != numUserCommands) {
+			myProgramCache.clear();
 		}
-		return myCommandTreeBuilder.buildAndExecute(myTurtles, myActiveTurtles, userInputArrayToPass, true); 
 	}
 	
-	private String getCommandType(String text) throws BadFormatException, MissingInformationException, UnidentifiedCommandException {
-		RegexMatcher regexMatcher = new RegexMatcher(myLanguage);
-		String commandType = regexMatcher.findMatchingKey(text);
-		if (commandType.length() == 0 && regexMatcher.containsKey(text)) return text; 
-		return commandType;
+	/**
+	 * @param text is token identified as a Command by its syntax
+	 * @return language-independent name of the command (e.g. "Forward" for "fd"), or "" if the token is not a built-in command
+	 */
+	private String getCommandType(String text) {
+		String commandType = myLanguage.findKey(text);
+		if (commandType != null) return commandType; 
+		if (myLanguage.containsKey(text)) return text; 
+		return "";
 	}
 
 	protected void changeLanguage(ResourceBundle languageBundle) {
-		myLanguage = languageBundle; 
+		myLanguage = PatternTable.forBundle(languageBundle); 
+		myLanguageName = languageBundle.getBaseBundleName(); 
+	}
+
+	/**
+	 * @param engine is how programs are executed from now on (ExecutionEngine.TREE_WALKER by default)
+	 */
+	protected void setExecutionEngine(ExecutionEngine engine) {
+		myExecutionEngine = engine;
+	}
+
+	/**
+	 * Keeps the turtles in a TurtleStore from now on, rather than as a SingleTurtle each, for programs with
+	 * very many turtles and no screen to draw them on. The turtles that exist now are moved to the store
+	 * (without the lines they drew), and the lines drawn from now on are kept by the store.
+	 */
+	protected void useTurtleStore() {
+		TurtleStore store = new TurtleStore();
+		myTurtles = new TurtleArray(store).replaceTurtles(myTurtles.getAllImmutableTurtles());
+		myActiveTurtles = new TurtleArray(store).replaceTurtles(myActiveTurtles.getAllImmutableTurtles());
+		myProgramCache.clear();
+	}
+
+	/**
+	 * Runs the commands Ask gives its turtles on groups of the turtles at once, where that gives the same result
+	 * (see ParallelAsk), or stops doing so. Only turtles kept in a TurtleStore can be run at once, since the
+	 * JavaFX nodes of other turtles may only be changed by the JavaFX thread, so the turtles are moved to a
+	 * TurtleStore first (see useTurtleStore) if they are not in one yet.
+	 * @param parallelism is number of threads to run groups of turtles on (1 or less to run Ask on all the
+	 * turtles at once, as by default)
+	 */
+	protected void useParallelAsk(int parallelism) {
+		if (!(myTurtles instanceof TurtleArray)) {
+			useTurtleStore();
+		}
+		TurtleStore store = ((TurtleArray) myTurtles).getStore();
+		if (store.getPool() != null) {
+			store.getPool().shutdown();
+		}
+		store.setPool((parallelism > 1) ? new ForkJoinPool(parallelism) : null);
 	}
 
 	protected Map<String, Double> getVariables() {
@@ -150,10 +232,18 @@ class CommandMaker {
 		return myActiveTurtles.getAllImmutableTurtles();
 	}
 	protected ImageView getTurtleWithIDImageView(double ID) {
-		return myTurtles.getTurtleWithIDImageView(ID);
+		return getTurtleWithID(ID).getImageView();
 	}
 	protected Group getTurtleWithIDPenLines(double ID) {
-		return myTurtles.getTurtleWithIDPenLines(ID);
+		return getTurtleWithID(ID).getPenLines();
+	}
+	private SingleTurtle getTurtleWithID(double ID) {
+		try {
+			return myTurtles.getTurtleWithID(Double.toString(ID));
+		}
+		catch (UnidentifiedCommandException e) {
+			throw new UnidentifiedCommandError(e.getMessage());
+		}
 	}
 
 	protected void addNewTurtle(String id, ImageView turtleImage, String penColor, Group penLines) {
@@ -179,7 +269,18 @@ class CommandMaker {
 	protected void loadSavedUserDefined() {
 		PropertiesReader pr = new PropertiesReader(DEFAULT_SAVEDUSERCOMMANDS);
 		HashMap<String, String> loadedCommands = (HashMap<String, String>) pr.read();
-		myUserDefCommands.putAll(loadedCommands);
+		for (String name : loadedCommands.keySet()) {
+			myUserDefCommands.put(name, loadedCommands.get(name));
+			UserProcedure procedure = new UserProcedure(name, loadedCommands.get(name), myVariables, myUserDefCommands, myUserProcedures);
+			UserProcedure oldProcedure = myUserProcedures.put(name, procedure);
+			if (oldProcedure != null) {
+				oldProcedure.redefine(procedure);
+			}
+		}
+		for (UserProcedure procedure : myUserProcedures.values()) {
+			procedure.forgetPurity();
+		}
+		myProgramCache.clear();
 	}
 
 	protected void loadSavedVariables() {
@@ -14,9 +14,13 @@ import java.util.List;
 class CommandNode {
 
 	public static final int DEFAULT_NUM_ARGS = 0; 
+	public static final int UNRESOLVED_COMMAND_ID = -2;
 
 	private String myInfo;
 	private boolean isDouble; 
+	private double myValue;
+	private Variable myVariable;
+	private int myCommandID = UNRESOLVED_COMMAND_ID;
 	private int myNumArgs; 
 	private List<CommandNode> myChildren; 
 	private Turtle myTurtles;
@@ -43,15 +47,6 @@ class CommandNode {
 		myInfo = info;
 		isString = isStringID;
 		isDouble = false;
-		if(!isString) {
-			try {
-				Double.parseDouble(info);
-				isDouble = true; 
-			}
-			catch (NumberFormatException e) {
-				isDouble = false; 
-			}
-		}
 		myNumArgs = numArgs;
 		myChildren = new ArrayList<CommandNode>(); 
 		myChildren.addAll(children); 
@@ -60,18 +55,42 @@ class CommandNode {
 		
 	}
 
-	protected CommandNode(String info, int numArgs, List<CommandNode> children) {
-		myInfo = info; 
-		try {
-			Integer.parseInt(info);
-			isDouble = true; 
-		}
-		catch (NumberFormatException e) {
-			isDouble = false; 
+	/**
+	 * Creates a node for a constant, whose value has already been parsed by the Lexer
+	 * @param constant is Token of type CONSTANT
+	 */
+	protected CommandNode(Token constant, Turtle turtles, Turtle activeTurtles) {
+		this(constant.getText(), DEFAULT_NUM_ARGS, new ArrayList<CommandNode>(), turtles, activeTurtles, false);
+		isDouble = true;
+		myValue = constant.getValue();
+	}
+
+	/**
+	 * Creates a node for a constant computed from the input rather than written in it (see TreeOptimizer)
+	 */
+	protected CommandNode(double value, Turtle turtles, Turtle activeTurtles) {
+		this(formatValue(value), DEFAULT_NUM_ARGS, new ArrayList<CommandNode>(), turtles, activeTurtles, false);
+		isDouble = true;
+		myValue = value;
+	}
+
+	/**
+	 * Creates a node for a variable, which was resolved to its slot when the node was built
+	 * @param isName is true if the node names the variable being set (e.g. by MakeVariable or DoTimes) rather than reading it
+	 */
+	protected CommandNode(Variable variable, boolean isName, Turtle turtles, Turtle activeTurtles) {
+		this(variable.getName(), DEFAULT_NUM_ARGS, new ArrayList<CommandNode>(), turtles, activeTurtles, isName);
+		myVariable = variable;
+	}
+
+	/**
+	 * @return value as the user would write it (without ".0" if it is a whole number)
+	 */
+	private static String formatValue(double value) {
+		if (value == Math.rint(value) && !Double.isInfinite(value)) {
+			return Long.toString((long) value);
 		}
-		myNumArgs = numArgs;
-		myChildren = children;
-		isString = false;
+		return Double.toString(value);
 	}
 
 	@Override
@@ -113,6 +132,27 @@ class CommandNode {
 	protected boolean getIsDouble() {
 		return isDouble;
 	}
+	/**
+	 * @return value of a constant node (0 for other nodes)
+	 */
+	protected double getValue() {
+		return myValue;
+	}
+	/**
+	 * @return variable of a variable node (null for other nodes)
+	 */
+	protected Variable getVariable() {
+		return myVariable;
+	}
+	/**
+	 * @return id of the node's command in the CommandRegistry, or UNRESOLVED_COMMAND_ID if it has not been looked up yet
+	 */
+	protected int getCommandID() {
+		return myCommandID;
+	}
+	protected void setCommandID(int commandID) {
+		myCommandID = commandID;
+	}
 	protected boolean getIsString() {
 		return isString;
 	}
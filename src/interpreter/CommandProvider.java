@@ -0,0 +1,15 @@
+package interpreter;
+
+/**
+ * Service interface for adding primitive commands without editing the CommandFactory. Implementations are found
+ * with java.util.ServiceLoader, so each one must be listed in META-INF/services/interpreter.CommandProvider and
+ * be a public class with a public no-argument constructor. Since Command is package-private, implementations
+ * belong to the interpreter package.
+ *
+ */
+interface CommandProvider {
+	/**
+	 * Registers each command this provider adds, e.g. registry.register("Wiggle", 1, (factory, args, turtles, active) -> ...)
+	 */
+	void registerCommands(CommandRegistry registry);
+}
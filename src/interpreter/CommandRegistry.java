@@ -0,0 +1,98 @@
+package interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Table from command to the CommandConstructor that makes it, built once: first the StandardCommands, then the
+ * commands of every CommandProvider found by ServiceLoader. Each command name is interned to a small integer id
+ * and constructors are stored in an array indexed by that id, so the CommandFactory makes any command with a
+ * single array access.
+ *
+ */
+final class CommandRegistry {
+
+	public static final int UNKNOWN = -1;
+	private static final int DEFAULT_CAPACITY = 64;
+	private static CommandRegistry defaultRegistry;
+
+	private Map<String, Integer> myIDs;
+	private CommandConstructor[] myConstructors;
+	private int[] myNumArgs;
+
+	/**
+	 * @return shared registry of the standard commands and those of the installed CommandProviders
+	 */
+	protected static synchronized CommandRegistry getDefault() {
+		if (defaultRegistry == null) {
+			CommandRegistry registry = new CommandRegistry();
+			new StandardCommands().registerCommands(registry);
+			for (CommandProvider provider : ServiceLoader.load(CommandProvider.class)) {
+				provider.registerCommands(registry);
+			}
+			defaultRegistry = registry;
+		}
+		return defaultRegistry;
+	}
+
+	protected CommandRegistry() {
+		myIDs = new HashMap<String, Integer>();
+		myConstructors = new CommandConstructor[DEFAULT_CAPACITY];
+		myNumArgs = new int[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Registers a command whose number of arguments is listed in NumArgsForCommands
+	 * @param commandName is language-independent name of the command, e.g. "Forward"
+	 */
+	protected void register(String commandName, CommandConstructor constructor) {
+		register(commandName, UNKNOWN, constructor);
+	}
+
+	/**
+	 * Registers a command (replacing any command registered earlier with the same name)
+	 * @param commandName is language-independent name of the command, e.g. "Forward"
+	 * @param numArgs is number of arguments the command takes
+	 */
+	protected void register(String commandName, int numArgs, CommandConstructor constructor) {
+		Integer id = myIDs.get(commandName);
+		if (id == null) {
+			id = myIDs.size();
+			myIDs.put(commandName, id);
+			if (id == myConstructors.length) {
+				myConstructors = Arrays.copyOf(myConstructors, id * 2);
+				myNumArgs = Arrays.copyOf(myNumArgs, id * 2);
+			}
+		}
+		myConstructors[id] = constructor;
+		myNumArgs[id] = numArgs;
+	}
+
+	/**
+	 * @param commandName is language-independent name of a command, e.g. "Forward"
+	 * @return interned id of the command, or UNKNOWN if it is not registered
+	 */
+	protected int getID(String commandName) {
+		Integer id = myIDs.get(commandName);
+		return (id == null) ? UNKNOWN : id;
+	}
+
+	/**
+	 * @param id is interned id of a command
+	 * @return constructor of the command
+	 */
+	protected CommandConstructor getConstructor(int id) {
+		return myConstructors[id];
+	}
+
+	/**
+	 * @param commandName is language-independent name of a command, e.g. "Forward"
+	 * @return number of arguments given when the command was registered, or UNKNOWN if none was
+	 */
+	protected int getNumArgs(String commandName) {
+		int id = getID(commandName);
+		return (id == UNKNOWN) ? UNKNOWN : myNumArgs[id];
+	}
+}
@@ -0,0 +1,118 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable symbol table of the built-in commands (e.g. "Forward", "Repeat"), loaded once from the
+ * NumArgsForCommands and NumBracketsControlFlow files. Each command name is interned to a small integer id,
+ * and the number of arguments/brackets of each command is stored in arrays indexed by that id, so the
+ * CommandTreeBuilder never needs to go back to a ResourceBundle while building trees.
+ *
+ */
+final class CommandSymbols {
+
+	public static final int UNKNOWN = -1;
+	private static final String TABLE_KEY_SEPARATOR = "|";
+	private static final Map<String, CommandSymbols> TABLES = new ConcurrentHashMap<String, CommandSymbols>();
+
+	private final Map<String, Integer> myIDs;
+	private final String[] myNames;
+	private final int[] myNumArgs;
+	private final int[] myNumBrackets;
+
+	/**
+	 * @param numArgsFileName is name of the ResourceBundle holding the number of arguments of each command
+	 * @param numBracketsFileName is name of the ResourceBundle holding the number of brackets of each control flow command
+	 * @return shared table for the given files
+	 */
+	protected static CommandSymbols forFiles(String numArgsFileName, String numBracketsFileName) {
+		String tableKey = numArgsFileName + TABLE_KEY_SEPARATOR + numBracketsFileName;
+		CommandSymbols table = TABLES.get(tableKey);
+		if (table == null) {
+			table = new CommandSymbols(ResourceBundle.getBundle(numArgsFileName), ResourceBundle.getBundle(numBracketsFileName));
+			TABLES.put(tableKey, table);
+		}
+		return table;
+	}
+
+	private CommandSymbols(ResourceBundle numArgs, ResourceBundle numBrackets) {
+		List<String> names = new ArrayList<String>();
+		Map<String, Integer> ids = new HashMap<String, Integer>();
+		internKeys(numArgs, names, ids);
+		internKeys(numBrackets, names, ids);
+		myIDs = Collections.unmodifiableMap(ids);
+		myNames = names.toArray(new String[names.size()]);
+		myNumArgs = readCounts(numArgs, UNKNOWN);
+		myNumBrackets = readCounts(numBrackets, 0);
+	}
+
+	private void internKeys(ResourceBundle resources, List<String> names, Map<String, Integer> ids) {
+		Enumeration<String> iter = resources.getKeys();
+		while (iter.hasMoreElements()) {
+			String key = iter.nextElement();
+			if (!ids.containsKey(key)) {
+				ids.put(key, names.size());
+				names.add(key);
+			}
+		}
+	}
+
+	private int[] readCounts(ResourceBundle resources, int defaultCount) {
+		int[] counts = new int[myNames.length];
+		Arrays.fill(counts, defaultCount);
+		Enumeration<String> iter = resources.getKeys();
+		while (iter.hasMoreElements()) {
+			String key = iter.nextElement();
+			counts[myIDs.get(key)] = Integer.parseInt(resources.getString(key).trim());
+		}
+		return counts;
+	}
+
+	/**
+	 * @param commandName is language-independent name of a command, e.g. "Forward"
+	 * @return interned id of the command, or UNKNOWN if it is not a built-in command
+	 */
+	protected int getID(String commandName) {
+		Integer id = myIDs.get(commandName);
+		return (id == null) ? UNKNOWN : id;
+	}
+
+	/**
+	 * @param id is interned id of a command
+	 * @return language-independent name of the command
+	 */
+	protected String getName(int id) {
+		return myNames[id];
+	}
+
+	/**
+	 * @param id is interned id of a command
+	 * @return number of arguments the command takes, or UNKNOWN if it is not listed
+	 */
+	protected int getNumArgs(int id) {
+		return (id == UNKNOWN) ? UNKNOWN : myNumArgs[id];
+	}
+
+	/**
+	 * @param id is interned id of a command
+	 * @return number of brackets of one kind the command's syntax includes (0 for non-control flow commands)
+	 */
+	protected int getNumBrackets(int id) {
+		return (id == UNKNOWN) ? 0 : myNumBrackets[id];
+	}
+
+	/**
+	 * @return number of interned commands
+	 */
+	protected int size() {
+		return myNames.length;
+	}
+}
@@ -1,8 +1,6 @@
 package interpreter;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javafx.beans.property.BooleanProperty;
@@ -12,64 +10,80 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
 
-/** 
+/**
  * @author Susie Choi
- * Third stage of the parsing process: building a tree in which each node represents an 
- * element of a Command (e.g. command, argument). Use by calling buildAndExecute method to 
- * build the command trees, which will build a tree for each individual command, and send 
- * each tree into the CommandTreeReader for the next stage of the parsing process. 
+ * Third stage of the parsing process: building a tree in which each node represents an
+ * element of a Command (e.g. command, argument). Use by calling buildAndExecute method to
+ * build the command trees, which will build a tree for each individual command, and send
+ * each tree into the CommandTreeReader for the next stage of the parsing process.
+ *
+ * Trees are built by a recursive-descent parser that reads the input once from left to right:
+ * each command reads as many arguments as it takes (see NumArgsForCommands), and control flow
+ * commands read their bracketed lists. Only nested expressions and lists recurse, so the depth
+ * of recursion depends on how deeply the input is nested rather than on its length.
  */
 
 class CommandTreeBuilder {
 
-	public static final String DEFAULT_NUM_ARGS_FNAME = "interpreter/NumArgsForCommands"; 
+	public static final String DEFAULT_NUM_ARGS_FNAME = "interpreter/NumArgsForCommands";
 	public static final String DEFAULT_NUM_BRACKETS_FNAME = "interpreter/NumBracketsControlFlow";
-	public static final String DEFAULT_COMMAND_IDENTIFIER = "Command";
-	public static final String DEFAULT_CONSTANT_IDENTIFIER = "Constant";
-	public static final String DEFAULT_BRACKET_IDENTIFIER = "Bracket";
-	public static final String DEFAULT_IF_IDENTIFIER = "If"; 
-	public static final String DEFAULT_IFELSE_IDENTIFIER = "IfElse"; 
+	public static final String DEFAULT_IF_IDENTIFIER = "If";
+	public static final String DEFAULT_IFELSE_IDENTIFIER = "IfElse";
 	public static final String DEFAULT_DOTIMES_IDENTIFIER = "DoTimes";
 	public static final String DEFAULT_REPEAT_IDENTIFIER = "Repeat";
 	public static final String DEFAULT_TELL_IDENTIFIER = "Tell";
 	public static final String DEFAULT_FOR_IDENTIFIER = "For";
 	public static final String DEFAULT_ASK_WITH_IDENTIFIER = "AskWith";
 	public static final String DEFAULT_ASK_IDENTIFIER = "Ask";
+	public static final String DEFAULT_MAKE_VARIABLE_IDENTIFIER = "MakeVariable";
 	public static final String DEFAULT_BRACKET_START_IDENTIFIER = "[";
 	public static final String DEFAULT_BRACKET_END_IDENTIFIER = "]";
 	public static final String DEFAULT_VAR_IDENTIFIER = ":";
+	public static final String DEFAULT_REPCOUNT_NAME = ":repcount";
 	public static final String DEFAULT_USERCOMMAND_IDENTIFIER = "MakeUserInstruction";
 	public static final String DEFAULT_USERCOMMAND_NAME = "UserInstruction";
-	protected static final String[] DEFAULT_DOUBLE_SUBSTITUTES = {"PenDown","PenUp","ShowTurtle","HideTurtle","Home","ClearScreen",
-			"XCoordinate","YCoordinate","Heading","IsPenDown","IsShowing","Pi", "ID", "Turtles"};
-	//	private CommandTreeReader myCommandTreeReader; 
-	private String myNumArgsFileName; 
-	private String myNumBracketsFileName;
-	private ArrayList<CommandNode> myCommandTrees; 
+	public static final String DEFAULT_BLOCK_IDENTIFIER = "Block";
+	private static final int NO_MATCH = -1;
+
+	private String myNumArgsFileName;
+	private CommandSymbols mySymbols;
+	private ArrayList<CommandNode> myCommandTrees;
 	private CommandTreeReader myCommandTreeReader;
-	private HashMap<String, String> myUserDefCommands; 
-	private HashMap<String, Integer> myUserDefCommandsNumArgs;
-	private Map<String, Double> myVariables;
-	private IntegerProperty myBackColor; 
-	private BooleanProperty myBackColorChangeHeard; 
-	private ArrayList<String> myDefaultDoubleSubstitutes;
-
-	protected CommandTreeBuilder(Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommandsNumArgs) {
-		this(DEFAULT_NUM_ARGS_FNAME, variables, userDefCommands, userDefCommandsNumArgs);
-	}
-
-	protected CommandTreeBuilder(String numArgsFileName, Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommandsNumArgs) {
-		myNumArgsFileName = numArgsFileName; 
-		myNumBracketsFileName = DEFAULT_NUM_BRACKETS_FNAME;
-		myCommandTrees = new ArrayList<CommandNode>();  
-		myCommandTreeReader = new CommandTreeReader(variables, userDefCommands, userDefCommandsNumArgs);
-		myUserDefCommands = (HashMap<String, String>)userDefCommands; 
-		myUserDefCommandsNumArgs = (HashMap<String, Integer>)userDefCommandsNumArgs;
+	private TreeOptimizer myTreeOptimizer;
+	private BytecodeCompiler myBytecodeCompiler;
+	private BytecodeInterpreter myBytecodeInterpreter;
+	private ProcedureCompiler myProcedureCompiler;
+	private Map<String, UserProcedure> myUserProcedures;
+	private IntegerProperty myBackColor;
+	private BooleanProperty myBackColorChangeHeard;
+	private Lexer myLexer;
+	private Token[] myInput;
+	private int[] myMatchingBrackets;
+	private int myIdx;
+	private Turtle myTurtles;
+	private Turtle myActiveTurtles;
+	private VariableTable myVariables;
+	private String[] myLocalNames;
+
+	protected CommandTreeBuilder(VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		this(DEFAULT_NUM_ARGS_FNAME, variables, userDefCommands, userProcedures);
+	}
+
+	protected CommandTreeBuilder(String numArgsFileName, VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		myNumArgsFileName = numArgsFileName;
+		mySymbols = CommandSymbols.forFiles(myNumArgsFileName, DEFAULT_NUM_BRACKETS_FNAME);
+		myLexer = new Lexer();
+		myCommandTrees = new ArrayList<CommandNode>();
+		myCommandTreeReader = new CommandTreeReader(variables, userDefCommands, userProcedures);
+		myTreeOptimizer = new TreeOptimizer(variables);
+		myBytecodeCompiler = new BytecodeCompiler(variables, userDefCommands, userProcedures);
+		myBytecodeInterpreter = new BytecodeInterpreter(myCommandTreeReader, variables);
+		myProcedureCompiler = new ProcedureCompiler(myCommandTreeReader);
 		myVariables = variables;
+		myUserProcedures = userProcedures;
 		myBackColor = new SimpleIntegerProperty(0);
 		myBackColorChangeHeard = new SimpleBooleanProperty(false);
 		setUpBackColorChangeListener();
-		myDefaultDoubleSubstitutes = new ArrayList<String>(Arrays.asList(DEFAULT_DOUBLE_SUBSTITUTES));
 	}
 
 	protected void setUpBackColorChangeListener() {
@@ -82,579 +96,409 @@ class CommandTreeBuilder {
 		});
 	}
 
+	/**
+	 * Builds a tree for each command in the input and, if shouldExecute, executes the trees in order
+	 * @param userInput is the language-independent words of the input, e.g. {"Forward", "50"}
+	 * @return return value of the last command executed (-1 if none were)
+	 */
 	protected double buildAndExecute(Turtle turtles, Turtle activeTurtles, String[] userInput, boolean shouldExecute) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-//		System.out.println("BEGINNING OF SENT IN INPUT -------------------------");
-//		for (String s : userInput) System.out.println(s);
-//		System.out.println("END OF SENT IN INPUT -------------------------");
-
-		double finalReturnVal = -1; 
-		myCommandTrees.clear(); 
-		int currIdx = 0;
-		//System.out.println("current user input: " + userInput[currIdx]);
-		if(myVariables.containsKey(userInput[currIdx])) {
-			userInput[currIdx] = myVariables.get(userInput[currIdx]).toString();
-		}
-		while(currIdx<userInput.length) {
-			try {
-				Double.parseDouble(userInput[currIdx]);
-				myCommandTrees.add(new CommandNode(userInput[currIdx], 0, turtles, activeTurtles));
-				currIdx++;
-			}
-			catch(NumberFormatException e) {
-				break;
-			}
-		}
-		if(!(currIdx>=userInput.length)) {
-			createCommandTree(turtles, activeTurtles, userInput, currIdx);
-			//System.out.println("command tree number: " + myCommandTrees.size());
-		}
-
-
-		//System.out.println("command tree number bigger: " + myCommandTrees.size());
-//		System.out.println("PRINTING OUT COMM TREES ------------------------------------");
-//		for (CommandNode n : myCommandTrees) {
-//			System.out.println(n.toString());
-//		}
-//		System.out.println("DONE PRINTING OUT COMM TREES --------------------------------");
+		return buildAndExecute(turtles, activeTurtles, myLexer.tokenize(String.join(" ", userInput)), shouldExecute);
+	}
 
-		//	System.out.println("number of command trees" + myCommandTrees.size());
+	/**
+	 * Builds a tree for each command in the input and, if shouldExecute, executes the trees in order
+	 * @param userInput is the language-independent tokens of the input (without comments), e.g. {"Forward", "50"}
+	 * @return return value of the last command executed (-1 if none were)
+	 */
+	protected double buildAndExecute(Turtle turtles, Turtle activeTurtles, Token[] userInput, boolean shouldExecute) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		List<CommandNode> commandTrees = build(turtles, activeTurtles, userInput);
 		if(shouldExecute) {
-			for (CommandNode commandTree : myCommandTrees) {
-				finalReturnVal = myCommandTreeReader.readAndExecute(commandTree);
-			}
+			return execute(commandTrees);
 		}
-		return finalReturnVal; 
+		return -1;
 	}
 
-	private CommandNode createCommandTree(Turtle turtles, Turtle activeTurtles, String[] userInput, int startIdx) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		if (startIdx >= userInput.length||(userInput[startIdx].equals(DEFAULT_BRACKET_END_IDENTIFIER))) { // || commandTypes[startIdx] == null //TODO fix this so not so obvious
-			//System.out.println("WARNING: CREATE COMMAND TREE RETURNING NULL");
-			return null; // TODO make this more detailed
-		}
-		//System.out.println("currCommand: " + userInput[startIdx]);
-		if(myVariables.containsKey(userInput[startIdx])) {
-			userInput[startIdx] = myVariables.get(userInput[startIdx]).toString();
-		}
-
-		String currCommand = userInput[startIdx]; 
-		try {
-			Double.parseDouble(currCommand);
-			return new CommandNode(currCommand, 0, turtles, activeTurtles); 
-		}
-		catch (NumberFormatException e) {
-			if (currCommand.equals(DEFAULT_IF_IDENTIFIER)) { // TODO deal with if "if" is not first 
-				parseIf(turtles, activeTurtles, userInput, startIdx); 
-				return null;
-			}
-			if (currCommand.equals(DEFAULT_IFELSE_IDENTIFIER)) {
-				parseIfElse(turtles, activeTurtles, userInput, startIdx); 
-				return null;
-			}
-			if (currCommand.equals(DEFAULT_USERCOMMAND_IDENTIFIER)) {
-				int startAfterTo = parseMakeUserCommand(turtles, activeTurtles, userInput, startIdx);
-				return createCommandTree(turtles, activeTurtles, userInput, startAfterTo);
-			}
-			if (myUserDefCommands.containsKey(currCommand)) {
-				parseUserCommand(turtles, activeTurtles, userInput, startIdx, myUserDefCommandsNumArgs.get(currCommand));
-				return null;
-			}
-			int numArgs = getNumArgs(currCommand);
-			CommandNode newParentNode = new CommandNode(currCommand, numArgs, turtles, activeTurtles);
-			while (newParentNode.getNumArgs() == 0 ) { // accounts for multiple 1-arg arguments before args that need child nodes 
-				if (startIdx >= userInput.length) {
-					return newParentNode; 
-				}
-				myCommandTrees.add(newParentNode);
-				startIdx++; 
-				if (startIdx < userInput.length) {
-					currCommand = userInput[startIdx]; 
-					numArgs = getNumArgs(currCommand);
-					newParentNode = new CommandNode(currCommand, numArgs, turtles, activeTurtles);
-				}
-				else {
-					return newParentNode;
-				}
-			}
-			if (myUserDefCommands.containsKey(currCommand)) {
-				parseUserCommand(turtles, activeTurtles, userInput, startIdx, myUserDefCommandsNumArgs.get(currCommand));
-				return null; // TODO FIX THIS 
-				//				return createCommandTree(turtle, userInput, startAfterUserCommand);
-			}
-			createAndSetChildren(turtles, activeTurtles, newParentNode, userInput, startIdx+1, true);
-			return newParentNode;
+	/**
+	 * Executes trees that were already built, in order
+	 * @return return value of the last command executed (-1 if none were)
+	 */
+	protected double execute(List<CommandNode> commandTrees) throws UnidentifiedCommandException {
+		double finalReturnVal = -1;
+		for (CommandNode commandTree : commandTrees) {
+			finalReturnVal = myCommandTreeReader.readAndExecute(commandTree);
 		}
+		return finalReturnVal;
 	}
 
-	// THIS IS THE RIGHT ONE
-	private void createAndSetChildren(Turtle turtles, Turtle activeTurtles, CommandNode parent, String[] userInput, int currIdx, boolean addToTrees) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		//int currIdxNonRepeat = currIdx + 1; CHANGED THIS
-		if ((currIdx) >= userInput.length) { //base case if out of bounds
-			if (addToTrees) {
-				myCommandTrees.add(parent);
-			}
-			return;
-		}
-		if (currIdx >= 1) {
-			if(userInput[currIdx-1].equals(DEFAULT_REPEAT_IDENTIFIER)) { //CHANGED CURRIDX-1
-				int afterRepeat = createAndSetRepeatChildren(turtles, activeTurtles, parent, userInput, currIdx, addToTrees);
-				createCommandTree(turtles, activeTurtles, userInput, afterRepeat);
-				return;
-			}
-			if(userInput[currIdx-1].equals(DEFAULT_DOTIMES_IDENTIFIER)) { //CHANGED CURRIDX-1
-				int afterDoTimes = createAndSetDoTimesChildren(turtles, activeTurtles, parent, userInput, currIdx, addToTrees);
-				createCommandTree(turtles, activeTurtles, userInput, afterDoTimes);
-				return;
-			}
-			if(userInput[currIdx-1].equals(DEFAULT_FOR_IDENTIFIER)) { //CHANGED CURRIDX-1
-				int afterFor = createAndSetForChildren(turtles, activeTurtles, parent, userInput, currIdx, addToTrees);
-				createCommandTree(turtles, activeTurtles, userInput, afterFor);
-				return;
-			}
-			if (userInput[currIdx-1].equals(DEFAULT_IF_IDENTIFIER)) {  
-				parseIf(turtles, activeTurtles, userInput, currIdx); 
-				return;
-			}
-			if (userInput[currIdx-1].equals(DEFAULT_IFELSE_IDENTIFIER)) {
-				parseIfElse(turtles, activeTurtles, userInput, currIdx); 
-				return;
-			}
-			if(userInput[currIdx-1].equals(DEFAULT_TELL_IDENTIFIER)) {
-				int startAfterTell = parseTell(turtles, activeTurtles, userInput, currIdx, addToTrees, parent); 
-				createCommandTree(turtles, activeTurtles, userInput, startAfterTell);
-				return;
-			}
-			if(userInput[currIdx-1].equals(DEFAULT_ASK_IDENTIFIER)||userInput[currIdx-1].equals(DEFAULT_ASK_WITH_IDENTIFIER)) {
-				int startAfterAsk = parseAsks(turtles, activeTurtles, userInput, currIdx, addToTrees, parent); 
-				System.out.println("SHOULD BE TRYING TO MAKE COMMAND TREE");
-				createCommandTree(turtles, activeTurtles, userInput, startAfterAsk);
-				return;
-			}
+	/**
+	 * Executes trees that were already built, in order, on the given turtles rather than the ones they were built with
+	 * @return return value of the last command executed (-1 if none were)
+	 */
+	protected double execute(List<CommandNode> commandTrees, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		double finalReturnVal = -1;
+		for (CommandNode commandTree : commandTrees) {
+			finalReturnVal = myCommandTreeReader.readAndExecute(commandTree, turtles, activeTurtles);
 		}
+		return finalReturnVal;
+	}
 
-
-		try {
-			Double.parseDouble(userInput[currIdx]);
-			CommandNode newChildNode = new CommandNode(userInput[currIdx], 0, turtles, activeTurtles);
-			parent.addChild(newChildNode);
-			if (parent.getNumChildren() < parent.getNumArgs()) { 
-				createAndSetChildren(turtles, activeTurtles, parent, userInput, currIdx+1, addToTrees);
-			} 
-			else {
-				if (addToTrees) {
-					myCommandTrees.add(parent);
-				}
-				createCommandTree(turtles, activeTurtles, userInput, currIdx+1);
-			}
-			return; 
-		} 
-		catch (NumberFormatException e) {
-			if (myDefaultDoubleSubstitutes.contains(userInput[currIdx]) || String.valueOf(userInput[currIdx].charAt(0)).equals(DEFAULT_VAR_IDENTIFIER)) {
-				CommandNode newChildNode = new CommandNode(userInput[currIdx], 0, turtles, activeTurtles);
-				parent.addChild(newChildNode);
-				if (parent.getNumChildren() < parent.getNumArgs()) { 
-					createAndSetChildren(turtles, activeTurtles, parent, userInput, currIdx+1, addToTrees);
-				} 
-				else {
-					if (addToTrees) {
-						myCommandTrees.add(parent);
-					}
-					createCommandTree(turtles, activeTurtles, userInput, currIdx+1);
-				}
-				return; 
-			}
-			for (int idx = currIdx+1; idx < userInput.length; idx++) { 
-				try {
-					Double.parseDouble(userInput[idx]);
-					CommandNode newChildNode = new CommandNode(userInput[idx], 0, turtles, activeTurtles);
-					int numArgs = getNumArgs(userInput[idx-1]);
-					CommandNode newCommandNode = new CommandNode(userInput[idx-1], numArgs, newChildNode, turtles, activeTurtles);
-					for (int backtrack = idx-2; backtrack >= currIdx; backtrack--) { 
-						int backTrackNumArgs = getNumArgs(userInput[backtrack]);
-						CommandNode backtrackCommandNode = new CommandNode(userInput[backtrack], backTrackNumArgs, newCommandNode, turtles, activeTurtles);
-						newCommandNode = backtrackCommandNode; 
-					}
-
-					parent.addChild(newCommandNode);
-					if (parent.getNumChildren() == parent.getNumArgs() && addToTrees && !myCommandTrees.contains(parent)) {
-						myCommandTrees.add(parent);
-					}
-					if (newCommandNode.getNumChildren() < newCommandNode.getNumArgs()) { 
-						createAndSetChildren(turtles, activeTurtles, newCommandNode, userInput, idx+1, false);
-					}
-					if (parent.getNumChildren() < parent.getNumArgs()) { 
-						createAndSetChildren(turtles, activeTurtles, parent, userInput, idx+1, addToTrees);
-					}
-					else {
-						createCommandTree(turtles, activeTurtles, userInput, idx+1);
-					}
-					return; 
-				} 
-				catch (NumberFormatException e1) {
-					if (myDefaultDoubleSubstitutes.contains(userInput[idx]) || String.valueOf(userInput[idx].charAt(0)).equals(DEFAULT_VAR_IDENTIFIER)) {
-						CommandNode newChildNode = new CommandNode(userInput[idx], turtles, activeTurtles);
-						int numArgs = getNumArgs(userInput[idx-1]);
-						//						System.out.println("parent to string"+parent.toString());
-						if (numArgs == 0) {
-							if (parent.getNumChildren() == parent.getNumArgs() && addToTrees && !myCommandTrees.contains(parent)) { // TODO check this logic
-								myCommandTrees.add(parent);
-							} 
-							return;
-						}
-						CommandNode newCommandNode = new CommandNode(userInput[idx-1], numArgs, newChildNode, turtles, activeTurtles);
-						if (newCommandNode.getNumChildren() < newCommandNode.getNumArgs()) { 
-							createAndSetChildren(turtles, activeTurtles, newCommandNode, userInput, idx+1, false);
-						}
-						parent.addChild(newCommandNode);
-						if (parent.getNumChildren() == parent.getNumArgs() && addToTrees && !myCommandTrees.contains(parent)) {
-							myCommandTrees.add(parent);
-						}
-						if (newCommandNode.getNumChildren() < newCommandNode.getNumArgs()) { 
-							createAndSetChildren(turtles, activeTurtles, newCommandNode, userInput, idx+1, false);
-						}
-						if (parent.getNumChildren() < parent.getNumArgs()) { 
-							createAndSetChildren(turtles, activeTurtles, parent, userInput, idx+1, addToTrees);
-						}
-						else {
-							createCommandTree(turtles, activeTurtles, userInput, idx+1);
-						}
-						return; 
-					}
-					else {
-						continue;
-					}
-				}
-			}
-		}
+	/**
+	 * Compiles trees that were already built for the BytecodeInterpreter
+	 */
+	protected BytecodeProgram compileBytecode(List<CommandNode> commandTrees) {
+		return compileBytecode(commandTrees, myVariables.getLocalNames());
 	}
 
-	private int parseAsks(Turtle turtles, Turtle activeTurtles, String[] userInput, int currIdx, boolean addToTrees, CommandNode parent) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		if (addToTrees) {
-			myCommandTrees.add(parent);
-		}
-		currIdx++;
-		for(int k = 0; k<2; k+=1) {
-			int currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, 1);
-			String[] ids = Arrays.copyOfRange(userInput, currIdx, currIdxCopy-1);
-			String idString = String.join(" ", ids);
-			CommandNode idNode = new CommandNode(idString, turtles, activeTurtles);
-			parent.addChild(idNode);
-			currIdx = currIdxCopy+1;
-		}
-		System.out.println("currIdx being used: " + currIdx);
-		return currIdx-1;
+	/**
+	 * Compiles the body of a user-defined command, built with the given names of its parameters
+	 */
+	protected BytecodeProgram compileBytecode(List<CommandNode> commandTrees, String[] localNames) {
+		return myBytecodeCompiler.compile(commandTrees, localNames);
 	}
 
-	private int parseIf(Turtle turtles, Turtle activeTurtles, String[] userInput, int ifIdx) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		int ifExprEndSearch = ifIdx; 
-		while (! userInput[ifExprEndSearch].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			ifExprEndSearch++; 
-		}
-		// ifExprEndSearch is now at "["
-		int ifBodyEndSearch = ifExprEndSearch; 
-		while (! userInput[ifBodyEndSearch].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			ifBodyEndSearch++; 
-		}
-		// ifBodyEndSearch is now at "]"
-		String[] ifExpr = Arrays.copyOfRange(userInput, ifIdx+1, ifExprEndSearch);
+	/**
+	 * Runs a program compiled by compileBytecode on the given turtles
+	 * @return return value of the last command executed (-1 if none were)
+	 */
+	protected double executeBytecode(BytecodeProgram program, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return myBytecodeInterpreter.execute(program, turtles, activeTurtles);
+	}
 
-		String[] ifBody = Arrays.copyOfRange(userInput, ifExprEndSearch+1, ifBodyEndSearch);
+	/**
+	 * Runs the body of a user-defined command with the BytecodeInterpreter (see UserProcedure.call)
+	 * @return return value of the last command of the body
+	 */
+	protected double executeCall(UserProcedure procedure, double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return myBytecodeInterpreter.call(procedure, args, turtles, activeTurtles);
+	}
 
-		String ifCommand = userInput[ifIdx]; 
-		int numArgs = getNumArgs(ifCommand);
-		CommandNode ifCommandNode = new CommandNode(userInput[ifIdx], numArgs, turtles, activeTurtles);
+	protected CommandTreeReader getCommandTreeReader() {
+		return myCommandTreeReader;
+	}
 
-		ArrayList<String> ifBodyString = new ArrayList<String>(Arrays.asList(ifBody)); 
-		String commandNodeInfo = String.join(" ", ifBodyString);
-		ifCommandNode.addChild(new CommandNode(commandNodeInfo, turtles, activeTurtles));
+	/**
+	 * Translates a program compiled by compileBytecode (the body of a user-defined command, or
+	 * a hot top-level program) into a JVM class
+	 * @return instance of the class, or null if the program cannot be translated
+	 */
+	protected CompiledProcedure compileProcedure(BytecodeProgram program) {
+		return myProcedureCompiler.compile(program);
+	}
 
-		createAndSetChildren(turtles, activeTurtles, ifCommandNode, ifExpr, 0, true);
-		return ifBodyEndSearch+1;
+	/**
+	 * Builds a tree for each command in the input without executing them
+	 * @param userInput is the language-independent words of the input, e.g. {"Forward", "50"}
+	 * @return the trees, in order of execution
+	 */
+	protected List<CommandNode> build(Turtle turtles, Turtle activeTurtles, String[] userInput) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		return build(turtles, activeTurtles, myLexer.tokenize(String.join(" ", userInput)));
+	}
 
+	/**
+	 * Builds the body of a user-defined command, whose parameters are resolved to slots of its VariableFrame
+	 * @param userInput is the language-independent words of the body, e.g. {"Forward", ":length"}
+	 * @param localNames is names of the command's parameters, e.g. {":length"}
+	 * @return the trees, in order of execution
+	 */
+	protected List<CommandNode> build(Turtle turtles, Turtle activeTurtles, String[] userInput, String[] localNames) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		return build(turtles, activeTurtles, myLexer.tokenize(String.join(" ", userInput)), localNames);
 	}
 
-	private int parseIfElse(Turtle turtles, Turtle activeTurtles, String[] userInput, int ifIdx) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		int ifExprEndSearch = ifIdx; 
-		while (! userInput[ifExprEndSearch].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			ifExprEndSearch++; 
-		}
-		// ifExprEndSearch is now at first "["
-		int ifBodyEndSearch = ifExprEndSearch; 
-		while (! userInput[ifBodyEndSearch].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			ifBodyEndSearch++; 
-		}
-		// ifBodyEndSearch is now at first "]"
-		int elseBodyEndSearch = ifBodyEndSearch+2; // skipping over [ 
-		while (! userInput[elseBodyEndSearch].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			elseBodyEndSearch++; 
-		}
-		String[] ifExpr = Arrays.copyOfRange(userInput, ifIdx+1, ifExprEndSearch);
-		String[] ifBody = Arrays.copyOfRange(userInput, ifExprEndSearch+1, ifBodyEndSearch);
-		String[] elseBody = Arrays.copyOfRange(userInput, ifBodyEndSearch+2, elseBodyEndSearch);
+	/**
+	 * Builds a tree for each command in the input without executing them (user-defined commands are still
+	 * defined as soon as they are read, so that the rest of the input can use them), then optimizes the trees
+	 * (see TreeOptimizer)
+	 * @param userInput is the language-independent tokens of the input (without comments), e.g. {"Forward", "50"}
+	 * @return the trees, in order of execution
+	 */
+	protected List<CommandNode> build(Turtle turtles, Turtle activeTurtles, Token[] userInput) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		return build(turtles, activeTurtles, userInput, myVariables.getLocalNames());
+	}
 
-		String ifCommand = userInput[ifIdx]; 
-		int numArgs = getNumArgs(ifCommand);
-		CommandNode ifElseCommandNode = new CommandNode(userInput[ifIdx], numArgs, turtles, activeTurtles);
+	private List<CommandNode> build(Turtle turtles, Turtle activeTurtles, Token[] userInput, String[] localNames) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		myLocalNames = localNames;
+		myTurtles = turtles;
+		myActiveTurtles = activeTurtles;
+		myInput = userInput;
+		myMatchingBrackets = matchBrackets(myInput);
+		myIdx = 0;
+		myCommandTrees = new ArrayList<CommandNode>();
+		while (myIdx < myInput.length) {
+			myCommandTrees.add(parseExpression());
+		}
+		myCommandTrees = new ArrayList<CommandNode>(myTreeOptimizer.optimize(myCommandTrees));
+		return myCommandTrees;
+	}
 
-		ArrayList<String> ifBodyList = new ArrayList<String>(Arrays.asList(ifBody)); 
-		String ifCommandNodeInfo = String.join(" ", ifBodyList);
-		ifElseCommandNode.addChild(new CommandNode(ifCommandNodeInfo, turtles, activeTurtles));
+	protected List<CommandNode> getCommandTrees(){
+		return myCommandTrees;
+	}
 
-		ArrayList<String> elseBodyList = new ArrayList<String>(Arrays.asList(elseBody));
-		String elseCommandNodeInfo = String.join(" ", elseBodyList);
-		ifElseCommandNode.addChild(new CommandNode(elseCommandNodeInfo, turtles, activeTurtles));
+	/**
+	 * Reads one complete command (with all of its arguments) or value, starting at the current token
+	 * @return root of the tree for the command or value
+	 */
+	private CommandNode parseExpression() throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		Token token = myInput[myIdx++];
+		switch (token.getType()) {
+		case CONSTANT:
+			return new CommandNode(token, myTurtles, myActiveTurtles);
+		case VARIABLE:
+			return new CommandNode(resolveVariable(token.getText()), false, myTurtles, myActiveTurtles);
+		case COMMAND:
+			return parseCommand(token.getText());
+		default:
+			throw new BadFormatException(token.getText());
+		}
+	}
 
-		createAndSetChildren(turtles, activeTurtles, ifElseCommandNode, ifExpr, 0, true);
-		return elseBodyEndSearch+1;
+	/**
+	 * @param name is name of a variable, e.g. ":distance"
+	 * @return the parameter with that name if the input is the body of a user-defined command that has one,
+	 * otherwise the global variable with that name
+	 */
+	private Variable resolveVariable(String name) {
+		return myVariables.resolve(name, myLocalNames);
 	}
 
-	private int createAndSetDoTimesChildren(Turtle turtles,  Turtle activeTurtles, CommandNode parent, String[] userInput, int currIdx, boolean addToTrees) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		if (addToTrees) {
-			myCommandTrees.add(parent);
+	/**
+	 * Reads a command (with all of its arguments), starting after its name
+	 * @param currToken is the language-independent name of the command, e.g. "Forward"
+	 * @return root of the tree for the command
+	 */
+	private CommandNode parseCommand(String currToken) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		if (currToken.equals(DEFAULT_REPEAT_IDENTIFIER)) {
+			return parseRepeat(currToken);
 		}
-		//adding temporary variable name to children
-		if(userInput[currIdx].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			currIdx++;
-			parent.addChild(new CommandNode(userInput[currIdx], turtles, activeTurtles));
-			currIdx++;
+		if (currToken.equals(DEFAULT_DOTIMES_IDENTIFIER) || currToken.equals(DEFAULT_FOR_IDENTIFIER)) {
+			return parseLoop(currToken);
 		}
-		int currIdxCopy = currIdx;  
-		currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, 1);
-		//adding command info to children
-		parent.addChild(createCommandTree(turtles, activeTurtles, Arrays.copyOfRange(userInput, currIdx, currIdxCopy), 0));
-		currIdxCopy++;
-		currIdx = currIdxCopy;
-		//adding string info to children
-		if(userInput[currIdx-1].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			String repeatedCommand = userInput[currIdx];
-			int repeatCount = 1;
-			repeatCount = repeatCount + getNumBrackets(userInput[currIdx]);
-			currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, repeatCount);
-			for(int k = currIdx+1; k < currIdxCopy-1; k+=1) {
-				repeatedCommand = String.join(" ", repeatedCommand, userInput[k]);
-			}
-			parent.addChild(new CommandNode(repeatedCommand, turtles, activeTurtles));
-
+		if (currToken.equals(DEFAULT_IF_IDENTIFIER) || currToken.equals(DEFAULT_IFELSE_IDENTIFIER)) {
+			return parseConditional(currToken);
 		}
-		else {
-			throw new UnidentifiedCommandException("Dotimes syntax incorrect");
+		if (currToken.equals(DEFAULT_TELL_IDENTIFIER) || currToken.equals(DEFAULT_ASK_IDENTIFIER) || currToken.equals(DEFAULT_ASK_WITH_IDENTIFIER)) {
+			return parseTurtleCommand(currToken);
 		}
-		//currIdx++;
-		return currIdx;
-	}
-	private int createAndSetRepeatChildren(Turtle turtles, Turtle activeTurtles, CommandNode parent, String[] userInput, int currIdx, boolean addToTrees) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		//myCommandTrees.add(parent);
-		//System.out.println("command tree number: " + myCommandTrees.size());
-		if (addToTrees) {
-			myCommandTrees.add(parent);
+		if (currToken.equals(DEFAULT_USERCOMMAND_IDENTIFIER)) {
+			return parseMakeUserCommand(currToken);
 		}
-		parent.addChild(new CommandNode(":repcount", turtles, activeTurtles));
-		//adding temporary variable name to children
-		int currIdxCopy = currIdx;
-		currIdxCopy++;
-		try {
-			currIdxCopy = searchForBracket(currIdxCopy, userInput, DEFAULT_BRACKET_START_IDENTIFIER, 1);
+		if (currToken.equals(DEFAULT_MAKE_VARIABLE_IDENTIFIER)) {
+			return parseMakeVariable(currToken);
 		}
-		catch(NullPointerException e) {
-			throw new UnidentifiedCommandException("Repeat syntax is not correct.");
+		if (myUserProcedures.containsKey(currToken)) {
+			return parseUserCommand(currToken);
 		}
-		//adding command info to children
-		//System.out.print("command info" + String.join(" ", Arrays.copyOfRange(userInput, currIdx, currIdxCopy-1)));
-		parent.addChild(createCommandTree(turtles, activeTurtles, Arrays.copyOfRange(userInput, currIdx, currIdxCopy-1), 0));
-		currIdx = currIdxCopy - 1;
-		//adding string info to children
-		if(userInput[currIdx].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			int repeatCount = 1;
-			currIdx++;
-			String repeatedCommand = userInput[currIdx];
-			repeatCount = repeatCount + getNumBrackets(userInput[currIdx]);
-			currIdx++;
-			currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, repeatCount);
-			for(int k = currIdx; k < currIdxCopy-1; k+=1) {
-				repeatedCommand = String.join(" ", repeatedCommand, userInput[k]);
-			}
-			currIdx = currIdxCopy;
-			//System.out.println("should be bracket" + userInput[currIdx-1]);
-			if(!(userInput[currIdx-1].equals(DEFAULT_BRACKET_END_IDENTIFIER))) {
-				throw new BadFormatException("Brackets are messed up in Repeat");
-			}
-			parent.addChild(new CommandNode(repeatedCommand, turtles, activeTurtles));
-		}
-		else {
-			throw new UnidentifiedCommandException("Repeat syntax incorrect");
+		CommandNode commandNode = new CommandNode(currToken, getNumArgs(currToken), myTurtles, myActiveTurtles);
+		parseArguments(commandNode, commandNode.getNumArgs());
+		return commandNode;
+	}
+
+	/**
+	 * Reads up to numArgs arguments of parent, stopping early at the end of the input or of the enclosing list
+	 * (CommandTreeReader reports the resulting incomplete tree)
+	 */
+	private void parseArguments(CommandNode parent, int numArgs) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		for (int k = 0; k < numArgs && hasNextArgument(); k++) {
+			parent.addChild(parseExpression());
 		}
-		//currIdx++;
-		return currIdx;
 	}
 
-	private int createAndSetForChildren(Turtle turtles, Turtle activeTurtles, CommandNode parent, String[] userInput, int currIdx, boolean addToTrees) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		myCommandTrees.add(parent);
-		if(!userInput[currIdx].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			throw new UnidentifiedCommandException("No starting bracket for For.");
+	private CommandNode parseRepeat(String repeatCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		CommandNode repeatNode = new CommandNode(repeatCommand, getNumArgs(repeatCommand), myTurtles, myActiveTurtles);
+		repeatNode.addChild(new CommandNode(resolveVariable(DEFAULT_REPCOUNT_NAME), true, myTurtles, myActiveTurtles));
+		parseArguments(repeatNode, 1);
+		repeatNode.addChild(parseBlock(repeatCommand));
+		return repeatNode;
+	}
+
+	/**
+	 * Reads a DoTimes or For loop: a list holding the loop variable followed by the expression(s) for
+	 * its range, then the body
+	 */
+	private CommandNode parseLoop(String loopCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		CommandNode loopNode = new CommandNode(loopCommand, getNumArgs(loopCommand), myTurtles, myActiveTurtles);
+		int listEnd = openList(loopCommand);
+		if (myIdx < listEnd) {
+			loopNode.addChild(new CommandNode(resolveVariable(myInput[myIdx++].getText()), true, myTurtles, myActiveTurtles));
+		}
+		while (myIdx < listEnd) {
+			loopNode.addChild(parseExpression());
+		}
+		myIdx = listEnd+1;
+		loopNode.addChild(parseBlock(loopCommand));
+		return loopNode;
+	}
+
+	/**
+	 * Reads an If or IfElse: its condition, then one or two lists of commands (kept as text, to be
+	 * built only if they are executed)
+	 */
+	private CommandNode parseConditional(String ifCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		CommandNode ifNode = new CommandNode(ifCommand, getNumArgs(ifCommand), myTurtles, myActiveTurtles);
+		CommandNode ifExpr = null;
+		if (hasNextArgument()) {
+			ifExpr = parseExpression();
 		}
-		//adding variable child
-		currIdx++;
-		parent.addChild(new CommandNode(userInput[currIdx], turtles, activeTurtles));
-		currIdx++;
-		int currIdxCopy = currIdx;
-		//adding command children for start/end/increment
-		currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, 1)-1;
-		CommandTreeBuilder tempBuilder = new CommandTreeBuilder(myNumArgsFileName, myVariables, myUserDefCommands, myUserDefCommandsNumArgs);
-		tempBuilder.buildAndExecute(turtles, activeTurtles, Arrays.copyOfRange(userInput, currIdx, currIdxCopy), false);
-		List<CommandNode> discreteCommands = tempBuilder.getCommandTrees();
-		for(CommandNode n: discreteCommands) {
-			parent.addChild(n);
+		for (int k = 0; k < getNumBrackets(ifCommand); k++) {
+			ifNode.addChild(parseListAsText(ifCommand));
 		}
-
-		// should be first element after end bracket
-		currIdx = currIdxCopy + 1;
-		if(userInput[currIdx].equals(DEFAULT_BRACKET_START_IDENTIFIER)) {
-			int repeatCount = 1;
-			currIdx++;
-			//			System.out.println("beginnning of repeated command: " + userInput[currIdx]);
-			String repeatedCommand = userInput[currIdx];
-			repeatCount = repeatCount + getNumBrackets(userInput[currIdx]);
-			currIdx++;
-			currIdxCopy = searchForBracket(currIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, repeatCount);
-			for(int k = currIdx; k < currIdxCopy-1; k+=1) {
-				repeatedCommand = String.join(" ", repeatedCommand, userInput[k]);
-			}
-			currIdx = currIdxCopy;
-			if(!(userInput[currIdx-1].equals(DEFAULT_BRACKET_END_IDENTIFIER))) {
-				throw new BadFormatException("Brackets are messed up in loop");
-			}
-			//add repeated command string last
-			parent.addChild(new CommandNode(repeatedCommand, turtles, activeTurtles));
+		if (ifExpr != null) {
+			ifNode.addChild(ifExpr);
 		}
-		else {
-			throw new UnidentifiedCommandException("Repeat syntax incorrect");
+		return ifNode;
+	}
+
+	/**
+	 * Reads a Tell, Ask or AskWith, whose arguments are all lists (kept as text)
+	 */
+	private CommandNode parseTurtleCommand(String turtleCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		CommandNode turtleCommandNode = new CommandNode(turtleCommand, getNumArgs(turtleCommand), myTurtles, myActiveTurtles);
+		for (int k = 0; k < turtleCommandNode.getNumArgs(); k++) {
+			turtleCommandNode.addChild(parseListAsText(turtleCommand));
 		}
-		//currIdx++;
-		return currIdx;
+		return turtleCommandNode;
+	}
 
+	/**
+	 * Reads the definition of a user-defined command ("to name [ vars ] [ commands ]") and defines the
+	 * command right away, so that the rest of the input can use it
+	 */
+	private CommandNode parseMakeUserCommand(String makeCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		if (!hasNextArgument()) {
+			throw new MissingInformationException(makeCommand);
+		}
+		CommandNode userCommandNameNode = new CommandNode(myInput[myIdx++].getText(), myTurtles, myActiveTurtles);
+		int contentStart = myIdx;
+		CommandNode varsNode = parseListAsText(makeCommand);
+		parseListAsText(makeCommand);
+		CommandNode userCommandContent = new CommandNode(joinInput(contentStart, myIdx), myTurtles, myActiveTurtles);
+
+		CommandNode userCommandNode = new CommandNode(makeCommand, getNumArgs(makeCommand), userCommandNameNode, myTurtles, myActiveTurtles);
+		userCommandNode.addChild(varsNode);
+		userCommandNode.addChild(userCommandContent);
+		myCommandTreeReader.readAndExecute(userCommandNode);
+		return userCommandNode;
 	}
-	protected List<CommandNode> getCommandTrees(){
-		return myCommandTrees;
+
+	/**
+	 * Reads a MakeVariable, whose first argument is the name of the variable rather than its value
+	 */
+	private CommandNode parseMakeVariable(String makeCommand) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		CommandNode makeVariableNode = new CommandNode(makeCommand, getNumArgs(makeCommand), myTurtles, myActiveTurtles);
+		if (hasNextArgument() && myInput[myIdx].getType() == TokenType.VARIABLE) {
+			makeVariableNode.addChild(new CommandNode(resolveVariable(myInput[myIdx++].getText()), true, myTurtles, myActiveTurtles));
+		}
+		parseArguments(makeVariableNode, makeVariableNode.getNumArgs() - makeVariableNode.getNumChildren());
+		return makeVariableNode;
 	}
 
-	private int parseMakeUserCommand(Turtle turtles, Turtle activeTurtles, String[] userInput, int startIdx) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		int endToIdx = startIdx; 
-		while (! userInput[endToIdx].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			endToIdx++; 
-		} // endToIdx is at FIRST ']' 
-		String[] varsArray = Arrays.copyOfRange(userInput, startIdx+3, endToIdx);
-		CommandNode varsNode = new CommandNode(String.join(" ", varsArray), turtles, activeTurtles); 
+	/**
+	 * Reads a call of a user-defined command and its arguments
+	 */
+	private CommandNode parseUserCommand(String userCommandName) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		int numArgs = myUserProcedures.get(userCommandName).getNumParams();
+		CommandNode userCommandNameNode = new CommandNode(userCommandName, myTurtles, myActiveTurtles);
+		CommandNode userCommandNode = new CommandNode(DEFAULT_USERCOMMAND_NAME, numArgs+1, userCommandNameNode, myTurtles, myActiveTurtles);
+		parseArguments(userCommandNode, numArgs);
+		if (userCommandNode.getNumChildren() < numArgs+1) {
+			throw new UnidentifiedCommandException("The command: " + userCommandName + " does not have the proper number of arguemts.");
+		}
+		return userCommandNode;
+	}
 
-		int finalEndToIdx = endToIdx+1;
-		while (! userInput[finalEndToIdx].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			finalEndToIdx++; 
-		} // finalEndToIdx is at FINAL ']'
+	/**
+	 * Reads a bracketed list of commands (e.g. a loop body), building each of its commands once so that
+	 * the list does not need to be re-parsed each time it is executed
+	 * @return CommandNode whose children are the command trees of the list, in order
+	 */
+	private CommandNode parseBlock(String command) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		int listEnd = openList(command);
+		List<CommandNode> blockTrees = new ArrayList<CommandNode>();
+		while (myIdx < listEnd) {
+			blockTrees.add(parseExpression());
+		}
+		myIdx = listEnd+1;
+		return new CommandNode(DEFAULT_BLOCK_IDENTIFIER, blockTrees.size(), blockTrees, myTurtles, myActiveTurtles, false);
+	}
+
+	/**
+	 * Reads a bracketed list without building it
+	 * @return CommandNode holding the contents of the list as text
+	 */
+	private CommandNode parseListAsText(String command) throws BadFormatException {
+		int listEnd = openList(command);
+		String listText = joinInput(myIdx, listEnd);
+		myIdx = listEnd+1;
+		return new CommandNode(listText, myTurtles, myActiveTurtles);
+	}
 
-		int endCommandContent = finalEndToIdx;
-		if (finalEndToIdx == userInput.length-1 || !userInput[finalEndToIdx+1].equals(DEFAULT_BRACKET_END_IDENTIFIER)) {
-			endCommandContent = finalEndToIdx+1; 
+	/**
+	 * Moves past the "[" that must come next for command
+	 * @return index of the matching "]"
+	 */
+	private int openList(String command) throws BadFormatException {
+		if (myIdx >= myInput.length || myInput[myIdx].getType() != TokenType.BRACKET_START) {
+			throw new BadFormatException(command + " needs " + DEFAULT_BRACKET_START_IDENTIFIER);
 		}
-		else {
-			endCommandContent = finalEndToIdx+2;
+		int listEnd = myMatchingBrackets[myIdx];
+		if (listEnd == NO_MATCH) {
+			throw new BadFormatException(DEFAULT_BRACKET_START_IDENTIFIER);
 		}
+		myIdx++;
+		return listEnd;
+	}
 
-		String[] commandContent = Arrays.copyOfRange(userInput, startIdx+2, endCommandContent);
-		String userCommandString = String.join(" ", commandContent);
-		CommandNode userCommandContent = new CommandNode(userCommandString, turtles, activeTurtles);
-
-		String userCommandName = userInput[startIdx+1];
-		CommandNode userCommandNameNode = new CommandNode(userCommandName, turtles, activeTurtles);
+	/**
+	 * @return true if the next token can start an argument (i.e. neither the input nor the enclosing list has ended)
+	 */
+	private boolean hasNextArgument() {
+		return myIdx < myInput.length && myInput[myIdx].getType() != TokenType.BRACKET_END;
+	}
 
-		CommandNode userCommandNode = new CommandNode(userInput[startIdx], getNumArgs(userInput[startIdx]), userCommandNameNode, turtles, activeTurtles);
-		userCommandNode.addChild(varsNode);
-		userCommandNode.addChild(userCommandContent);
-		myCommandTreeReader.readAndExecute(userCommandNode);
-		myCommandTrees.add(userCommandNode);
-
-		return endCommandContent; 
-
-	}
-	private int parseTell(Turtle turtles, Turtle activeTurtles, String[] userInput, int startIdx, boolean addToTrees, CommandNode parent) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		startIdx++;
-		int endIdx = searchForBracket(startIdx, userInput, DEFAULT_BRACKET_END_IDENTIFIER, 1);
-		String[] idStringArray = Arrays.copyOfRange(userInput, startIdx, endIdx-1);
-		String idString = String.join(" ", idStringArray);
-		CommandNode idNode = new CommandNode(idString, turtles, activeTurtles);
-		CommandNode tellNode = new CommandNode(DEFAULT_TELL_IDENTIFIER, 1, turtles, activeTurtles);
-		tellNode.addChild(idNode);
-		myCommandTrees.add(tellNode);
-		return endIdx;
-	}
-
-	private void parseUserCommand(Turtle turtles, Turtle activeTurtles, String[] userInput, int startIdx, int numArgs) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		String userCommandName = userInput[startIdx];
-		CommandNode userCommandNameNode = new CommandNode(userCommandName, numArgs, turtles, activeTurtles, true); 
-		int treesStartSize = myCommandTrees.size(); 
-		createAndSetChildren(turtles, activeTurtles, userCommandNameNode, userInput, startIdx+1, false); // verifying correct # children
-		int treesEndSize = myCommandTrees.size();
-		CommandNode userCommandArgsNode = new CommandNode(("a"+userCommandNameNode.childrenToString()), turtles, activeTurtles); 
-
-		CommandNode userCommandNode = new CommandNode(DEFAULT_USERCOMMAND_NAME, getNumArgs(DEFAULT_USERCOMMAND_NAME), userCommandNameNode, turtles, activeTurtles);
-		userCommandNode.addChild(userCommandArgsNode);
-		if (treesEndSize > treesStartSize) {
-			ArrayList<CommandNode> tempTrees = new ArrayList<CommandNode>();
-			for (int i = treesStartSize ; i < treesEndSize ; i ++) {
-				tempTrees.add(myCommandTrees.get(i));
+	private String joinInput(int start, int end) {
+		StringBuilder joined = new StringBuilder();
+		for (int idx = start; idx < end; idx++) {
+			if (idx > start) {
+				joined.append(' ');
 			}
-			for (int i = treesEndSize-1 ; i >= treesStartSize ; i --) {
-				myCommandTrees.remove(i);
-			}
-			myCommandTrees.add(userCommandNode);
-			myCommandTrees.addAll(tempTrees);
-		}
-		else {
-			myCommandTrees.add(userCommandNode);
+			joined.append(myInput[idx].getText());
 		}
-		return; 
+		return joined.toString();
 	}
 
-	private int getNumArgs(String commandType) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		try {
-			Double.parseDouble(commandType);
-			return 0;
-		}
-		catch(NumberFormatException e) {
-			RegexMatcher regexMatcher = new RegexMatcher(myNumArgsFileName);
-			String numArgsAsString = regexMatcher.findMatchingVal(commandType);
-			int numArgs = Integer.parseInt(numArgsAsString);
-			return numArgs;
+	/**
+	 * Pairs up the brackets of the input in one pass
+	 * @return array holding, at the index of each "[", the index of its matching "]" (NO_MATCH elsewhere)
+	 */
+	private int[] matchBrackets(Token[] tokens) {
+		int[] matchingBrackets = new int[tokens.length];
+		int[] openBrackets = new int[tokens.length];
+		int numOpen = 0;
+		for (int idx = 0; idx < tokens.length; idx++) {
+			matchingBrackets[idx] = NO_MATCH;
+			if (tokens[idx].getType() == TokenType.BRACKET_START) {
+				openBrackets[numOpen++] = idx;
+			}
+			else if (tokens[idx].getType() == TokenType.BRACKET_END && numOpen > 0) {
+				matchingBrackets[openBrackets[--numOpen]] = idx;
+			}
 		}
+		return matchingBrackets;
 	}
-	private int getNumBrackets(String commandType) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		RegexMatcher regexMatcher = new RegexMatcher(myNumBracketsFileName);
-		//System.out.println("didn't made the regex matcher");
-		String numBracketsAsString = new String();
-		int numArgs = 0;
-		try {
-			numBracketsAsString = regexMatcher.findMatchingVal(commandType);
-		}
-		catch(Exception e) {
-			return 0;
-		}
-		try {
-			numArgs = Integer.parseInt(numBracketsAsString);
+
+	private int getNumArgs(String commandType) throws UnidentifiedCommandException {
+		int numArgs = mySymbols.getNumArgs(mySymbols.getID(commandType));
+		if (numArgs == CommandSymbols.UNKNOWN) {
+			numArgs = CommandRegistry.getDefault().getNumArgs(commandType);
 		}
-		catch(Exception e) {
-			return 0;
+		if (numArgs == CommandRegistry.UNKNOWN) {
+			throw new UnidentifiedCommandException("The command: " + commandType + " is not defined.");
 		}
 		return numArgs;
 	}
-	//RETURNS INDEX OF BRACKET!!
-	private int searchForBracket(int currIdxCopy, String[] userInput, String bracketIdentifier, int initialNeeded) throws BadFormatException, UnidentifiedCommandException, MissingInformationException{
-		int bracketNeededCount = initialNeeded;
-		int bracketSeenCount = 0;
-		while(bracketSeenCount != bracketNeededCount) {
-			if(userInput[currIdxCopy].equals(bracketIdentifier)) {
-				bracketSeenCount++;
-			}
-			bracketNeededCount = bracketNeededCount + getNumBrackets(userInput[currIdxCopy]);
-			currIdxCopy++;
-		}
-		return currIdxCopy;
+
+	private int getNumBrackets(String commandType) {
+		return mySymbols.getNumBrackets(mySymbols.getID(commandType));
 	}
 
 	public ObservableValue<Boolean> getBackColorChangeHeard() {
@@ -666,5 +510,3 @@ class CommandTreeBuilder {
 	}
 
 }
-
-
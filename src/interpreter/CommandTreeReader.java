@@ -20,8 +20,8 @@ class CommandTreeReader {
 	private CommandFactory myCommandFactory;
 	private SimpleIntegerProperty myBackColor;
 
-	protected CommandTreeReader(Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommandsNumArgs){
-		myCommandFactory = new CommandFactory(variables, userDefCommands, userDefCommandsNumArgs);
+	protected CommandTreeReader(VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures){
+		myCommandFactory = new CommandFactory(variables, userDefCommands, userProcedures);
 		myBackColor = new SimpleIntegerProperty(0);
 	}
 	/**
@@ -61,8 +61,18 @@ class CommandTreeReader {
 	 * @return
 	 */
 	protected double readAndExecute(CommandNode root) throws UnidentifiedCommandException{
+		return readAndExecute(root, root.getTurtles(), root.getActiveTurtles());
+	}
+
+	/**
+	 * Reads a CommandTree (passed in the form of its root node), executing it on the given turtles rather than
+	 * the ones the tree was built with
+	 * @param root
+	 * @return
+	 */
+	protected double readAndExecute(CommandNode root, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException{
 		if(treeIsComplete(root)) {
-			Command compressedCommand = compressTree(root);
+			Command compressedCommand = compressTree(root, turtles, activeTurtles);
 			if (root.getInfo().equals(DEFAULT_BACKCHANGE_IDENTIFIER)) {
 				double retVal = compressedCommand.execute();
 				if ((int) retVal != -1) {
@@ -74,28 +84,45 @@ class CommandTreeReader {
 		return -1;
 	}
 
+	/**
+	 * Checks that a tree is complete and compresses it into a single Command without executing it, so that the
+	 * Command can be executed many times (see BytecodeInterpreter)
+	 * @param root
+	 * @return command that when executed will be entire tree
+	 */
+	protected Command compress(CommandNode root, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException{
+		treeIsComplete(root);
+		return compressTree(root, turtles, activeTurtles);
+	}
+
 	/**
 	 * Compressed the CommandNodeTree into a single Command with Command arguments (which, in turn, may have Command
 	 * arguments, etc.) that can be executed as part of the Command Queue
 	 * @param root
 	 * @return command that when executed will be entire tree
 	 */
-	private Command compressTree(CommandNode root) {
+	private Command compressTree(CommandNode root, Turtle turtles, Turtle activeTurtles) {
 		ArrayList<Command> args = new ArrayList<>();
 		//System.out.println("root info" + root.getInfo());
 		//System.out.println("children number" + root.getNumChildren());
 		if(root.getIsDouble()) {
-			return myCommandFactory.makeDoubleCommand(root.getInfo());
+			return myCommandFactory.makeDoubleCommand(root.getValue());
+		}
+		if(root.getVariable() != null) {
+			return myCommandFactory.makeVariableCommand(root.getVariable());
 		}
 		if(root.getIsString()) {
-			return myCommandFactory.makeCommand(root.getInfo(), args, root.getTurtles(), root.getActiveTurtles());
+			return myCommandFactory.makeStringCommand(root.getInfo());
 		}
 		for(CommandNode k: root.getChildren()) {
 			//			System.out.println("child info" + k.getInfo());
-			args.add(compressTree(k));
+			args.add(compressTree(k, turtles, activeTurtles));
 		}
 		//System.out.println("Making a command");
-		return myCommandFactory.makeCommand(root.getInfo(), args,  root.getTurtles(), root.getActiveTurtles());
+		if(root.getCommandID() == CommandNode.UNRESOLVED_COMMAND_ID) {
+			root.setCommandID(myCommandFactory.getCommandID(root.getInfo()));
+		}
+		return myCommandFactory.makeCommand(root.getCommandID(), root.getInfo(), args, turtles, activeTurtles);
 	}
 
 	protected IntegerProperty getBackColor() {
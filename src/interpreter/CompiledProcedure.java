@@ -0,0 +1,106 @@
+package interpreter;
+
+/**
+ * Superclass of the classes ProcedureCompiler generates from the bodies of hot user-defined commands and from
+ * hot cached programs (see CompiledProgram). Each generated class is defined by a class loader of its own, so
+ * that it can be unloaded once its command or program is dropped; that puts it in a different runtime package,
+ * which is why this class is public and why generated code only calls the protected methods below (whose
+ * signatures use only public types).
+ *
+ */
+public abstract class CompiledProcedure {
+	private BytecodeProgram myProgram;
+	private CommandTreeReader myCommandTreeReader;
+
+	/**
+	 * Gives the generated code the pools of the program it was generated from
+	 */
+	protected void setUp(BytecodeProgram program, CommandTreeReader commandTreeReader) {
+		myProgram = program;
+		myCommandTreeReader = commandTreeReader;
+	}
+
+	/**
+	 * Executes the body of the command (whose arguments are already in a VariableFrame)
+	 * @return return value of the last command of the body (-1 if it has none)
+	 */
+	protected abstract double run(Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException;
+
+	protected final double load(int variableIdx) {
+		return myProgram.getVariables()[variableIdx].get();
+	}
+
+	/**
+	 * @return value
+	 */
+	protected final double store(double value, int variableIdx) {
+		myProgram.getVariables()[variableIdx].set(value);
+		return value;
+	}
+
+	protected final boolean isSet(int variableIdx) {
+		return myProgram.getVariables()[variableIdx].isSet();
+	}
+
+	/**
+	 * Gives a loop variable back the value it had before the loop
+	 */
+	protected final void restore(int variableIdx, double outerValue, boolean outerIsSet) {
+		BytecodeInterpreter.restoreVariable(myProgram.getVariables()[variableIdx], outerIsSet, outerValue);
+	}
+
+	protected static final double operator(int opcode, double left, double right) {
+		return BytecodeInterpreter.applyOperator(opcode, left, right);
+	}
+
+	protected static final double turtleCommand(int opcode, Turtle activeTurtles, double arg1, double arg2) {
+		return BytecodeInterpreter.executeTurtleCommand(opcode, activeTurtles, arg1, arg2);
+	}
+
+	protected final double call(int procedureIdx, double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return myProgram.getProcedures()[procedureIdx].call(args, turtles, activeTurtles);
+	}
+
+	/**
+	 * @return true if a call of the procedure with numArgs arguments runs a pure command
+	 */
+	protected final boolean isPureCall(int procedureIdx, int numArgs) {
+		return myProgram.getProcedures()[procedureIdx].isPureCall(numArgs);
+	}
+
+	/**
+	 * @param compressedTrees holds the Commands compressed so far in this call of run
+	 */
+	protected final double executeTree(Object[] compressedTrees, int treeIdx, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		if (compressedTrees[treeIdx] == null) {
+			compressedTrees[treeIdx] = myCommandTreeReader.compress(myProgram.getTrees()[treeIdx], turtles, activeTurtles);
+		}
+		return ((Command) compressedTrees[treeIdx]).execute();
+	}
+
+	protected final double executeStatement(int treeIdx, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return myCommandTreeReader.readAndExecute(myProgram.getTrees()[treeIdx], turtles, activeTurtles);
+	}
+
+	/**
+	 * @param e is what a command in the body of a loop threw
+	 * @return what the loop throws (see BytecodeInterpreter)
+	 */
+	protected static final Throwable loopFailed(Throwable e) {
+		if (e instanceof UnidentifiedCommandError) {
+			return new UnidentifiedCommandException(BytecodeInterpreter.DEFAULT_LOOP_ERROR_MESSAGE);
+		}
+		return e;
+	}
+
+	/**
+	 * @param e is what a command in a list of an If or IfElse threw
+	 * @return return value of the conditional, if it returns one rather than throwing e (see BytecodeInterpreter)
+	 */
+	protected static final double conditionalFailed(Throwable e) throws Throwable {
+		if (e instanceof UnidentifiedCommandException) {
+			return 0;
+		}
+		throw e;
+	}
+}
@@ -0,0 +1,64 @@
+package interpreter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Trees built from one input, ready to be executed again without lexing or building. Remembers whether the
+ * first word of the input was dropped as a turtle ID (see CommandMaker), since that depends on which turtles
+ * exist when the input is run. Once the bytecode of an input has been run as many times as a user-defined
+ * command is called before its body is (see UserProcedure), it is translated into a JVM class as well.
+ *
+ */
+final class CompiledProgram {
+	private static final int TIER_UP_THRESHOLD = Integer.getInteger(UserProcedure.DEFAULT_TIER_UP_PROPERTY, UserProcedure.DEFAULT_TIER_UP_THRESHOLD);
+
+	private final List<CommandNode> myCommandTrees;
+	private final String myLeadingText;
+	private final boolean mySkipsLeadingText;
+	private BytecodeProgram myBytecode;
+	private CompiledProcedure myCompiledBytecode;
+	private int myNumBytecodeRuns;
+
+	protected CompiledProgram(List<CommandNode> commandTrees, String leadingText, boolean skipsLeadingText) {
+		myCommandTrees = Collections.unmodifiableList(commandTrees);
+		myLeadingText = leadingText;
+		mySkipsLeadingText = skipsLeadingText;
+	}
+
+	protected List<CommandNode> getCommandTrees() {
+		return myCommandTrees;
+	}
+
+	/**
+	 * @param builder is the builder that built the trees
+	 * @return the trees compiled for the BytecodeInterpreter (compiled the first time this is called)
+	 */
+	protected BytecodeProgram getBytecode(CommandTreeBuilder builder) {
+		if (myBytecode == null) {
+			myBytecode = builder.compileBytecode(myCommandTrees);
+		}
+		return myBytecode;
+	}
+
+	/**
+	 * Counts a run of the bytecode, translating it into a JVM class (see ProcedureCompiler) on the run that
+	 * reaches the threshold
+	 * @param builder is the builder that built the trees
+	 * @return instance of the class, or null if the bytecode has not been run often enough yet or cannot be translated
+	 */
+	protected CompiledProcedure getCompiledBytecode(CommandTreeBuilder builder) {
+		if (++myNumBytecodeRuns == TIER_UP_THRESHOLD) {
+			myCompiledBytecode = builder.compileProcedure(getBytecode(builder));
+		}
+		return myCompiledBytecode;
+	}
+
+	/**
+	 * @param turtles is all turtles that currently exist
+	 * @return true if the first word of the input would still be read the same way
+	 */
+	protected boolean isValidFor(Turtle turtles) {
+		return turtles.containsTurtleWithID(myLeadingText) == mySkipsLeadingText;
+	}
+}
@@ -5,7 +5,7 @@ package interpreter;
  * @author Sarahbland
  *
  */
-class DoubleCommand extends Command {
+final class DoubleCommand extends Command {
 	private double myDouble;
 	protected DoubleCommand(double val) {
 		myDouble = val;
@@ -14,6 +14,19 @@ class DoubleCommand extends Command {
 	protected double execute() {
 		return myDouble;
 	}
+	@Override
+	protected double evaluate(Turtle turtle) {
+		return myDouble;
+	}
+	@Override
+	protected boolean isPure() {
+		return true;
+	}
+
+	@Override
+	protected boolean isTurtleIndependent() {
+		return true;
+	}
 	protected int getNumArgs() {
 		return 1;
 	}
@@ -0,0 +1,18 @@
+package interpreter;
+
+/**
+ * Ways CommandMaker can execute a program: by compressing its trees into Commands and executing those (see
+ * CommandTreeReader), or by compiling its trees into a BytecodeProgram run by the BytecodeInterpreter. BYTECODE
+ * pays off for programs that are run again and again (from the ProgramCache): once a program has been run as
+ * often as a user-defined command is called before its body is translated into a JVM class, the program is
+ * translated too, and loops over global variables then run several times faster than with the TREE_WALKER.
+ * Until then (or with "slogo.tierUpThreshold" set to 0) the BytecodeInterpreter runs loops about a third faster
+ * than the TREE_WALKER and recursive calls several times faster, but loops in the bodies of commands called
+ * in a loop no faster. With the TREE_WALKER, the bodies of user-defined commands are tree-walked too (see
+ * UserProcedure.callTrees).
+ *
+ */
+enum ExecutionEngine {
+	TREE_WALKER,
+	BYTECODE
+}
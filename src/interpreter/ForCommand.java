@@ -1,9 +1,5 @@
 package interpreter;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-
 /**
  * Implements the "for" command, looping over a certain set of actions from a 
  * specified start to end with a specified increment
@@ -11,64 +7,53 @@ import java.util.Map;
  *
  */
 public class ForCommand extends Command{
-		private String myTempVar;
+		private Variable myTempVar;
 		private Command myStartCommand;
 		private Command myEndCommand;
 		private Command myIncrement;
-		private String myToExecute;
-		private Turtle myTurtle;
-		CommandTreeBuilder myBuilder;
-		Map<String, Double> myVars;
-		Map<String, String> myUserDefComs;
-		Map<String, Integer> myUserDefComsNumArgs;
+		private Command myBodyCommand;
 		
-		protected ForCommand(Command variable, Command start, Command end, Command increment, Command repeated, Turtle turtle,
-				Turtle activeTurtles, Map<String, Double> vars, Map<String, String> userDefComs, Map<String, Integer> userDefComsNumArgs) {
-			myTempVar = ((StringCommand)variable).getString();
-			myToExecute = ((StringCommand)repeated).getString();
+		protected ForCommand(Command variable, Command start, Command end, Command increment, Command body,
+				Turtle activeTurtles) {
+			myTempVar = ((VariableCommand)variable).getVariable();
+			myBodyCommand = body;
 			myStartCommand = start;
 			myEndCommand = end;
 			myIncrement = increment;
-			myBuilder = new CommandTreeBuilder(vars, userDefComs, userDefComsNumArgs);
-			myTurtle = turtle;
 			setActiveTurtles(activeTurtles);
 		}
 		@Override
 		public double execute() throws UnidentifiedCommandException{
-			String[] executeArray = myToExecute.split(" ");
 			double start = 0;
 			start = myStartCommand.execute();
 			double ending = myEndCommand.execute();
 			double increment = myIncrement.execute();
 			double returnVal = 0.0;
-			List<Integer> indices = getTempVarIndices(myTempVar, executeArray);
-			for(Double k = start; k<=ending; k+=increment) {
-				findAndReplace(indices, k, executeArray);
-//				for(int i = 0; i<executeArray.length; i+=1) {
-//					System.out.println("executing " + executeArray[i]);
-//				}
-				try {
-					returnVal = myBuilder.buildAndExecute(myTurtle, getActiveTurtles(), executeArray, true);
-				}
-				catch(Exception e){
-					return returnVal;
+			boolean outerIsSet = myTempVar.isSet();
+			double outerValue = myTempVar.get();
+			try {
+				for(double k = start; k<=ending; k+=increment) {
+					myTempVar.set(k);
+					returnVal = myBodyCommand.execute();
 				}
-
+			}
+			catch(UnidentifiedCommandException | UnidentifiedCommandError e){
+				return returnVal;
+			}
+			finally {
+				restoreTempVar(outerIsSet, outerValue);
 			}
 			return returnVal;
 		}
-		private List<Integer> getTempVarIndices(String tempVar, String[] toExecute){
-			ArrayList<Integer> indices = new ArrayList<>();
-			for(int k = 0; k < toExecute.length; k+=1) {
-				if(toExecute[k].equals(tempVar)) {
-					indices.add(k);
-				}
+		/**
+		 * Puts the loop variable back to the value it had before the loop began (removing it if it had none)
+		 */
+		private void restoreTempVar(boolean outerIsSet, double outerValue) {
+			if(outerIsSet) {
+				myTempVar.set(outerValue);
 			}
-			return indices;
-		}
-		private void findAndReplace(List<Integer> indices, Double replace, String[] toReplace) {
-			for(int i: indices) {
-				toReplace[i] = replace.toString();
+			else {
+				myTempVar.unset();
 			}
 		}
 }
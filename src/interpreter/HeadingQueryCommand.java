@@ -8,7 +8,7 @@ package interpreter;
  * @author Susie Choi
  *
  */
-class HeadingQueryCommand extends Command{
+final class HeadingQueryCommand extends Command{
     /**
      * @param turtle is turtle whose angle is desired
      */
@@ -21,7 +21,17 @@ class HeadingQueryCommand extends Command{
      */
     @Override
     protected double execute() {
-    		double returnVal = getActiveTurtles().getAngle()%360;
+    		return evaluate(getActiveTurtles());
+    }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+    		double returnVal = turtle.getAngle()%360;
     		return returnVal;
     }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
 }
\ No newline at end of file
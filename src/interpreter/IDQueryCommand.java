@@ -4,7 +4,7 @@ package interpreter;
  * @author Sarahbland
  *
  */
-class IDQueryCommand extends Command{
+final class IDQueryCommand extends Command{
 		Turtle myTurtle;
 	protected IDQueryCommand(Turtle turtle) {
 		setActiveTurtles(turtle);
@@ -12,9 +12,19 @@ class IDQueryCommand extends Command{
 	
 	@Override
 	protected double execute() {
+		return evaluate(getActiveTurtles());
+	}
+
+	@Override
+	protected double evaluate(Turtle turtle) {
 		double returnVal = -1;
-		returnVal = getActiveTurtles().getID();
+		returnVal = turtle.getID();
 		return returnVal;
 	}
+
+	@Override
+	protected boolean isPure() {
+		return true;
+	}
 	
 }
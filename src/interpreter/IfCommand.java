@@ -10,19 +10,13 @@ import java.util.Map;
 class IfCommand extends Command{
     private Turtle myTurtle;
     private Command myIfExprCommand; 
-    private String myIfBody; 
-    private Map<String, Double> myVariables; 
-    private Map<String, String> myUserDefCommands;
-    private Map<String, Integer> myUserDefComNumArgs;
+    private CommandList myIfBody; 
     
     protected IfCommand(Command ifExprCommand, Command ifBody, Turtle turtle, Turtle activeTurtles,
-    		Map<String, Double> variables, Map<String, String> userDefCommands, Map<String, Integer> userDefCommNumArgs) {
+    		VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
 	myTurtle = turtle;
 	myIfExprCommand = ifExprCommand;
-	myIfBody = ((StringCommand)ifBody).getString(); 
-	myVariables = variables; 
-	myUserDefCommands = userDefCommands; 
-	myUserDefComNumArgs = userDefCommNumArgs; 
+	myIfBody = new CommandList(((StringCommand)ifBody).getString(), variables, userDefCommands, userProcedures); 
 	setActiveTurtles(activeTurtles);
     }
 
@@ -32,18 +26,12 @@ class IfCommand extends Command{
 	double ifBodyRetVal = 0; 
 	ifExprRetVal = myIfExprCommand.execute();
 	if (ifExprRetVal > 0) {
-	    System.out.println("if executed");
-	    CommandTreeBuilder buildIfBody = new CommandTreeBuilder(myVariables, myUserDefCommands, myUserDefComNumArgs); 
-	    String[] userInput = myIfBody.split("\\s+");
 	    try {
-			ifBodyRetVal = buildIfBody.buildAndExecute(myTurtle, getActiveTurtles(), userInput, true);
+			ifBodyRetVal = myIfBody.execute(myTurtle, getActiveTurtles());
 	    } catch (BadFormatException | UnidentifiedCommandException | MissingInformationException e) {
 		return ifBodyRetVal; 
 	    }
 	}
-	else {
-	    System.out.println("if DID NOT execute");
-	}
 	return ifBodyRetVal; 
     }
 }
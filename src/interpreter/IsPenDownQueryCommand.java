@@ -8,7 +8,7 @@ package interpreter;
  * @author Susie Choi
  *
  */
-class IsPenDownQueryCommand extends Command{
+final class IsPenDownQueryCommand extends Command{
     /**
      * @param turtle is turtle whose pen visibility is desired
      */
@@ -21,8 +21,18 @@ class IsPenDownQueryCommand extends Command{
      */
     @Override
     protected double execute() {
-    double retVal = getActiveTurtles().getPenVisibility() ? 1 : 0; 
+    	return evaluate(getActiveTurtles());
+    }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+    double retVal = turtle.getPenVisibility() ? 1 : 0; 
 	
 	return retVal; 
     }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
 }
\ No newline at end of file
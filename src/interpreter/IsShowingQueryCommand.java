@@ -8,7 +8,7 @@ package interpreter;
  * @author Susie Choi
  *
  */
-class IsShowingQueryCommand extends Command{
+final class IsShowingQueryCommand extends Command{
     /**
      * @param turtle is turtle whose visibility is desired
      */
@@ -21,8 +21,18 @@ class IsShowingQueryCommand extends Command{
      */
     @Override
     protected double execute() {
-    	double retVal = getActiveTurtles().getTurtleVisibility() ? 1 : 0; 
+    	return evaluate(getActiveTurtles());
+    }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+    	double retVal = turtle.getTurtleVisibility() ? 1 : 0; 
 	
 	return retVal; 
     }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
 }
\ No newline at end of file
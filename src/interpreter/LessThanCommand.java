@@ -15,6 +15,8 @@ class LessThanCommand extends Command{
 
     private Command expr1Command;
     private Command expr2Command;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected LessThanCommand(Command expr1, Command expr2, Map<String, Double> variables, Turtle turtles) {
@@ -22,23 +24,36 @@ class LessThanCommand extends Command{
 	expr2Command = expr2;
 	myVariables = variables; 
 	setActiveTurtles(turtles);
+	isPure = expr1.isPure() && expr2.isPure();
+	isTurtleIndependent = expr1.isTurtleIndependent() && expr2.isTurtleIndependent();
     }
 
     @Override
     protected double execute() throws UnidentifiedCommandException{
     	double arg1Val = getCommandValue(expr1Command, myVariables, getActiveTurtles().toSingleTurtle());
     	double arg2Val =  getCommandValue(expr2Command, myVariables, getActiveTurtles().toSingleTurtle());;
-    	getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(expr1Command, myVariables, myTurtle); 
-    		getCommandValue(expr2Command, myVariables, myTurtle); 
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    	if (!isPure) {
+    		getActiveTurtles().executeSequentially(myTurtle -> {
+    			try {
+    			getCommandValue(expr1Command, myVariables, myTurtle); 
+    			getCommandValue(expr2Command, myVariables, myTurtle); 
+    			}
+    			catch(UnidentifiedCommandException e) {
+    				throw new UnidentifiedCommandError("Improper # arguments");
+    			}
+    		});
+    	}
 	
 	return (arg1Val < arg2Val) ? 1.0 : 0.0; 
     }
 
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
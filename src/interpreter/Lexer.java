@@ -0,0 +1,139 @@
+package interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Hand-written lexer for SLogo source that recognizes the syntax described in Syntax.properties in a single
+ * pass over the characters of the input. Tokens are separated by whitespace; a token starting with "#"
+ * makes the rest of its line a comment.
+ *
+ */
+class Lexer {
+
+	public static final char COMMENT_START = '#';
+	public static final char VAR_START = ':';
+	public static final String OPERATORS = "*+,-./%~";
+	private static final int DEFAULT_CAPACITY = 16;
+
+	/**
+	 * @param text is SLogo source, e.g. the contents of the command line or of a file
+	 * @return tokens of the source in order, including comments
+	 * @throws BadFormatException if a token does not match any of the types of syntax
+	 */
+	protected Token[] tokenize(String text) throws BadFormatException {
+		Token[] tokens = new Token[DEFAULT_CAPACITY];
+		int numTokens = 0;
+		int length = text.length();
+		int idx = 0;
+		while (idx < length) {
+			char c = text.charAt(idx);
+			if (isWhitespace(c)) {
+				idx++;
+				continue;
+			}
+			int start = idx;
+			Token token;
+			if (c == COMMENT_START) {
+				while (idx < length && text.charAt(idx) != '\n' && text.charAt(idx) != '\r') {
+					idx++;
+				}
+				token = new Token(text.substring(start, idx), TokenType.COMMENT, start);
+			}
+			else {
+				while (idx < length && !isWhitespace(text.charAt(idx))) {
+					idx++;
+				}
+				token = classify(text, start, idx);
+			}
+			if (numTokens == tokens.length) {
+				tokens = Arrays.copyOf(tokens, numTokens * 2);
+			}
+			tokens[numTokens++] = token;
+		}
+		return Arrays.copyOf(tokens, numTokens);
+	}
+
+	private Token classify(String text, int start, int end) throws BadFormatException {
+		String tokenText = text.substring(start, end);
+		int length = end - start;
+		char first = text.charAt(start);
+		if (length == 1) {
+			switch (first) {
+			case '[': return new Token(tokenText, TokenType.BRACKET_START, start);
+			case ']': return new Token(tokenText, TokenType.BRACKET_END, start);
+			case '(': return new Token(tokenText, TokenType.PAREN_START, start);
+			case ')': return new Token(tokenText, TokenType.PAREN_END, start);
+			default:
+				if (OPERATORS.indexOf(first) >= 0) {
+					return new Token(tokenText, TokenType.COMMAND, start);
+				}
+			}
+		}
+		if (isConstant(text, start, end)) {
+			return new Token(tokenText, TokenType.CONSTANT, start, Double.parseDouble(tokenText));
+		}
+		if (first == VAR_START && length > 1 && countLetters(text, start+1, end, false) == length-1) {
+			return new Token(tokenText, TokenType.VARIABLE, start);
+		}
+		int numLetters = countLetters(text, start, end, true);
+		if (numLetters > 0 && (numLetters == length || (numLetters == length-1 && text.charAt(end-1) == '?'))) {
+			return new Token(tokenText, TokenType.COMMAND, start);
+		}
+		throw new BadFormatException(tokenText);
+	}
+
+	/**
+	 * @param text is a single token, e.g. "50" or "fd"
+	 * @return true if the token has the syntax of a Constant
+	 */
+	protected static boolean isConstant(String text) {
+		return text.length() > 0 && isConstant(text, 0, text.length());
+	}
+
+	/**
+	 * @return true if the characters are an optional "-", at least one digit, then optionally "." followed by digits
+	 */
+	private static boolean isConstant(String text, int start, int end) {
+		int idx = start;
+		if (text.charAt(idx) == '-') {
+			idx++;
+		}
+		int digitsStart = idx;
+		while (idx < end && isDigit(text.charAt(idx))) {
+			idx++;
+		}
+		if (idx == digitsStart) {
+			return false;
+		}
+		if (idx < end && text.charAt(idx) == '.') {
+			idx++;
+		}
+		while (idx < end && isDigit(text.charAt(idx))) {
+			idx++;
+		}
+		return idx == end;
+	}
+
+	/**
+	 * @return number of consecutive letters (and underscores, if allowed) starting at start
+	 */
+	private int countLetters(String text, int start, int end, boolean allowUnderscore) {
+		int idx = start;
+		while (idx < end && (isLetter(text.charAt(idx)) || (allowUnderscore && text.charAt(idx) == '_'))) {
+			idx++;
+		}
+		return idx - start;
+	}
+
+	private boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
+}
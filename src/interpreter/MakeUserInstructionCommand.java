@@ -4,25 +4,32 @@ import java.util.Map;
 
 class MakeUserInstructionCommand extends Command {
 	private String myCommandName; 
-	private String myCommandVars; 
 	private String myCommandContent;
 	private Map<String, String> myUserCommands; 
-	private Map<String, Integer> myUserCommandsNumArgs; 
+	private Map<String, UserProcedure> myUserProcedures; 
+	private VariableTable myVariables; 
 
 	protected MakeUserInstructionCommand(Command commandName, Command commandVars, Command commandContent, 
-			Map<String, Double> variables, Map<String, String> userCommands, Map<String, Integer> userCommandsNumArgs) {
+			VariableTable variables, Map<String, String> userCommands, Map<String, UserProcedure> userProcedures) {
 		myCommandName = ((StringCommand)commandName).getString();
-		myCommandVars = ((StringCommand)commandVars).getString();
 		myCommandContent = ((StringCommand)commandContent).getString();
 		myUserCommands = userCommands; 
-		myUserCommandsNumArgs = userCommandsNumArgs;
+		myVariables = variables; 
+		myUserProcedures = userProcedures;
 	}
 
 	@Override
 	double execute(){
 		if (!myUserCommands.containsKey(myCommandName)) {
+			UserProcedure procedure = new UserProcedure(myCommandName, myCommandContent, myVariables, myUserCommands, myUserProcedures);
 			myUserCommands.put(myCommandName, myCommandContent);
-			myUserCommandsNumArgs.put(myCommandName, myCommandVars.split("\\s+").length);
+			myUserProcedures.put(myCommandName, procedure);
+			try {
+				procedure.compile();
+			}
+			catch (BadFormatException | UnidentifiedCommandException | MissingInformationException e) {
+				// body uses a command that is not defined yet; it is built when the command is first called
+			}
 		}
 		return 1.0;
 	}
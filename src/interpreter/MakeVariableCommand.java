@@ -1,7 +1,5 @@
 package interpreter;
 
-import java.util.Map;
-
 /**
  * 
  * @author susiechoi
@@ -12,18 +10,16 @@ class MakeVariableCommand extends Command {
 	
 	private Command myVarName; 
 	private Command myVarVal;
-	private Map<String, Double> myVariables; 
 
-	protected MakeVariableCommand(Command varName, Command varVal, Map<String, Double> variables) {
+	protected MakeVariableCommand(Command varName, Command varVal) {
 		myVarName = varName; 
 		myVarVal = varVal;
-		myVariables = variables; 
 	}
 	
 	@Override
 	protected double execute() throws UnidentifiedCommandException {
 		double exprEval = myVarVal.execute();
-		myVariables.put(((StringCommand)myVarName).getString(), exprEval);
+		((VariableCommand)myVarName).getVariable().set(exprEval);
 //		System.out.println("var successfully set "+exprEval);
 		return exprEval; 
 	}
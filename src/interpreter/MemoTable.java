@@ -0,0 +1,88 @@
+package interpreter;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Return values of calls of a pure user-defined command (see PurityAnalyzer), by the values of their arguments.
+ * Holds at most a fixed number of them, dropping the least recently used first. Counts lookups that found a
+ * value (hits) and that did not (misses), to tell whether the table pays off and how large it should be.
+ *
+ */
+class MemoTable {
+	private Map<Arguments, Double> myValues;
+	private long myNumHits;
+	private long myNumMisses;
+
+	/**
+	 * @param capacity is most values the table holds
+	 */
+	protected MemoTable(int capacity) {
+		myValues = new LinkedHashMap<Arguments, Double>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Arguments, Double> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @return return value of the call with args, or null if it is not in the table
+	 */
+	protected Double get(double[] args) {
+		Double value = myValues.get(new Arguments(args));
+		if (value == null) {
+			myNumMisses++;
+		}
+		else {
+			myNumHits++;
+		}
+		return value;
+	}
+
+	/**
+	 * @param args is values of the arguments of a call, which must not change afterwards
+	 * @param value is what the call returned
+	 */
+	protected void put(double[] args, double value) {
+		myValues.put(new Arguments(args), value);
+	}
+
+	protected long getNumHits() {
+		return myNumHits;
+	}
+
+	protected long getNumMisses() {
+		return myNumMisses;
+	}
+
+	protected int size() {
+		return myValues.size();
+	}
+
+	/**
+	 * Values of the arguments of a call, compared as Double.equals does (so 0.0 and -0.0 are different calls)
+	 */
+	private static final class Arguments {
+		private final double[] myArgs;
+		private final int myHashCode;
+
+		private Arguments(double[] args) {
+			myArgs = args;
+			myHashCode = Arrays.hashCode(args);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Arguments && Arrays.equals(myArgs, ((Arguments) other).myArgs);
+		}
+
+		@Override
+		public int hashCode() {
+			return myHashCode;
+		}
+	}
+}
@@ -15,26 +15,41 @@ import java.util.Map;
 class MinusCommand extends Command{
 
     private Command exprCommand;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected MinusCommand(Command expr, Map<String, Double> variables, Turtle turtles) {
 	exprCommand = expr;
 	myVariables = variables; 
 	setActiveTurtles(turtles);
+	isPure = expr.isPure();
+	isTurtleIndependent = expr.isTurtleIndependent();
     }
 
     @Override
     protected double execute() throws UnidentifiedCommandException {
     	double exprVal = getCommandValue(exprCommand, myVariables, getActiveTurtles());
-    getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(exprCommand, myVariables, myTurtle); 
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    if (!isPure) {
+        getActiveTurtles().executeSequentially(myTurtle -> {
+        		try {
+        		getCommandValue(exprCommand, myVariables, myTurtle); 
+        		}
+        		catch(UnidentifiedCommandException e) {
+        			throw new UnidentifiedCommandError("Improper # arguments");
+        		}
+        	});
+    }
 	return -exprVal;
     }
 
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
\ No newline at end of file
@@ -34,6 +34,10 @@ class MoveTurtleBackwardCommand extends Command{
      */
     protected double execute() throws UnidentifiedCommandException{
     	double distance = getCommandValue(myBackwardDistCommand, myVariables, getActiveTurtles().toSingleTurtle());
+    	if (myBackwardDistCommand.isTurtleIndependent()) {
+    		getActiveTurtles().forward(-distance);
+    		return distance;
+    	}
     getActiveTurtles().executeSequentially(myTurtle ->{
     		try {
 		double dist = getCommandValue(myBackwardDistCommand, myVariables, myTurtle);
@@ -32,6 +32,10 @@ class MoveTurtleForwardCommand extends Command {
 	 */
 	protected double execute() throws UnidentifiedCommandException {
 			double returnVal = getCommandValue(myForwardDistCommand, myVariables, getActiveTurtles().toSingleTurtle());
+			if (myForwardDistCommand.isTurtleIndependent()) {
+				getActiveTurtles().forward(returnVal);
+				return returnVal;
+			}
 			getActiveTurtles().executeSequentially( turtle -> {
 				double forwardDist = -1.0;
 				try {
@@ -29,7 +29,6 @@ public class MultipleTurtles extends Turtle{
 	}
 	protected void executeSequentially(Consumer<Turtle> action){
 		myActiveTurtleHolder.applyToAllTurtles(action);
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 	
 	protected boolean containsTurtleWithID(String ID) {
@@ -55,17 +54,16 @@ public class MultipleTurtles extends Turtle{
 		return this;
 	}
 	protected int size() {
-		return myActiveTurtleHolder.getCopyTurtleList().size();
+		return myActiveTurtleHolder.size();
 	}
 	private SingleTurtle getLastTurtle() {
-		return myActiveTurtleHolder.getCopyTurtleList().get(myActiveTurtleHolder.getCopyTurtleList().size()-1);
+		return myActiveTurtleHolder.getLastCopy();
 	}
 	protected SingleTurtle toSingleTurtle() {
 		return getLastTurtle();
 	}
 	protected MultipleTurtles addTurtle(SingleTurtle turtle) {
 		myActiveTurtleHolder.addTurtle(turtle);
-		myActiveTurtleHolder.resetTemporaryTurtles();
 		return this;
 	}
 	public List<SingleTurtle> getAllImmutableTurtles(){
@@ -130,12 +128,10 @@ public class MultipleTurtles extends Turtle{
 	// SETTERS
 	protected void hideTurtle() {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.hideTurtle());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	protected void showTurtle() {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.showTurtle());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	/**
@@ -143,7 +139,6 @@ public class MultipleTurtles extends Turtle{
 	 */
 	protected void setX(double x) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setX(x));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 	
 	/**
@@ -151,7 +146,6 @@ public class MultipleTurtles extends Turtle{
 	 */
 	protected void setY(double y) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setY(y));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 //	protected void setImageIdx(double shapeIdx) {
 //		myActiveTurtleHolder.applyToAllTurtles(t->t.setImageIdx(shapeIdx));
@@ -170,8 +164,6 @@ public class MultipleTurtles extends Turtle{
 	}
 	protected double setXY(double x, double y) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setXY(x, y));
-		System.out.println("y coordinate before reset: " + getLastTurtle().getY());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 		SingleTurtle last = getLastTurtle();
 		return last.calcDistance(last.getOldX(), last.getOldY(), last.getX(), last.getY());
 	}
@@ -180,37 +172,30 @@ public class MultipleTurtles extends Turtle{
 	 */
 	public void setImage(Image image) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setImage(image));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	protected void setPenColor(String colorCode) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setPenColor(colorCode));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 	
 	protected void setPenWidth(double width) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setPenWidth(width));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 	
 	protected void setAngle(double angle) {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.setAngle(angle));
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	protected void showPen() {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.showPen());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	protected void hidePen() {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.hidePen());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 
 	protected void clearPen() {
 		myActiveTurtleHolder.applyToAllTurtles(t->t.clearPen());
-		myActiveTurtleHolder.resetTemporaryTurtles();
 	}
 	
 	protected String getPenColor() {
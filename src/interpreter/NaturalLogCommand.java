@@ -13,26 +13,41 @@ import java.util.Map;
  class NaturalLogCommand extends Command{
 
     private Command exprCommand;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected NaturalLogCommand(Command expr,Map<String, Double> variables, Turtle turtles) {
 	exprCommand = expr;
 	myVariables = variables;
 	setActiveTurtles(turtles);
+	isPure = expr.isPure();
+	isTurtleIndependent = expr.isTurtleIndependent();
     }
 
     @Override
     protected double execute() throws UnidentifiedCommandException {
     	Double EXPR = getCommandValue(exprCommand, myVariables, getActiveTurtles().toSingleTurtle());
-    	getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(exprCommand, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    	if (!isPure) {
+    		getActiveTurtles().executeSequentially(myTurtle -> {
+    			try {
+    			getCommandValue(exprCommand, myVariables, myTurtle);
+    			}
+    			catch(UnidentifiedCommandException e) {
+    				throw new UnidentifiedCommandError("Improper # arguments");
+    			}
+    		});
+    	}
 	return Math.log(EXPR);
     }
 
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
\ No newline at end of file
@@ -14,24 +14,30 @@ class NotCommand extends Command{
     	private final double TRUE = 1;
     	private final double FALSE = 0;
     	private Command testCommand;
+    	private boolean isPure;
+    	private boolean isTurtleIndependent;
     	private Map<String, Double> myVariables; 
 
     	
 	protected NotCommand(Command test, Map<String, Double> variables, Turtle turtles) {
 		testCommand = test;
 		setActiveTurtles(turtles);
+		isPure = test.isPure();
+		isTurtleIndependent = test.isTurtleIndependent();
 	}
 	@Override
 	protected double execute() throws UnidentifiedCommandException {
 		double TEST = getCommandValue(testCommand, myVariables, getActiveTurtles().toSingleTurtle());
-		getActiveTurtles().executeSequentially(myTurtle -> {
-			try {
-			getCommandValue(testCommand, myVariables, myTurtle);
-			}
-			catch(UnidentifiedCommandException e) {
-				throw new UnidentifiedCommandError("Improper # arguments");
-			}
-		});
+		if (!isPure) {
+			getActiveTurtles().executeSequentially(myTurtle -> {
+				try {
+				getCommandValue(testCommand, myVariables, myTurtle);
+				}
+				catch(UnidentifiedCommandException e) {
+					throw new UnidentifiedCommandError("Improper # arguments");
+				}
+			});
+		}
 		if (TEST == FALSE) {
 		    return TRUE;
 		}
@@ -39,4 +45,14 @@ class NotCommand extends Command{
 		    return FALSE;
 		}
 	}
+
+	@Override
+	protected boolean isPure() {
+		return isPure;
+	}
+
+	@Override
+	protected boolean isTurtleIndependent() {
+		return isTurtleIndependent;
+	}
 }
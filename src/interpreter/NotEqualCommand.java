@@ -15,6 +15,8 @@ class NotEqualCommand extends Command{
     private final double FALSE = 0;
     private Command expr1Command;
     private Command expr2Command;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected NotEqualCommand(Command expr1, Command expr2, Map<String, Double> variables, Turtle turtles) {
@@ -22,20 +24,24 @@ class NotEqualCommand extends Command{
 	expr2Command = expr2;
 	myVariables = variables;
 	setActiveTurtles(turtles);
+	isPure = expr1.isPure() && expr2.isPure();
+	isTurtleIndependent = expr1.isTurtleIndependent() && expr2.isTurtleIndependent();
     }
     @Override
     protected double execute() throws UnidentifiedCommandException {
     	double EXPR1 = getCommandValue(expr1Command, myVariables, getActiveTurtles().toSingleTurtle());
     	double EXPR2 = getCommandValue(expr2Command, myVariables, getActiveTurtles().toSingleTurtle());;
-    	getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(expr1Command, myVariables, myTurtle);
-    		getCommandValue(expr2Command, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    	if (!isPure) {
+    		getActiveTurtles().executeSequentially(myTurtle -> {
+    			try {
+    			getCommandValue(expr1Command, myVariables, myTurtle);
+    			getCommandValue(expr2Command, myVariables, myTurtle);
+    			}
+    			catch(UnidentifiedCommandException e) {
+    				throw new UnidentifiedCommandError("Improper # arguments");
+    			}
+    		});
+    	}
 	
 	if (EXPR1 != EXPR2) {
 	    return TRUE;
@@ -44,4 +50,14 @@ class NotEqualCommand extends Command{
 	    return FALSE;
 	}
     }
+
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
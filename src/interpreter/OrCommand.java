@@ -15,6 +15,8 @@ class OrCommand extends Command{
     private final double FALSE = 0;
     private Command test1Command;
     private Command test2Command;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected OrCommand(Command test1, Command test2, Map<String, Double> variables, Turtle turtles) {
@@ -22,9 +24,16 @@ class OrCommand extends Command{
 	test2Command = test2;
 	myVariables = variables;
 	setActiveTurtles(turtles);
+	isPure = test1.isPure() && test2.isPure();
+	isTurtleIndependent = test1.isTurtleIndependent() && test2.isTurtleIndependent();
     }
     @Override
     protected double execute() throws UnidentifiedCommandException {
+    if (isPure) {
+    	// the tests change nothing, so the second is only needed if the first fails, and only for one turtle
+    	Turtle turtle = getActiveTurtles().toSingleTurtle();
+    	return (getCommandValue(test1Command, myVariables, turtle) != FALSE || getCommandValue(test2Command, myVariables, turtle) != FALSE) ? TRUE : FALSE;
+    }
     double TEST1 = getCommandValue(test1Command, myVariables, getActiveTurtles().toSingleTurtle());
     double TEST2 =  getCommandValue(test2Command, myVariables, getActiveTurtles().toSingleTurtle());;
     	getActiveTurtles().executeSequentially(myTurtle -> {
@@ -44,4 +53,14 @@ class OrCommand extends Command{
 	    return FALSE;
 	}
     }
+
+    @Override
+    protected boolean isPure() {
+	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+	return isTurtleIndependent;
+    }
 }
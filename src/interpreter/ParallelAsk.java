@@ -0,0 +1,238 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the commands Ask gives its turtles on groups of the turtles at once, on the pool of the TurtleStore the
+ * turtles are in (see TurtleStore.setPool). Each group runs the commands on its turtles with its own copy of
+ * the variables and its own buffer for the lines it draws, and the buffers are merged back in the order of
+ * the groups (see TurtleStore.mergeLines), so the turtles, the lines and the return value are exactly what
+ * running the commands on all the turtles at once gives.
+ *
+ * That holds only if every group runs the same commands and no group can see what another does, so the
+ * commands may only move and turn the turtles and change their pens (but not pen colors), with math and
+ * logic on numbers and variables, and loops and conditionals of those: no turtle queries (a condition on one
+ * would be decided by the last turtle of each group rather than of all the turtles), Random, MakeVariable,
+ * user-defined commands, Tell, Ask or anything else that can change what other turtles or commands see.
+ * SetHeading, SetTowards, SetPosition and Home return how far the last turtle turned or moved, so for the same
+ * reason their values may not be used (as an argument, a condition, a loop range or the value of a list that
+ * is used); only the value of the last command can be, since the last group has the last turtle. Loop
+ * variables are changed only in a group's own copy of the variables, and loops put them back.
+ *
+ */
+class ParallelAsk {
+	private static final Set<String> SAFE_COMMANDS = new HashSet<String>(Arrays.asList("Forward", "Backward",
+			"Left", "Right", "SetHeading", "SetTowards", "SetPosition", "Home", "PenDown", "PenUp", "ShowTurtle",
+			"HideTurtle", "SetPenSize", CommandTreeBuilder.DEFAULT_REPEAT_IDENTIFIER,
+			CommandTreeBuilder.DEFAULT_DOTIMES_IDENTIFIER, CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER,
+			CommandTreeBuilder.DEFAULT_IF_IDENTIFIER, CommandTreeBuilder.DEFAULT_IFELSE_IDENTIFIER));
+	private static final Set<String> TURTLE_VALUED_COMMANDS = new HashSet<String>(Arrays.asList("SetHeading",
+			"SetTowards", "SetPosition", "Home"));
+	private static final CommandSymbols SYMBOLS = CommandSymbols.forFiles(CommandTreeBuilder.DEFAULT_NUM_ARGS_FNAME,
+			CommandTreeBuilder.DEFAULT_NUM_BRACKETS_FNAME);
+
+	private String myText;
+	private VariableTable myVariables;
+	private Map<String, String> myUserDefCommands;
+	private Map<String, UserProcedure> myUserProcedures;
+	private boolean isSafe;
+	private VariableTable[] myGroupVariables;
+	private CommandList[] myGroupActions;
+
+	/**
+	 * @param text is language-independent words of the commands, as for CommandList
+	 */
+	protected ParallelAsk(String text, VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		myText = text;
+		myVariables = variables;
+		myUserDefCommands = userDefCommands;
+		myUserProcedures = userProcedures;
+		List<String> words = new ArrayList<String>();
+		for (String word : text.split("\\s+")) {
+			if (!word.isEmpty()) {
+				words.add(word);
+			}
+		}
+		isSafe = true;
+		for (String word : words) {
+			isSafe = isSafe && isSafe(word);
+		}
+		int next = 0;
+		while (isSafe && next >= 0 && next < words.size()) {
+			next = skipCommand(words, next, false);
+		}
+		isSafe = isSafe && next == words.size();
+	}
+
+	/**
+	 * @param turtles is the turtles asked
+	 * @return true if the commands can run on groups of turtles at once: they are safe to, the turtles are
+	 * different turtles of store, store has a pool with more than one thread, and no user-defined command is
+	 * running (the commands would see its parameters)
+	 */
+	protected boolean canRun(List<SingleTurtle> turtles, TurtleStore store) {
+		if (!isSafe || store.getPool() == null || store.getPool().getParallelism() < 2 || turtles.size() < 2
+				|| myVariables.getCallDepth() > 0) {
+			return false;
+		}
+		BitSet isAsked = new BitSet();
+		for (SingleTurtle turtle : turtles) {
+			if (!(turtle instanceof StoredTurtle) || ((StoredTurtle) turtle).getStore() != store
+					|| isAsked.get(((StoredTurtle) turtle).getOrdinal())) {
+				return false;
+			}
+			isAsked.set(((StoredTurtle) turtle).getOrdinal());
+		}
+		return true;
+	}
+
+	/**
+	 * Runs the commands on groups of turtles at once (canRun must be true)
+	 * @return return value of the last command, for the last turtle (-1 if there are no commands)
+	 */
+	protected double execute(List<SingleTurtle> turtles, TurtleStore store) throws Exception {
+		int numGroups = Math.min(store.getPool().getParallelism(), turtles.size());
+		if (myGroupActions == null || myGroupActions.length != numGroups) {
+			myGroupVariables = new VariableTable[numGroups];
+			myGroupActions = new CommandList[numGroups];
+			for (int k = 0; k < numGroups; k++) {
+				myGroupVariables[k] = new VariableTable();
+				myGroupActions[k] = new CommandList(myText, myGroupVariables[k], myUserDefCommands, myUserProcedures);
+			}
+		}
+		List<TurtleStore> buffers = new ArrayList<TurtleStore>();
+		List<Callable<Void>> groups = new ArrayList<Callable<Void>>();
+		double[] returnVals = new double[numGroups];
+		Exception[] exceptions = new Exception[numGroups];
+		for (int k = 0; k < numGroups; k++) {
+			TurtleStore buffer = store.getBuffer();
+			TurtleArray group = new TurtleArray(buffer);
+			for (SingleTurtle turtle : turtles.subList(k*turtles.size()/numGroups, (k+1)*turtles.size()/numGroups)) {
+				group.addOrdinal(((StoredTurtle) turtle).getOrdinal());
+			}
+			myGroupVariables[k].copyGlobals(myVariables);
+			CommandList actions = myGroupActions[k];
+			int groupIdx = k;
+			buffers.add(buffer);
+			groups.add(() -> {
+				try {
+					returnVals[groupIdx] = actions.execute(group, group);
+				}
+				catch (Exception e) {
+					exceptions[groupIdx] = e;
+				}
+				return null;
+			});
+		}
+		try {
+			for (Future<Void> result : store.getPool().invokeAll(groups)) {
+				result.get();
+			}
+		}
+		catch (ExecutionException e) {
+			throw (Error) e.getCause();
+		}
+		finally {
+			store.mergeLines(buffers);
+		}
+		for (Exception e : exceptions) {
+			// every group stops at the same command, so the first group's exception is the one to report
+			if (e != null) {
+				throw e;
+			}
+		}
+		return returnVals[numGroups-1];
+	}
+
+	/**
+	 * Reads the command that starts at words[start]
+	 * @param isUsed is true if the value of the command is used
+	 * @return index of the word after the command, or -1 if the command cannot be read or it uses the value of
+	 * a turtle-valued command (or is one, and isUsed)
+	 */
+	private int skipCommand(List<String> words, int start, boolean isUsed) {
+		if (start < 0 || start >= words.size()) {
+			return -1;
+		}
+		String word = words.get(start);
+		if (word.startsWith(":") || isNumber(word)) {
+			return start + 1;
+		}
+		if (word.equals(CommandTreeBuilder.DEFAULT_REPEAT_IDENTIFIER) || word.equals(CommandTreeBuilder.DEFAULT_IF_IDENTIFIER)) {
+			return skipList(words, skipCommand(words, start + 1, true), isUsed);
+		}
+		if (word.equals(CommandTreeBuilder.DEFAULT_IFELSE_IDENTIFIER)) {
+			return skipList(words, skipList(words, skipCommand(words, start + 1, true), isUsed), isUsed);
+		}
+		if (word.equals(CommandTreeBuilder.DEFAULT_DOTIMES_IDENTIFIER) || word.equals(CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER)) {
+			// [ :variable range... ] with every part of the range used
+			if (start + 2 >= words.size() || !words.get(start + 1).equals("[") || !words.get(start + 2).startsWith(":")) {
+				return -1;
+			}
+			int next = start + 3;
+			while (next >= 0 && next < words.size() && !words.get(next).equals("]")) {
+				next = skipCommand(words, next, true);
+			}
+			return (next < 0 || next >= words.size()) ? -1 : skipList(words, next + 1, isUsed);
+		}
+		if (isUsed && TURTLE_VALUED_COMMANDS.contains(word)) {
+			return -1;
+		}
+		int numArgs = SYMBOLS.getNumArgs(SYMBOLS.getID(word));
+		if (numArgs == CommandSymbols.UNKNOWN) {
+			return -1;
+		}
+		int next = start + 1;
+		for (int k = 0; k < numArgs; k++) {
+			next = skipCommand(words, next, true);
+		}
+		return next;
+	}
+
+	/**
+	 * Reads the list that starts at words[start], whose value is that of its last command
+	 * @return index of the word after the list, or -1 (see skipCommand)
+	 */
+	private int skipList(List<String> words, int start, boolean isUsed) {
+		if (start < 0 || start >= words.size() || !words.get(start).equals("[")) {
+			return -1;
+		}
+		int next = start + 1;
+		while (next >= 0 && next < words.size() && !words.get(next).equals("]")) {
+			int commandStart = next;
+			next = skipCommand(words, commandStart, false);
+			if (isUsed && next >= 0 && next < words.size() && words.get(next).equals("]")) {
+				next = skipCommand(words, commandStart, true);
+			}
+		}
+		return (next < 0 || next >= words.size()) ? -1 : next + 1;
+	}
+
+	private boolean isSafe(String word) {
+		if (word.isEmpty() || word.equals("[") || word.equals("]") || word.startsWith(":")
+				|| SAFE_COMMANDS.contains(word)
+				|| BytecodeCompiler.getExpressionOpcode(word) != BytecodeCompiler.NOT_AN_EXPRESSION) {
+			return true;
+		}
+		return isNumber(word);
+	}
+
+	private boolean isNumber(String word) {
+		try {
+			Double.parseDouble(word);
+			return true;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Precompiled, read-only view of a Properties file/ResourceBundle whose values are regular expressions
+ * (e.g. a language file or Syntax.properties). Values that are just alternatives of literal words
+ * (e.g. "forward|fd") are stored in a hash table so they can be looked up directly; values that are
+ * true regular expressions are compiled together into a single Pattern. Tables are built once per
+ * file/bundle and shared by every parse, so looking up a token never compiles a Pattern.
+ *
+ * Lookups return the same key a linear scan over the bundle's keys (in iteration order) would.
+ */
+final class PatternTable {
+
+	private static final String GROUP_PREFIX = "k";
+	private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+	private static final Map<String, PatternTable> FILE_TABLES = new ConcurrentHashMap<String, PatternTable>();
+	private static final Map<ResourceBundle, PatternTable> BUNDLE_TABLES = Collections.synchronizedMap(new WeakHashMap<ResourceBundle, PatternTable>());
+
+	private final List<String> myKeys;
+	private final Map<String, String> myValues;
+	private final Map<String, Integer> myLiterals;
+	private final List<Integer> myRegexKeyIdxs;
+	private final Pattern myCombinedRegex;
+	private final int myFirstRegexKeyIdx;
+
+	/**
+	 * @param fileName is name of the ResourceBundle, e.g. "interpreter/Syntax"
+	 * @return shared table for the given file
+	 */
+	protected static PatternTable forFile(String fileName) {
+		PatternTable table = FILE_TABLES.get(fileName);
+		if (table == null) {
+			table = new PatternTable(ResourceBundle.getBundle(fileName));
+			FILE_TABLES.put(fileName, table);
+		}
+		return table;
+	}
+
+	/**
+	 * @param resources is ResourceBundle, e.g. a language file
+	 * @return shared table for the given bundle
+	 */
+	protected static PatternTable forBundle(ResourceBundle resources) {
+		synchronized (BUNDLE_TABLES) {
+			PatternTable table = BUNDLE_TABLES.get(resources);
+			if (table == null) {
+				table = new PatternTable(resources);
+				BUNDLE_TABLES.put(resources, table);
+			}
+			return table;
+		}
+	}
+
+	private PatternTable(ResourceBundle resources) {
+		myKeys = new ArrayList<String>();
+		myValues = new HashMap<String, String>();
+		myLiterals = new HashMap<String, Integer>();
+		myRegexKeyIdxs = new ArrayList<Integer>();
+		StringBuilder combinedRegex = new StringBuilder();
+		Enumeration<String> iter = resources.getKeys();
+		while (iter.hasMoreElements()) {
+			String key = iter.nextElement();
+			String regex = resources.getString(key);
+			int keyIdx = myKeys.size();
+			myKeys.add(key);
+			myValues.put(key, regex);
+			List<String> literals = toLiterals(regex);
+			if (literals == null) {
+				if (combinedRegex.length() > 0) {
+					combinedRegex.append('|');
+				}
+				combinedRegex.append("(?<").append(GROUP_PREFIX).append(keyIdx).append('>').append(regex).append(')');
+				myRegexKeyIdxs.add(keyIdx);
+			}
+			else {
+				for (String literal : literals) {
+					if (!myLiterals.containsKey(literal)) {
+						myLiterals.put(literal, keyIdx);
+					}
+				}
+			}
+		}
+		myCombinedRegex = myRegexKeyIdxs.isEmpty() ? null : Pattern.compile(combinedRegex.toString(), Pattern.CASE_INSENSITIVE);
+		myFirstRegexKeyIdx = myRegexKeyIdxs.isEmpty() ? Integer.MAX_VALUE : myRegexKeyIdxs.get(0);
+	}
+
+	/**
+	 * @param text is text to be matched against the values of the table
+	 * @return first key (in bundle order) whose value matches the text, or null if there is none
+	 */
+	protected String findKey(String text) {
+		Integer literalKeyIdx = myLiterals.get(toLowerCase(text));
+		int bestKeyIdx = (literalKeyIdx == null) ? Integer.MAX_VALUE : literalKeyIdx;
+		if (bestKeyIdx > myFirstRegexKeyIdx) {
+			Matcher matcher = myCombinedRegex.matcher(text);
+			if (matcher.matches()) {
+				for (int keyIdx : myRegexKeyIdxs) {
+					if (keyIdx >= bestKeyIdx) {
+						break;
+					}
+					if (matcher.start(GROUP_PREFIX + keyIdx) >= 0) {
+						bestKeyIdx = keyIdx;
+						break;
+					}
+				}
+			}
+		}
+		return (bestKeyIdx == Integer.MAX_VALUE) ? null : myKeys.get(bestKeyIdx);
+	}
+
+	/**
+	 * @param key is potential key of the table
+	 * @return true if the table has this key
+	 */
+	protected boolean containsKey(String key) {
+		return myValues.containsKey(key);
+	}
+
+	/**
+	 * @param key is key of the table
+	 * @return (unparsed) value for the key, or null if there is no such key
+	 */
+	protected String getValue(String key) {
+		return myValues.get(key);
+	}
+
+	/**
+	 * Splits a regular expression made up only of alternatives of literal text (e.g. "pendown\\?|pendownp")
+	 * into those literals
+	 * @return lower-case literals, or null if the regular expression is not made up of only literals
+	 */
+	private static List<String> toLiterals(String regex) {
+		List<String> literals = new ArrayList<String>();
+		StringBuilder current = new StringBuilder();
+		for (int idx = 0; idx < regex.length(); idx++) {
+			char c = regex.charAt(idx);
+			if (c == '\\') {
+				if (idx+1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(idx+1))) {
+					return null;
+				}
+				idx++;
+				current.append(regex.charAt(idx));
+			}
+			else if (c == '|') {
+				literals.add(toLowerCase(current.toString()));
+				current.setLength(0);
+			}
+			else if (REGEX_META_CHARS.indexOf(c) >= 0) {
+				return null;
+			}
+			else {
+				current.append(c);
+			}
+		}
+		literals.add(toLowerCase(current.toString()));
+		return literals;
+	}
+
+	/**
+	 * Lower-cases only ASCII letters, matching the case folding of Pattern.CASE_INSENSITIVE
+	 */
+	private static String toLowerCase(String text) {
+		for (int idx = 0; idx < text.length(); idx++) {
+			char c = text.charAt(idx);
+			if (c >= 'A' && c <= 'Z') {
+				char[] lowered = text.toCharArray();
+				for (int j = idx; j < lowered.length; j++) {
+					if (lowered[j] >= 'A' && lowered[j] <= 'Z') {
+						lowered[j] = (char) (lowered[j] + ('a' - 'A'));
+					}
+				}
+				return new String(lowered);
+			}
+		}
+		return text;
+	}
+}
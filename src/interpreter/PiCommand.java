@@ -7,10 +7,25 @@ package interpreter;
  * @date 2/26/18
  *
  */
-class PiCommand extends Command{
+final class PiCommand extends Command{
 
     @Override
     protected double execute() {
 	return Math.PI;
     }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+	return Math.PI;
+    }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return true;
+    }
 }
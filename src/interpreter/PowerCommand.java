@@ -14,6 +14,8 @@ class PowerCommand extends Command{
 
     private Command baseCommand;
     private Command exponentCommand;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected PowerCommand(Command base, Command power, Map<String, Double> variables, Turtle turtles) {
@@ -21,20 +23,34 @@ class PowerCommand extends Command{
 	exponentCommand = power;
 	myVariables = variables;
 	setActiveTurtles(turtles);
+	isPure = base.isPure() && power.isPure();
+	isTurtleIndependent = base.isTurtleIndependent() && power.isTurtleIndependent();
     }
     @Override
     protected double execute() throws UnidentifiedCommandException {
     	double BASE = getCommandValue(baseCommand, myVariables, getActiveTurtles().toSingleTurtle());
     	double POWER = getCommandValue(exponentCommand, myVariables, getActiveTurtles().toSingleTurtle());
-    	getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(baseCommand, myVariables, myTurtle);
-    		getCommandValue(exponentCommand, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    	if (!isPure) {
+    		getActiveTurtles().executeSequentially(myTurtle -> {
+    			try {
+    			getCommandValue(baseCommand, myVariables, myTurtle);
+    			getCommandValue(exponentCommand, myVariables, myTurtle);
+    			}
+    			catch(UnidentifiedCommandException e) {
+    				throw new UnidentifiedCommandError("Improper # arguments");
+    			}
+    		});
+    	}
 	return Math.pow(BASE, POWER);
     }
+
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
@@ -0,0 +1,483 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Translates the BytecodeProgram of the body of a user-defined command (or of a hot cached program) into a JVM
+ * class (a subclass of CompiledProcedure), so that HotSpot can compile the body, inlining math and turtle
+ * commands, rather than interpreting it. The operand stack of the program becomes the JVM operand stack; each
+ * running loop keeps its range, current value and the outer value of its variable in local variables, and has
+ * an exception handler that restores its variable (as BytecodeInterpreter does when a command throws). Each
+ * list of a conditional has an exception handler that makes the conditional return 0 (see
+ * BytecodeInterpreter.unwind).
+ *
+ */
+class ProcedureCompiler {
+	public static final String DEFAULT_SUPERCLASS_NAME = "interpreter/CompiledProcedure";
+	public static final String DEFAULT_CLASS_NAME_PREFIX = "interpreter/GeneratedProcedure";
+	public static final int MAX_BRANCH_OFFSET = Short.MAX_VALUE;
+
+	private static final String TURTLE_DESCRIPTOR = "Linterpreter/Turtle;";
+	private static final String RUN_DESCRIPTOR = "(" + TURTLE_DESCRIPTOR + TURTLE_DESCRIPTOR + ")D";
+	// local variables of the generated run method (doubles take two)
+	private static final int TURTLES_LOCAL = 1;
+	private static final int ACTIVE_TURTLES_LOCAL = 2;
+	private static final int TREES_LOCAL = 3;
+	private static final int ARGS_LOCAL = 4;
+	private static final int EXCEPTION_LOCAL = 5;
+	private static final int FIRST_TEMP_LOCAL = 6;
+	private static final int SECOND_TEMP_LOCAL = 8;
+	private static final int FIRST_LOOP_LOCAL = 10;
+	private static final int NUM_LOOP_LOCALS = 11;
+	private static final int MAX_LOCALS = 256;
+	// offsets of a loop's local variables from its first
+	private static final int LOOP_RETURN_VALUE = 0;
+	private static final int LOOP_END = 2;
+	private static final int LOOP_INCREMENT = 4;
+	private static final int LOOP_COUNTER = 6;
+	private static final int LOOP_OUTER_VALUE = 8;
+	private static final int LOOP_OUTER_IS_SET = 10;
+
+	private static int ourNumClasses;
+
+	private CommandTreeReader myCommandTreeReader;
+	private ClassFileWriter myWriter;
+	private byte[] myCode;
+	private int myCodeSize;
+
+	protected ProcedureCompiler(CommandTreeReader commandTreeReader) {
+		myCommandTreeReader = commandTreeReader;
+	}
+
+	/**
+	 * @param program is the compiled body of a user-defined command
+	 * @return instance of the generated class, or null if the body cannot be translated (e.g. it is too large)
+	 */
+	protected CompiledProcedure compile(BytecodeProgram program) {
+		int numLoopLocals = (program.getMaxStackSize()/4) * NUM_LOOP_LOCALS;
+		if (FIRST_LOOP_LOCAL + numLoopLocals > MAX_LOCALS) {
+			return null;
+		}
+		String className = nextClassName();
+		myWriter = new ClassFileWriter(className, DEFAULT_SUPERCLASS_NAME);
+		myWriter.addDefaultConstructor(DEFAULT_SUPERCLASS_NAME);
+		myCode = new byte[256];
+		myCodeSize = 0;
+		List<int[]> exceptionTable = translate(program);
+		if (exceptionTable == null || myCodeSize > MAX_BRANCH_OFFSET) {
+			return null;
+		}
+		myWriter.addMethod(ClassFileWriter.ACC_PROTECTED, "run", RUN_DESCRIPTOR, Arrays.copyOf(myCode, myCodeSize),
+				2*program.getMaxStackSize() + 10, FIRST_LOOP_LOCAL + numLoopLocals, exceptionTable);
+		try {
+			Class<?> generatedClass = new ProcedureClassLoader().define(className.replace('/', '.'), myWriter.toByteArray());
+			CompiledProcedure procedure = (CompiledProcedure) generatedClass.getConstructor().newInstance();
+			procedure.setUp(program, myCommandTreeReader);
+			return procedure;
+		}
+		catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	private static synchronized String nextClassName() {
+		return DEFAULT_CLASS_NAME_PREFIX + (ourNumClasses++);
+	}
+
+	/**
+	 * Writes the code of the run method
+	 * @return its exception table, or null if the program cannot be translated (a conditional starts with
+	 * values on the stack, which the JVM drops when an exception is thrown)
+	 */
+	private List<int[]> translate(BytecodeProgram program) {
+		int[] code = program.getCode();
+		double[] constants = program.getConstants();
+		int[] jvmOffsets = new int[code.length + 1];
+		List<int[]> forwardBranches = new ArrayList<int[]>();
+		List<int[]> openLoops = new ArrayList<int[]>();
+		List<Region> openRegions = new ArrayList<Region>();
+		List<Region> regions = new ArrayList<Region>();
+		if (program.getTrees().length > 0) {
+			pushInt(program.getTrees().length);
+			emitIndex(ClassFileWriter.ANEWARRAY, myWriter.classRef("java/lang/Object"));
+			emitLocal(ClassFileWriter.ASTORE, TREES_LOCAL);
+		}
+		int pc = 0;
+		while (pc < code.length) {
+			jvmOffsets[pc] = myCodeSize;
+			int opcode = code[pc];
+			int loopLocal = FIRST_LOOP_LOCAL + (openLoops.size() - 1) * NUM_LOOP_LOCALS;
+			switch (opcode) {
+			case BytecodeProgram.CONST:
+				if (Double.doubleToRawLongBits(constants[code[pc+1]]) == 0) {
+					emit(ClassFileWriter.DCONST_0);
+				}
+				else {
+					emitIndex(ClassFileWriter.LDC2_W, myWriter.doubleConstant(constants[code[pc+1]]));
+				}
+				break;
+			case BytecodeProgram.LOAD:
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				invokeVirtual("load", "(I)D");
+				break;
+			case BytecodeProgram.STORE:
+				emitLocal(ClassFileWriter.DSTORE, FIRST_TEMP_LOCAL);
+				emit(ClassFileWriter.ALOAD_0);
+				emitLocal(ClassFileWriter.DLOAD, FIRST_TEMP_LOCAL);
+				pushInt(code[pc+1]);
+				invokeVirtual("store", "(DI)D");
+				break;
+			case BytecodeProgram.POP:
+				emit(ClassFileWriter.POP2);
+				break;
+			case BytecodeProgram.ADD:
+				emit(ClassFileWriter.DADD);
+				break;
+			case BytecodeProgram.SUB:
+				emit(ClassFileWriter.DSUB);
+				break;
+			case BytecodeProgram.MUL:
+				emit(ClassFileWriter.DMUL);
+				break;
+			case BytecodeProgram.DIV:
+				emit(ClassFileWriter.DDIV);
+				break;
+			case BytecodeProgram.REM:
+				emit(ClassFileWriter.DREM);
+				break;
+			case BytecodeProgram.NEG:
+			case BytecodeProgram.SIN:
+			case BytecodeProgram.COS:
+			case BytecodeProgram.TAN:
+			case BytecodeProgram.ATAN:
+			case BytecodeProgram.LOG:
+			case BytecodeProgram.NOT:
+				emitStaticCall(opcode, false, 1, "operator", "(IDD)D");
+				break;
+			case BytecodeProgram.POW:
+			case BytecodeProgram.LESS:
+			case BytecodeProgram.GREATER:
+			case BytecodeProgram.EQUAL:
+			case BytecodeProgram.NOT_EQUAL:
+			case BytecodeProgram.AND:
+			case BytecodeProgram.OR:
+				emitStaticCall(opcode, false, 2, "operator", "(IDD)D");
+				break;
+			case BytecodeProgram.PI:
+				emitIndex(ClassFileWriter.LDC2_W, myWriter.doubleConstant(Math.PI));
+				break;
+			case BytecodeProgram.FORWARD:
+			case BytecodeProgram.BACKWARD:
+			case BytecodeProgram.LEFT:
+			case BytecodeProgram.RIGHT:
+			case BytecodeProgram.SET_HEADING:
+			case BytecodeProgram.PEN_DOWN_FORWARD_PEN_UP:
+			case BytecodeProgram.PEN_DOWN_BACKWARD_PEN_UP:
+				emitStaticCall(opcode, true, 1, "turtleCommand", "(I" + TURTLE_DESCRIPTOR + "DD)D");
+				break;
+			case BytecodeProgram.SET_POSITION:
+			case BytecodeProgram.FORWARD_RIGHT:
+			case BytecodeProgram.FORWARD_LEFT:
+			case BytecodeProgram.BACKWARD_RIGHT:
+			case BytecodeProgram.BACKWARD_LEFT:
+				emitStaticCall(opcode, true, 2, "turtleCommand", "(I" + TURTLE_DESCRIPTOR + "DD)D");
+				break;
+			case BytecodeProgram.PEN_DOWN:
+			case BytecodeProgram.PEN_UP:
+			case BytecodeProgram.SHOW_TURTLE:
+			case BytecodeProgram.HIDE_TURTLE:
+			case BytecodeProgram.HOME:
+			case BytecodeProgram.CLEAR_SCREEN:
+				emitStaticCall(opcode, true, 0, "turtleCommand", "(I" + TURTLE_DESCRIPTOR + "DD)D");
+				break;
+			case BytecodeProgram.LOOP_BEGIN:
+				loopLocal += NUM_LOOP_LOCALS;
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_INCREMENT);
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_END);
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_COUNTER);
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_RETURN_VALUE);
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				invokeVirtual("isSet", "(I)Z");
+				emitLocal(ClassFileWriter.ISTORE, loopLocal + LOOP_OUTER_IS_SET);
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				invokeVirtual("load", "(I)D");
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_OUTER_VALUE);
+				openLoops.add(new int[] {myCodeSize, code[pc+1], loopLocal});
+				openRegions.add(new Region(myCodeSize, code[pc+1], loopLocal, openRegions));
+				break;
+			case BytecodeProgram.LOOP_TEST:
+				emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_COUNTER);
+				emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_END);
+				emit(ClassFileWriter.DCMPG);
+				forwardBranches.add(new int[] {myCodeSize, code[pc+2]});
+				emitIndex(ClassFileWriter.IFGT, 0);
+				emit(ClassFileWriter.ALOAD_0);
+				emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_COUNTER);
+				pushInt(code[pc+1]);
+				invokeVirtual("store", "(DI)D");
+				emit(ClassFileWriter.POP2);
+				break;
+			case BytecodeProgram.LOOP_NEXT:
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_RETURN_VALUE);
+				emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_COUNTER);
+				emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_INCREMENT);
+				emit(ClassFileWriter.DADD);
+				emitLocal(ClassFileWriter.DSTORE, loopLocal + LOOP_COUNTER);
+				int branch = myCodeSize;
+				emitIndex(ClassFileWriter.GOTO, (jvmOffsets[code[pc+1]] - branch) & 0xffff);
+				break;
+			case BytecodeProgram.LOOP_END: {
+				int[] loop = openLoops.remove(openLoops.size() - 1);
+				closeRegion(openRegions, regions);
+				emitRestore(loop[1], loop[2]);
+				emitLocal(ClassFileWriter.DLOAD, loop[2] + LOOP_RETURN_VALUE);
+				break;
+			}
+			case BytecodeProgram.CALL: {
+				int numArgs = code[pc+2];
+				pushInt(numArgs);
+				emit(ClassFileWriter.NEWARRAY);
+				emit(ClassFileWriter.T_DOUBLE);
+				emitLocal(ClassFileWriter.ASTORE, ARGS_LOCAL);
+				for (int k = numArgs - 1; k >= 0; k--) {
+					emitLocal(ClassFileWriter.DSTORE, FIRST_TEMP_LOCAL);
+					emitLocal(ClassFileWriter.ALOAD, ARGS_LOCAL);
+					pushInt(k);
+					emitLocal(ClassFileWriter.DLOAD, FIRST_TEMP_LOCAL);
+					emit(ClassFileWriter.DASTORE);
+				}
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				emitLocal(ClassFileWriter.ALOAD, ARGS_LOCAL);
+				emitLocal(ClassFileWriter.ALOAD, TURTLES_LOCAL);
+				emitLocal(ClassFileWriter.ALOAD, ACTIVE_TURTLES_LOCAL);
+				invokeVirtual("call", "(I[D" + TURTLE_DESCRIPTOR + TURTLE_DESCRIPTOR + ")D");
+				break;
+			}
+			case BytecodeProgram.EXEC_TREE:
+				emit(ClassFileWriter.ALOAD_0);
+				emitLocal(ClassFileWriter.ALOAD, TREES_LOCAL);
+				pushInt(code[pc+1]);
+				emitLocal(ClassFileWriter.ALOAD, TURTLES_LOCAL);
+				emitLocal(ClassFileWriter.ALOAD, ACTIVE_TURTLES_LOCAL);
+				invokeVirtual("executeTree", "([Ljava/lang/Object;I" + TURTLE_DESCRIPTOR + TURTLE_DESCRIPTOR + ")D");
+				break;
+			case BytecodeProgram.EXEC_STATEMENT:
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				emitLocal(ClassFileWriter.ALOAD, TURTLES_LOCAL);
+				emitLocal(ClassFileWriter.ALOAD, ACTIVE_TURTLES_LOCAL);
+				invokeVirtual("executeStatement", "(I" + TURTLE_DESCRIPTOR + TURTLE_DESCRIPTOR + ")D");
+				break;
+			case BytecodeProgram.JUMP:
+				forwardBranches.add(new int[] {myCodeSize, code[pc+1]});
+				emitIndex(ClassFileWriter.GOTO, 0);
+				break;
+			case BytecodeProgram.JUMP_UNLESS_POSITIVE:
+				// DCMPL makes NaN less than 0, as "> 0" is false for it
+				emit(ClassFileWriter.DCONST_0);
+				emit(ClassFileWriter.DCMPL);
+				forwardBranches.add(new int[] {myCodeSize, code[pc+1]});
+				emitIndex(ClassFileWriter.IFLE, 0);
+				break;
+			case BytecodeProgram.JUMP_UNLESS_PURE:
+				emit(ClassFileWriter.ALOAD_0);
+				pushInt(code[pc+1]);
+				pushInt(code[pc+2]);
+				invokeVirtual("isPureCall", "(II)Z");
+				forwardBranches.add(new int[] {myCodeSize, code[pc+3]});
+				emitIndex(ClassFileWriter.IFEQ, 0);
+				break;
+			case BytecodeProgram.TRY_BEGIN:
+				if (code[pc+2] != 4*openLoops.size()) {
+					return null;
+				}
+				openRegions.add(new Region(myCodeSize, code[pc+1], openRegions));
+				break;
+			case BytecodeProgram.TRY_END:
+				closeRegion(openRegions, regions);
+				break;
+			default:
+				throw new IllegalStateException("Unknown opcode " + opcode);
+			}
+			pc += BytecodeProgram.getLength(opcode);
+		}
+		jvmOffsets[code.length] = myCodeSize;
+		emit(ClassFileWriter.DRETURN);
+		for (int[] branch : forwardBranches) {
+			int offset = jvmOffsets[branch[1]] - branch[0];
+			myCode[branch[0] + 1] = (byte) (offset >> 8);
+			myCode[branch[0] + 2] = (byte) offset;
+		}
+		for (Region region : regions) {
+			region.myHandlerStart = myCodeSize;
+			if (region.isLoop) {
+				emitLocal(ClassFileWriter.ASTORE, EXCEPTION_LOCAL);
+				emitRestore(region.myVariableIdx, region.myLoopLocal);
+				emitLocal(ClassFileWriter.ALOAD, EXCEPTION_LOCAL);
+				invokeStatic("loopFailed", "(Ljava/lang/Throwable;)Ljava/lang/Throwable;");
+				emit(ClassFileWriter.ATHROW);
+			}
+			else {
+				invokeStatic("conditionalFailed", "(Ljava/lang/Throwable;)D");
+				int branch = myCodeSize;
+				emitIndex(ClassFileWriter.GOTO, (jvmOffsets[region.myTarget] - branch) & 0xffff);
+			}
+			region.myHandlerEnd = myCodeSize;
+		}
+		// regions are in the order they end, so inner ones come first; a handler rethrows to the regions around it
+		List<int[]> exceptionTable = new ArrayList<int[]>();
+		for (Region region : regions) {
+			exceptionTable.add(new int[] {region.myStart, region.myEnd, region.myHandlerStart});
+		}
+		for (Region region : regions) {
+			for (int k = region.myEnclosingRegions.size() - 1; k >= 0; k--) {
+				exceptionTable.add(new int[] {region.myHandlerStart, region.myHandlerEnd, region.myEnclosingRegions.get(k).myHandlerStart});
+			}
+		}
+		return exceptionTable;
+	}
+
+	private void closeRegion(List<Region> openRegions, List<Region> regions) {
+		Region region = openRegions.remove(openRegions.size() - 1);
+		region.myEnd = myCodeSize;
+		regions.add(region);
+	}
+
+	/**
+	 * Gives the variable of the loop whose local variables start at loopLocal its outer value back
+	 */
+	private void emitRestore(int variableIdx, int loopLocal) {
+		emit(ClassFileWriter.ALOAD_0);
+		pushInt(variableIdx);
+		emitLocal(ClassFileWriter.DLOAD, loopLocal + LOOP_OUTER_VALUE);
+		emitLocal(ClassFileWriter.ILOAD, loopLocal + LOOP_OUTER_IS_SET);
+		invokeVirtual("restore", "(IDZ)V");
+	}
+
+	/**
+	 * Calls a static method of CompiledProcedure taking (opcode, [active turtles,] double, double), with the
+	 * numArgs doubles on top of the stack as its first arguments (the others are 0)
+	 */
+	private void emitStaticCall(int opcode, boolean takesTurtles, int numArgs, String name, String descriptor) {
+		if (numArgs == 2) {
+			emitLocal(ClassFileWriter.DSTORE, SECOND_TEMP_LOCAL);
+		}
+		if (numArgs >= 1) {
+			emitLocal(ClassFileWriter.DSTORE, FIRST_TEMP_LOCAL);
+		}
+		pushInt(opcode);
+		if (takesTurtles) {
+			emitLocal(ClassFileWriter.ALOAD, ACTIVE_TURTLES_LOCAL);
+		}
+		if (numArgs >= 1) {
+			emitLocal(ClassFileWriter.DLOAD, FIRST_TEMP_LOCAL);
+		}
+		else {
+			emit(ClassFileWriter.DCONST_0);
+		}
+		if (numArgs == 2) {
+			emitLocal(ClassFileWriter.DLOAD, SECOND_TEMP_LOCAL);
+		}
+		else {
+			emit(ClassFileWriter.DCONST_0);
+		}
+		invokeStatic(name, descriptor);
+	}
+
+	private void invokeVirtual(String name, String descriptor) {
+		emitIndex(ClassFileWriter.INVOKEVIRTUAL, myWriter.methodRef(DEFAULT_SUPERCLASS_NAME, name, descriptor));
+	}
+
+	private void invokeStatic(String name, String descriptor) {
+		emitIndex(ClassFileWriter.INVOKESTATIC, myWriter.methodRef(DEFAULT_SUPERCLASS_NAME, name, descriptor));
+	}
+
+	private void pushInt(int value) {
+		if (value >= 0 && value <= 5) {
+			emit(ClassFileWriter.ICONST_0 + value);
+		}
+		else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+			emit(ClassFileWriter.BIPUSH);
+			emit(value);
+		}
+		else {
+			emitIndex(ClassFileWriter.SIPUSH, value);
+		}
+	}
+
+	private void emitLocal(int opcode, int local) {
+		emit(opcode);
+		emit(local);
+	}
+
+	private void emitIndex(int opcode, int index) {
+		emit(opcode);
+		emit(index >> 8);
+		emit(index);
+	}
+
+	private void emit(int value) {
+		if (myCodeSize == myCode.length) {
+			myCode = Arrays.copyOf(myCode, 2 * myCode.length);
+		}
+		myCode[myCodeSize++] = (byte) value;
+	}
+
+	/**
+	 * Code of a loop or of a list of a conditional, with the exception handler that ends it if a command throws
+	 */
+	private static class Region {
+		private boolean isLoop;
+		private int myStart;
+		private int myEnd;
+		private int myVariableIdx;
+		private int myLoopLocal;
+		private int myTarget;
+		private int myHandlerStart;
+		private int myHandlerEnd;
+		private List<Region> myEnclosingRegions;
+
+		/**
+		 * Region of a loop
+		 */
+		Region(int start, int variableIdx, int loopLocal, List<Region> openRegions) {
+			this(start, openRegions);
+			isLoop = true;
+			myVariableIdx = variableIdx;
+			myLoopLocal = loopLocal;
+		}
+
+		/**
+		 * Region of a list of a conditional
+		 * @param target is end of the conditional in the program
+		 */
+		Region(int start, int target, List<Region> openRegions) {
+			this(start, openRegions);
+			myTarget = target;
+		}
+
+		private Region(int start, List<Region> openRegions) {
+			myStart = start;
+			myEnclosingRegions = new ArrayList<Region>(openRegions);
+		}
+	}
+
+	/**
+	 * Defines one generated class, which can be unloaded (with its loader) once it is no longer used
+	 */
+	private static class ProcedureClassLoader extends ClassLoader {
+		ProcedureClassLoader() {
+			super(CompiledProcedure.class.getClassLoader());
+		}
+
+		Class<?> define(String name, byte[] classFile) {
+			return defineClass(name, classFile, 0, classFile.length);
+		}
+	}
+}
@@ -14,6 +14,8 @@ class ProductCommand extends Command{
 
     private Command expr1Command;
     private Command expr2Command;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected ProductCommand(Command expr1, Command expr2 ,Map<String, Double> variables, Turtle turtles) {
@@ -21,20 +23,34 @@ class ProductCommand extends Command{
     		expr2Command = expr2;
     		myVariables = variables;
     		setActiveTurtles(turtles);
+    		isPure = expr1.isPure() && expr2.isPure();
+    		isTurtleIndependent = expr1.isTurtleIndependent() && expr2.isTurtleIndependent();
     }
     @Override
     protected double execute() throws UnidentifiedCommandException {
     double EXPR1Ret =  getCommandValue(expr1Command, myVariables, getActiveTurtles().toSingleTurtle());
     double EXPR2Ret = getCommandValue(expr2Command, myVariables, getActiveTurtles().toSingleTurtle());;
-    getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(expr1Command, myVariables, myTurtle);
-    		getCommandValue(expr2Command, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    if (!isPure) {
+        getActiveTurtles().executeSequentially(myTurtle -> {
+        		try {
+        		getCommandValue(expr1Command, myVariables, myTurtle);
+        		getCommandValue(expr2Command, myVariables, myTurtle);
+        		}
+        		catch(UnidentifiedCommandException e) {
+        			throw new UnidentifiedCommandError("Improper # arguments");
+        		}
+        	});
+    }
 	return EXPR1Ret*EXPR2Ret;
     }
+
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,72 @@
+package interpreter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used cache from normalized source text (in a given language) to the CompiledProgram
+ * built from it, so that inputs run again (e.g. from the history or a button) skip lexing and building.
+ * Must be cleared whenever a user-defined command changes, since trees depend on the commands that exist.
+ *
+ */
+class ProgramCache {
+
+	public static final int DEFAULT_CAPACITY = 64;
+	private static final String KEY_SEPARATOR = "\n";
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private Map<String, CompiledProgram> myPrograms;
+
+	protected ProgramCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	protected ProgramCache(final int capacity) {
+		myPrograms = new LinkedHashMap<String, CompiledProgram>(capacity, LOAD_FACTOR, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledProgram> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * @param source is SLogo source, e.g. the contents of the command line
+	 * @return source with each line trimmed and blank lines removed, so that inputs differing only in
+	 * layout share an entry
+	 */
+	protected static String normalize(String source) {
+		StringBuilder normalized = new StringBuilder(source.length());
+		for (String line : source.split("\\r?\\n|\\r")) {
+			String trimmed = line.trim();
+			if (trimmed.length() > 0) {
+				if (normalized.length() > 0) {
+					normalized.append(KEY_SEPARATOR);
+				}
+				normalized.append(trimmed);
+			}
+		}
+		return normalized.toString();
+	}
+
+	/**
+	 * @return program built from the normalized source in the given language, or null if there is none
+	 */
+	protected CompiledProgram get(String language, String normalizedSource) {
+		return myPrograms.get(language + KEY_SEPARATOR + normalizedSource);
+	}
+
+	protected void put(String language, String normalizedSource, CompiledProgram program) {
+		myPrograms.put(language + KEY_SEPARATOR + normalizedSource, program);
+	}
+
+	protected void remove(String language, String normalizedSource) {
+		myPrograms.remove(language + KEY_SEPARATOR + normalizedSource);
+	}
+
+	protected void clear() {
+		myPrograms.clear();
+	}
+}
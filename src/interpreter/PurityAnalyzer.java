@@ -0,0 +1,173 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which user-defined commands are pure: a call of a pure command returns a value that depends only on
+ * its arguments and does nothing else, so a MemoTable can stand in for it. The analysis looks at the program
+ * the body is compiled to (the one ProcedureCompiler translates): the command is pure if the program has no
+ * turtle instructions, leaves to the tree-walker only math and logic on constants, variables and calls (e.g.
+ * "sum fib :a fib :b"; Random, the turtle queries and every other command end up there too), reads and writes
+ * no global variables other than the variables of the loops it is in (which the loops give back their outer
+ * values) and temporaries of the TreeOptimizer, and calls only pure commands. Commands that call each other are
+ * taken to be pure unless something else in them is not.
+ *
+ */
+class PurityAnalyzer {
+	private Map<String, UserProcedure> myUserProcedures;
+	private List<UserProcedure> myAnalyzing;
+	private int myOutermostAssumed;
+
+	/**
+	 * @param userProcedures is the user-defined commands, by name, that calls left to the tree-walker run
+	 */
+	protected PurityAnalyzer(Map<String, UserProcedure> userProcedures) {
+		myUserProcedures = userProcedures;
+		myAnalyzing = new ArrayList<UserProcedure>();
+		myOutermostAssumed = Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Decides whether procedure is pure, and records that (see UserProcedure.setPure), along with what is
+	 * decided for the commands it calls along the way
+	 */
+	protected void analyze(UserProcedure procedure) {
+		isPure(procedure);
+	}
+
+	/**
+	 * @return true if procedure is pure, given that the commands being analyzed are
+	 */
+	private boolean isPure(UserProcedure procedure) {
+		if (procedure.isAnalyzed()) {
+			return procedure.isPure();
+		}
+		int depth = myAnalyzing.indexOf(procedure);
+		if (depth >= 0) {
+			myOutermostAssumed = Math.min(myOutermostAssumed, depth);
+			return true;
+		}
+		depth = myAnalyzing.size();
+		myAnalyzing.add(procedure);
+		boolean pure;
+		try {
+			procedure.compileBody();
+			pure = isPure(procedure.getBodyBytecode());
+		}
+		catch (UnidentifiedCommandException e) {
+			pure = false;
+		}
+		myAnalyzing.remove(depth);
+		if (myOutermostAssumed >= depth) {
+			// nothing outside procedure was taken to be pure
+			myOutermostAssumed = Integer.MAX_VALUE;
+			procedure.setPure(pure);
+		}
+		else if (!pure) {
+			procedure.setPure(false);
+		}
+		return pure;
+	}
+
+	private boolean isPure(BytecodeProgram program) {
+		int[] code = program.getCode();
+		Variable[] variables = program.getVariables();
+		List<String> loopVariables = new ArrayList<String>();
+		for (int pc = 0; pc < code.length; pc += BytecodeProgram.getLength(code[pc])) {
+			switch (code[pc]) {
+			case BytecodeProgram.LOAD:
+			case BytecodeProgram.STORE:
+				if (!isPrivate(variables[code[pc+1]], loopVariables)) {
+					return false;
+				}
+				break;
+			case BytecodeProgram.LOOP_BEGIN:
+				loopVariables.add(variables[code[pc+1]].getName());
+				break;
+			case BytecodeProgram.LOOP_END:
+				loopVariables.remove(loopVariables.size() - 1);
+				break;
+			case BytecodeProgram.CALL:
+				if (!isPureCall(program.getProcedures()[code[pc+1]], code[pc+2])) {
+					return false;
+				}
+				break;
+			case BytecodeProgram.EXEC_TREE:
+			case BytecodeProgram.EXEC_STATEMENT:
+				if (!isPure(program.getTrees()[code[pc+1]], loopVariables)) {
+					return false;
+				}
+				break;
+			case BytecodeProgram.CONST:
+			case BytecodeProgram.POP:
+			case BytecodeProgram.LOOP_TEST:
+			case BytecodeProgram.LOOP_NEXT:
+			case BytecodeProgram.JUMP:
+			case BytecodeProgram.JUMP_UNLESS_POSITIVE:
+			case BytecodeProgram.JUMP_UNLESS_PURE:
+			case BytecodeProgram.TRY_BEGIN:
+			case BytecodeProgram.TRY_END:
+				break;
+			default:
+				// math and logic instructions are numbered from ADD to NOT
+				if (code[pc] < BytecodeProgram.ADD || code[pc] > BytecodeProgram.NOT) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param loopVariables is names of the variables of the loops the tree is in
+	 * @return true if the tree is a constant, a variable, or math and logic on constants, variables and calls,
+	 * that the tree-walker evaluates without doing anything else
+	 */
+	private boolean isPure(CommandNode node, List<String> loopVariables) {
+		if (node.getIsDouble()) {
+			return true;
+		}
+		if (node.getIsString()) {
+			return false;
+		}
+		if (node.getVariable() != null) {
+			return isPrivate(node.getVariable(), loopVariables);
+		}
+		List<CommandNode> children = node.getChildren();
+		if (node.getInfo().equals(CommandTreeBuilder.DEFAULT_USERCOMMAND_NAME)) {
+			UserProcedure callee = myUserProcedures.get(children.get(0).getInfo());
+			if (callee == null || !isPureCall(callee, children.size() - 1)) {
+				return false;
+			}
+			children = children.subList(1, children.size());
+		}
+		else if (BytecodeCompiler.getExpressionOpcode(node.getInfo()) == BytecodeCompiler.NOT_AN_EXPRESSION) {
+			return false;
+		}
+		for (CommandNode child : children) {
+			if (!isPure(child, loopVariables)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if a call of procedure with numArgs arguments runs a pure command
+	 */
+	private boolean isPureCall(UserProcedure procedure, int numArgs) {
+		UserProcedure callee = procedure.getDefinition();
+		return callee.getNumParams() == numArgs && isPure(callee);
+	}
+
+	/**
+	 * @param loopVariables is names of the variables of the loops the instruction using variable is in
+	 * @return true if nothing outside a call can see or change the value of variable there
+	 */
+	private boolean isPrivate(Variable variable, List<String> loopVariables) {
+		return variable.isLocal() || variable.getName().startsWith(VariableTable.DEFAULT_TEMPORARY_PREFIX)
+				|| loopVariables.contains(variable.getName());
+	}
+}
@@ -14,10 +14,14 @@ class QuotientCommand extends Command{
 
     private Command expr1Command;
     private Command expr2Command;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected QuotientCommand(Command expr1, Command expr2 ,Map<String, Double> variables, Turtle turtles) {
 	setActiveTurtles(turtles);
+	isPure = expr1.isPure() && expr2.isPure();
+	isTurtleIndependent = expr1.isTurtleIndependent() && expr2.isTurtleIndependent();
     	expr1Command = expr1;
 	expr2Command = expr2;
 	myVariables = variables;
@@ -26,16 +30,28 @@ class QuotientCommand extends Command{
     protected double execute() throws UnidentifiedCommandException{
     		double EXPR1 = getCommandValue(expr1Command, myVariables, getActiveTurtles().toSingleTurtle());
     		double EXPR2 = getCommandValue(expr2Command, myVariables, getActiveTurtles().toSingleTurtle());
-    getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(expr1Command, myVariables, myTurtle);
-    		getCommandValue(expr2Command, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-    			throw new UnidentifiedCommandError("Improper # arguments");
-    		}
-    	});
+    if (!isPure) {
+        getActiveTurtles().executeSequentially(myTurtle -> {
+        		try {
+        		getCommandValue(expr1Command, myVariables, myTurtle);
+        		getCommandValue(expr2Command, myVariables, myTurtle);
+        		}
+        		catch(UnidentifiedCommandException e) {
+        			throw new UnidentifiedCommandError("Improper # arguments");
+        		}
+        	});
+    }
 	
 	return EXPR1/EXPR2;
     }
+
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
\ No newline at end of file
@@ -32,6 +32,10 @@ import java.util.Map;
 	 */
 	protected double execute() throws UnidentifiedCommandException {
 		double degreesReturn = getCommandValue(myDegreesCommand, myVariables, getActiveTurtles().toSingleTurtle());
+		if (myDegreesCommand.isTurtleIndependent()) {
+			getActiveTurtles().turn(degreesReturn);
+			return degreesReturn;
+		}
 		getActiveTurtles().executeSequentially(myTurtle -> {
 			try {
 			double degrees = getCommandValue(myDegreesCommand, myVariables, myTurtle); 
@@ -33,6 +33,10 @@ import java.util.Map;
 	 */
 	protected double execute() throws UnidentifiedCommandException {
 		double degreesRet = getCommandValue(myDegreesCommand, myVariables, getActiveTurtles().toSingleTurtle());
+		if (myDegreesCommand.isTurtleIndependent()) {
+			getActiveTurtles().turn(-degreesRet);
+			return degreesRet;
+		}
 		getActiveTurtles().executeSequentially(myTurtle -> {
 			try {
 			double degrees = getCommandValue(myDegreesCommand, myVariables, myTurtle);
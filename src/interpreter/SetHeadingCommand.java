@@ -32,6 +32,10 @@ class SetHeadingCommand extends Command{
 	protected double execute() throws UnidentifiedCommandException {
 		double newAngleRet = getCommandValue(myDegreesCommand, myVariables, getActiveTurtles().toSingleTurtle());
 		double oldAngleRet = getActiveTurtles().toSingleTurtle().getAngle();
+		if (myDegreesCommand.isTurtleIndependent()) {
+			getActiveTurtles().setAngle(newAngleRet);
+			return (newAngleRet-oldAngleRet);
+		}
 		this.getActiveTurtles().executeSequentially(myTurtle -> {
 			try {
 			double newAngle = getCommandValue(myDegreesCommand, myVariables, myTurtle);
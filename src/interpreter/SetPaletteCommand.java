@@ -15,14 +15,14 @@ class SetPaletteCommand extends Command {
 	public static final String DEFAULT_COLORPALETTENAMES_FILE = "src/interpreter/ColorPaletteNames.properties"; 
 	public static final String DEFAULT_COLORNOTFOUND_MESSAGE = "Can't find colors";
 	public static final String DEFAULT_SAVINGISSUE_MESSAGE = "Can't save new color";
-	private HashMap<String, Double> myVars;
+	private Map<String, Double> myVars;
 	private Command myIdx;
 	private Command myR;
 	private Command myG;
 	private Command myB; 
 	
 	protected SetPaletteCommand( Command idx, Command r, Command g, Command b, Map<String, Double> vars) {
-		myVars = (HashMap<String, Double>) vars; 
+		myVars = vars; 
 		myIdx = idx;
 		myR = r;
 		myG = g;
@@ -1,6 +1,5 @@
 package interpreter;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -11,12 +10,12 @@ import java.util.Map;
 class SetPenSizeCommand extends Command {
 
 	Command myWidthCommand;
-	HashMap<String, Double> myVars;
+	Map<String, Double> myVars;
 	
 	protected SetPenSizeCommand(Turtle turtle, Command widthCommand, Map<String, Double> vars) {
 		setActiveTurtles(turtle); 
 		myWidthCommand = widthCommand;
-		myVars = (HashMap<String, Double>) vars; 
+		myVars = vars; 
 	}
 	
 	@Override
@@ -34,6 +34,15 @@ import java.util.Map;
 	 */
 	@Override 
 	protected double execute() {
+		if (myNewXCommand.isTurtleIndependent() && myNewYCommand.isTurtleIndependent()) {
+			try {
+				return getActiveTurtles().setXY(getCommandValue(myNewXCommand, myVariables, getActiveTurtles()),
+						getCommandValue(myNewYCommand, myVariables, getActiveTurtles()));
+			}
+			catch(UnidentifiedCommandException e) {
+				throw new UnidentifiedCommandError("Improper # arguments");
+			}
+		}
 		getActiveTurtles().executeSequentially( myTurtle ->{
 			try {
 			double newX = getCommandValue(myNewXCommand, myVariables, myTurtle);
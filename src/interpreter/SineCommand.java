@@ -13,25 +13,41 @@ import java.util.Map;
 class SineCommand extends Command{
 
     private Command degreesCommand;
+    private boolean isPure;
+    private boolean isTurtleIndependent;
     private Map<String, Double> myVariables; 
 
     protected SineCommand(Command degrees ,Map<String, Double> variables, Turtle turtles) {
     	setActiveTurtles(turtles);
+    	isPure = degrees.isPure();
+    	isTurtleIndependent = degrees.isTurtleIndependent();
 	degreesCommand = degrees;
 	myVariables = variables;
     }
     @Override
     protected double execute() throws UnidentifiedCommandException{
     	Double DEGREES = getCommandValue(degreesCommand, myVariables, getActiveTurtles());
-    	getActiveTurtles().executeSequentially(myTurtle -> {
-    		try {
-    		getCommandValue(degreesCommand, myVariables, myTurtle);
-    		}
-    		catch(UnidentifiedCommandException e) {
-				throw new UnidentifiedCommandError("Improper # arguments");
-		}
-    	});
+    	if (!isPure) {
+    		getActiveTurtles().executeSequentially(myTurtle -> {
+    			try {
+    			getCommandValue(degreesCommand, myVariables, myTurtle);
+    			}
+    			catch(UnidentifiedCommandException e) {
+					throw new UnidentifiedCommandError("Improper # arguments");
+			}
+    		});
+    	}
 	
 	return Math.sin(Math.toRadians(DEGREES));
     }
+
+    @Override
+    protected boolean isPure() {
+    	return isPure;
+    }
+
+    @Override
+    protected boolean isTurtleIndependent() {
+    	return isTurtleIndependent;
+    }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@
 	import javafx.scene.image.Image;
 	import javafx.scene.image.ImageView;
 	import javafx.scene.shape.Line;
+	import javafx.scene.shape.Polyline;
 
 	/**
 	 * Class of Turtles corresponding to a single Turtle object (as opposed to Multiple Turtles).
@@ -45,6 +46,7 @@
 		private double myY; 
 		private double myAngle; 
 		private double myImageIdx; 
+		private long myVersion;
 
 		
 		protected SingleTurtle() {
@@ -110,7 +112,12 @@
 			return turtle;
 		}
 		protected boolean containsTurtleWithID(String ID) {
-			return(ID.equals(new String("" + myID)));
+			try {
+				return Double.parseDouble(ID) == myID;
+			}
+			catch(NumberFormatException e) {
+				return false;
+			}
 		}
 		protected SingleTurtle getTurtleWithID(String ID) throws UnidentifiedCommandException{
 			if(containsTurtleWithID(ID)) {
@@ -132,6 +139,7 @@
 		}
 		
 		private void setImageIdx(double idx) {
+			myVersion++;
 			myImageIdx = idx;
 		}
 
@@ -139,10 +147,12 @@
 		 * Sets the visual image of the turtle to the image contained in filepath
 		 */
 		public void setImage(Image newImg) {
+			myVersion++;
 			myImage.setImage(newImg);
 		}
 		
 		protected void setOldXY(double oldX, double oldY) {
+			myVersion++;
 			myOldX = oldX;
 			myOldY = oldY;
 		}
@@ -155,6 +165,13 @@
 		public double getID() {
 			return myID; 
 		}
+
+		/**
+		 * @return number that changes each time the state of the turtle changes (see TurtleHolder)
+		 */
+		protected long getVersion() {
+			return myVersion;
+		}
 		
 		protected double getImageIdx() {
 			return myImageIdx;
@@ -215,11 +232,13 @@
 
 		// SETTERS
 		protected void hideTurtle() {
+			myVersion++;
 			myVisibility = false; 
 			myImage.setVisible(false);
 		}
 
 		protected void showTurtle() {
+			myVersion++;
 			myVisibility = true; 
 			myImage.setVisible(true);;
 		}
@@ -239,6 +258,7 @@
 		}
 
 		protected double setXY(double x, double y) {
+			myVersion++;
 			setOld();
 			myX = x; 
 			myY = y; 
@@ -247,6 +267,32 @@
 			myPen.drawLine(myOldX, myOldY, myX, myY);
 			return calcDistance(myOldX, myOldY, myX, myY);
 		}
+		/**
+		 * Moves the turtle to each of the given points in turn, leaving it as that many calls of setXY would,
+		 * but drawing the path as a single polyline (see TracePathCommand)
+		 * @param xs is x-coordinates of the points
+		 * @param ys is y-coordinates of the points
+		 * @param numPoints is number of points to move to (from the start of xs and ys)
+		 */
+		protected void tracePath(double[] xs, double[] ys, int numPoints) {
+			myVersion++;
+			if (numPoints == 0) {
+				return;
+			}
+			double startX = myX;
+			double startY = myY;
+			if (numPoints > 1) {
+				setOldXY(xs[numPoints-2], ys[numPoints-2]);
+			}
+			else {
+				setOld();
+			}
+			myX = xs[numPoints-1];
+			myY = ys[numPoints-1];
+			myImage.setX(myX - DEFAULT_TURTLE_SIZE/2);
+			myImage.setY(myY - DEFAULT_TURTLE_SIZE/2);
+			myPen.drawPath(startX, startY, xs, ys, numPoints);
+		}
 		/**
 		 * Calculates the distance between two points (as in how far the turtle moved)
 		 * @param oldX first x coordinate
@@ -273,32 +319,39 @@
 		 * Sets the visual image of the turtle to the image contained in filepath
 		 */
 		public void setImage(String filepath) {
+			myVersion++;
 			Image newImg = new Image(filepath);
 			myImage.setImage(newImg);
 		}
 
 		protected void setPenColor(String colorCode) {
+			myVersion++;
 			myPen.setColor(colorCode);
 		}
 		
 		protected void setPenWidth(double width) {
+			myVersion++;
 			myPen.setWidth(width);
 		}
 		
 		protected void setAngle(double angle) {
+			myVersion++;
 			myAngle = angle;
 			myImage.setRotate(angle);
 		}
 
 		protected void showPen() {
+			myVersion++;
 			myPen.putPenDown();
 		}
 
 		protected void hidePen() {
+			myVersion++;
 			myPen.putPenUp();
 		}
 
 		protected void clearPen() {
+			myVersion++;
 			myPen.clear();
 		}
 		
@@ -430,6 +483,29 @@
 					myPenLines.getChildren().add(line);
 				}
 			}
+			/**
+			 * Draws the path of a turtle that moved through several points, if the pen is currently down
+			 * @param startX is x coordinate of turtle before it moved
+			 * @param startY is y coordinate of turtle before it moved
+			 * @param xs is x coordinates of the points it moved to, in order
+			 * @param ys is y coordinates of the points it moved to, in order
+			 * @param numPoints is number of points it moved to
+			 */
+			private void drawPath(double startX, double startY, double[] xs, double[] ys, int numPoints) {
+				if(myIsDown) {
+					double[] points = new double[2*numPoints + 2];
+					points[0] = startX;
+					points[1] = startY;
+					for (int k = 0; k < numPoints; k++) {
+						points[2*k + 2] = xs[k];
+						points[2*k + 3] = ys[k];
+					}
+					Polyline path = new Polyline(points);
+					path.setStyle("-fx-stroke: #" + myColorCode + ";");
+					path.setStrokeWidth(myWidth);
+					myPenLines.getChildren().add(path);
+				}
+			}
 			/**
 			 * Clears all lines previously drawn by the pen from the screen
 			 */
@@ -0,0 +1,73 @@
+package interpreter;
+
+/**
+ * Registers the built-in commands of SLogo with the CommandRegistry, each under its language-independent name.
+ *
+ */
+final class StandardCommands implements CommandProvider {
+
+	@Override
+	public void registerCommands(CommandRegistry registry) {
+		registry.register("Forward", (factory, args, turtles, activeTurtles) -> new MoveTurtleForwardCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("Backward", (factory, args, turtles, activeTurtles) -> new MoveTurtleBackwardCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("Left", (factory, args, turtles, activeTurtles) -> new RotateTurtleCounterclockwiseCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("Right", (factory, args, turtles, activeTurtles) -> new RotateTurtleClockwiseCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("SetHeading", (factory, args, turtles, activeTurtles) -> new SetHeadingCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("SetTowards", (factory, args, turtles, activeTurtles) -> new SetTowardsCommand(args.get(0), args.get(1), activeTurtles, factory.getVariables()));
+		registry.register("SetPosition", (factory, args, turtles, activeTurtles) -> new SetPositionCommand(args.get(0), args.get(1), activeTurtles, factory.getVariables()));
+		registry.register("PenDown", (factory, args, turtles, activeTurtles) -> new PenDownCommand(activeTurtles));
+		registry.register("PenUp", (factory, args, turtles, activeTurtles) -> new PenUpCommand(activeTurtles));
+		registry.register("ShowTurtle", (factory, args, turtles, activeTurtles) -> new ShowTurtleCommand(activeTurtles));
+		registry.register("HideTurtle", (factory, args, turtles, activeTurtles) -> new HideTurtleCommand(activeTurtles));
+		registry.register("Home", (factory, args, turtles, activeTurtles) -> new HomeCommand(activeTurtles));
+		registry.register("ClearScreen", (factory, args, turtles, activeTurtles) -> new ClearScreenCommand(activeTurtles));
+		registry.register("XCoordinate", (factory, args, turtles, activeTurtles) -> new XCoordinateQueryCommand(activeTurtles));
+		registry.register("YCoordinate", (factory, args, turtles, activeTurtles) -> new YCoordinateQueryCommand(activeTurtles));
+		registry.register("Heading", (factory, args, turtles, activeTurtles) -> new HeadingQueryCommand(activeTurtles));
+		registry.register("IsPenDown", (factory, args, turtles, activeTurtles) -> new IsPenDownQueryCommand(activeTurtles));
+		registry.register("IsShowing", (factory, args, turtles, activeTurtles) -> new IsShowingQueryCommand(activeTurtles));
+		registry.register("Sum", (factory, args, turtles, activeTurtles) -> new SumCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Difference", (factory, args, turtles, activeTurtles) -> new DifferenceCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Product", (factory, args, turtles, activeTurtles) -> new ProductCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Quotient", (factory, args, turtles, activeTurtles) -> new QuotientCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Remainder", (factory, args, turtles, activeTurtles) -> new RemainderCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Minus", (factory, args, turtles, activeTurtles) -> new MinusCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("Random", (factory, args, turtles, activeTurtles) -> new RandomCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("Sine", (factory, args, turtles, activeTurtles) -> new SineCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("Cosine", (factory, args, turtles, activeTurtles) -> new CosineCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("Tangent", (factory, args, turtles, activeTurtles) -> new TangentCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("ArcTangent", (factory, args, turtles, activeTurtles) -> new ArcTangentCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("NaturalLog", (factory, args, turtles, activeTurtles) -> new NaturalLogCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("Power", (factory, args, turtles, activeTurtles) -> new PowerCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Pi", (factory, args, turtles, activeTurtles) -> new PiCommand());
+		registry.register("LessThan", (factory, args, turtles, activeTurtles) -> new LessThanCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("GreaterThan", (factory, args, turtles, activeTurtles) -> new GreaterThanCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Equal", (factory, args, turtles, activeTurtles) -> new EqualCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("NotEqual", (factory, args, turtles, activeTurtles) -> new NotEqualCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("And", (factory, args, turtles, activeTurtles) -> new AndCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Or", (factory, args, turtles, activeTurtles) -> new OrCommand(args.get(0), args.get(1), factory.getVariables(), activeTurtles));
+		registry.register("Not", (factory, args, turtles, activeTurtles) -> new NotCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("DoTimes", (factory, args, turtles, activeTurtles) -> new DoTimesCommand(args.get(0), args.get(1), args.get(2), activeTurtles));
+		registry.register("Repeat", (factory, args, turtles, activeTurtles) -> new DoTimesCommand(args.get(0), args.get(1), args.get(2), activeTurtles));
+		registry.register("If", (factory, args, turtles, activeTurtles) -> new IfCommand(args.get(1), args.get(0), turtles, activeTurtles, factory.getVariables(), factory.getUserDefCommands(), factory.getUserProcedures()));
+		registry.register("IfElse", (factory, args, turtles, activeTurtles) -> new IfElseCommand(args.get(2), args.get(0), args.get(1), turtles, activeTurtles, factory.getVariables(), factory.getUserDefCommands(), factory.getUserProcedures()));
+		registry.register("MakeVariable", (factory, args, turtles, activeTurtles) -> new MakeVariableCommand(args.get(0), args.get(1)));
+		registry.register("MakeUserInstruction", (factory, args, turtles, activeTurtles) -> new MakeUserInstructionCommand(args.get(0), args.get(1), args.get(2), factory.getVariables(), factory.getUserDefCommands(), factory.getUserProcedures()));
+		registry.register("UserInstruction", (factory, args, turtles, activeTurtles) -> new UserInstructionCommand(turtles, activeTurtles, args.get(0), args.subList(1, args.size()), factory.getVariables(), factory.getUserProcedures()));
+		registry.register("SetBackground", (factory, args, turtles, activeTurtles) -> new SetBackgroundColorCommand(args.get(0), factory.getVariables(), activeTurtles));
+		registry.register("SetPenColor", (factory, args, turtles, activeTurtles) -> new SetPenColorCommand(args.get(0), activeTurtles, factory.getVariables()));
+		registry.register("SetPenSize", (factory, args, turtles, activeTurtles) -> new SetPenSizeCommand(activeTurtles, args.get(0), factory.getVariables()));
+		registry.register("SetShape", (factory, args, turtles, activeTurtles) -> new SetShapeCommand(activeTurtles, args.get(0), factory.getVariables()));
+		registry.register("GetPenColor", (factory, args, turtles, activeTurtles) -> new GetPenColorCommand(activeTurtles));
+		registry.register("GetShape", (factory, args, turtles, activeTurtles) -> new GetShapeCommand(activeTurtles));
+		registry.register("SetPalette", (factory, args, turtles, activeTurtles) -> new SetPaletteCommand(args.get(0), args.get(1), args.get(2), args.get(3), factory.getVariables()));
+		registry.register("For", (factory, args, turtles, activeTurtles) -> new ForCommand(args.get(0), args.get(1), args.get(2), args.get(3), args.get(4), activeTurtles));
+		registry.register("Block", (factory, args, turtles, activeTurtles) -> new BlockCommand(args, activeTurtles));
+		registry.register(TreeOptimizer.DEFAULT_TRACE_PATH_IDENTIFIER, (factory, args, turtles, activeTurtles) -> new TracePathCommand(args, activeTurtles));
+		registry.register("ID", (factory, args, turtles, activeTurtles) -> new IDQueryCommand(activeTurtles));
+		registry.register("Turtles", (factory, args, turtles, activeTurtles) -> factory.makeDoubleCommand(turtles.size()));
+		registry.register("Tell", (factory, args, turtles, activeTurtles) -> new TellCommand(args.get(0), activeTurtles, turtles, factory.getVariables()));
+		registry.register("Ask", (factory, args, turtles, activeTurtles) -> new AskCommand(args.get(0), args.get(1), turtles, factory.getVariables(), factory.getUserDefCommands(), factory.getUserProcedures()));
+		registry.register("AskWith", (factory, args, turtles, activeTurtles) -> new AskWithCommand(args.get(0), args.get(1), turtles, factory.getVariables(), factory.getUserDefCommands(), factory.getUserProcedures()));
+	}
+}
@@ -0,0 +1,205 @@
+package interpreter;
+
+import javafx.scene.Group;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+/**
+ * The SingleTurtle for one turtle of a TurtleStore: reads and changes the turtle's state in the store, so
+ * it can be used wherever a SingleTurtle can (e.g. by Ask, or as each turtle of executeSequentially) without
+ * the store keeping a SingleTurtle per turtle. The turtle has no image or pen lines of its own: images are
+ * not kept, and lines are kept by the store.
+ *
+ */
+class StoredTurtle extends SingleTurtle {
+	private TurtleStore myStore;
+	private int myOrdinal;
+
+	protected StoredTurtle(TurtleStore store, int ordinal) {
+		super(store.getID(ordinal), null, null, DEFAULT_PEN_COLORCODE);
+		myStore = store;
+		myOrdinal = ordinal;
+	}
+
+	protected TurtleStore getStore() {
+		return myStore;
+	}
+
+	protected int getOrdinal() {
+		return myOrdinal;
+	}
+
+	/**
+	 * @return SingleTurtle (with an image and pen lines of its own) in the state this turtle is in now
+	 */
+	@Override
+	protected SingleTurtle getCopy() {
+		SingleTurtle turtle = new SingleTurtle(getID(), new ImageView(), new Group(), getPenColor());
+		turtle.hidePen();
+		turtle.setXY(getX(), getY());
+		turtle.setOldXY(getOldX(), getOldY());
+		turtle.setAngle(getAngle());
+		turtle.setShape(null, getImageIdx());
+		if (!getTurtleVisibility()) {
+			turtle.hideTurtle();
+		}
+		turtle.setPenWidth(getPenWidth());
+		if (getPenVisibility()) {
+			turtle.showPen();
+		}
+		return turtle;
+	}
+
+	@Override
+	protected long getVersion() {
+		return myStore.getVersion();
+	}
+
+	// GETTERS
+
+	@Override
+	public double getX() {
+		return myStore.getX(myOrdinal);
+	}
+
+	@Override
+	public double getY() {
+		return myStore.getY(myOrdinal);
+	}
+
+	@Override
+	protected double getOldX() {
+		return myStore.getOldX(myOrdinal);
+	}
+
+	@Override
+	protected double getOldY() {
+		return myStore.getOldY(myOrdinal);
+	}
+
+	@Override
+	public double getAngle() {
+		return myStore.getAngle(myOrdinal);
+	}
+
+	@Override
+	protected double getImageIdx() {
+		return myStore.getImageIdx(myOrdinal);
+	}
+
+	@Override
+	protected boolean getTurtleVisibility() {
+		return myStore.isVisible(myOrdinal);
+	}
+
+	@Override
+	public boolean getPenVisibility() {
+		return myStore.isPenDown(myOrdinal);
+	}
+
+	@Override
+	public double getPenWidth() {
+		return myStore.getPenWidth(myOrdinal);
+	}
+
+	@Override
+	public String getPenColor() {
+		return myStore.getPenColor(myOrdinal);
+	}
+
+	/**
+	 * @return an empty ImageView, since the store keeps no images
+	 */
+	@Override
+	protected ImageView getImageView() {
+		return new ImageView();
+	}
+
+	/**
+	 * @return an empty Group, since the store keeps the lines (see TurtleStore.getLines)
+	 */
+	@Override
+	protected Group getPenLines() {
+		return new Group();
+	}
+
+	// SETTERS
+
+	@Override
+	protected void hideTurtle() {
+		myStore.setVisible(myOrdinal, false);
+	}
+
+	@Override
+	protected void showTurtle() {
+		myStore.setVisible(myOrdinal, true);
+	}
+
+	@Override
+	protected void setX(double x) {
+		setXY(x, getY());
+	}
+
+	@Override
+	protected void setY(double y) {
+		setXY(getX(), y);
+	}
+
+	@Override
+	protected double setXY(double x, double y) {
+		return myStore.setXY(myOrdinal, x, y);
+	}
+
+	@Override
+	protected void tracePath(double[] xs, double[] ys, int numPoints) {
+		myStore.tracePath(myOrdinal, xs, ys, numPoints);
+	}
+
+	@Override
+	protected void setOldXY(double oldX, double oldY) {
+		myStore.setOldXY(myOrdinal, oldX, oldY);
+	}
+
+	@Override
+	public void setShape(Image newImg, double idxKey) {
+		myStore.setImageIdx(myOrdinal, idxKey);
+	}
+
+	@Override
+	public void setImage(Image newImg) {
+	}
+
+	@Override
+	public void setImage(String filepath) {
+	}
+
+	@Override
+	protected void setPenColor(String colorCode) {
+		myStore.setPenColor(myOrdinal, colorCode);
+	}
+
+	@Override
+	protected void setPenWidth(double width) {
+		myStore.setPenWidth(myOrdinal, width);
+	}
+
+	@Override
+	protected void setAngle(double angle) {
+		myStore.setAngle(myOrdinal, angle);
+	}
+
+	@Override
+	protected void showPen() {
+		myStore.setPenDown(myOrdinal, true);
+	}
+
+	@Override
+	protected void hidePen() {
+		myStore.setPenDown(myOrdinal, false);
+	}
+
+	@Override
+	protected void clearPen() {
+		myStore.clearLines(myOrdinal);
+	}
+}
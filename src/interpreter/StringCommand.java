@@ -1,18 +1,22 @@
 package interpreter;
 
+import java.util.Map;
  
  /**
   * Special type of Command that holds a String, rather than a double return value. Used
   * in loops as well as variables to allow the tree to build with string elements and then
   * trust the individual Command classes to parse the unidentified strings as necessary.
+  * As an argument, evaluates to the value of the variable with its name (0 if there is none).
  * @author Sarahbland
  *
  */
-class StringCommand extends Command{
+final class StringCommand extends Command{
 	public static final int DEFAULT_STRING_ID = Integer.MAX_VALUE;
 	private String myString;
-	protected StringCommand(String argument) {
+	private Map<String, Double> myVariables;
+	protected StringCommand(String argument, Map<String, Double> variables) {
 		myString = argument;
+		myVariables = variables;
 	}
 	
 	protected String getString() {
@@ -23,6 +27,21 @@ class StringCommand extends Command{
 	public double execute(){
 		return DEFAULT_STRING_ID;
 	}
+
+	@Override
+	protected double evaluate(Turtle turtle) {
+		return getValueOfVar(myString, myVariables);
+	}
+
+	@Override
+	protected boolean isPure() {
+		return true;
+	}
+
+	@Override
+	protected boolean isTurtleIndependent() {
+		return true;
+	}
 	
 	@Override
 	public String toString() {
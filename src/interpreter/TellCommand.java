@@ -1,6 +1,5 @@
 package interpreter;
 import java.util.ArrayList;
-import java.util.Map;
 
 /**
  * Command class that makes or reactivates specific Turtles. Relies on the TurtleHolders in Turtle
@@ -12,8 +11,9 @@ import java.util.Map;
 class TellCommand extends Command{
 	private Command myIdCommand;
 	private Turtle myAllTurtles;
-	Map<String, Double> myVariables;
-	protected TellCommand(Command turtleId, Turtle activeTurtles, Turtle allTurtles, Map<String, Double> variables) {
+	VariableTable myVariables;
+	TurtleIDList myIDList;
+	protected TellCommand(Command turtleId, Turtle activeTurtles, Turtle allTurtles, VariableTable variables) {
 		myIdCommand = turtleId;
 		setActiveTurtles(activeTurtles);
 		myAllTurtles = allTurtles;
@@ -21,13 +21,12 @@ class TellCommand extends Command{
 	}
 	 @Override
 	    protected double execute() throws UnidentifiedCommandException{
-	    		String myIDString = ((StringCommand) myIdCommand).getString();
-	    		String[] myIDs = myIDString.split(" ");
+	    		if (myIDList == null) {
+	    			myIDList = new TurtleIDList(((StringCommand) myIdCommand).getString(), myVariables);
+	    		}
+	    		String[] myIDs = myIDList.getIDs();
 	    		ArrayList<SingleTurtle> newlyActivated = new ArrayList<>();
 	    		for(int k = 0; k<myIDs.length; k+=1) {
-	    			if(myVariables.containsKey(myIDs[k])){
-	    				myIDs[k] = myVariables.get(myIDs[k]).toString();
-	    			}
 	    			if(!myAllTurtles.containsTurtleWithID(myIDs[k])) {
 	    				try {
 	    				SingleTurtle newTurtle = new SingleTurtle(Double.parseDouble(myIDs[k]));
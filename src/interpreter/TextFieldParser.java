@@ -23,7 +23,6 @@
 //}
 
 package interpreter;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -42,8 +41,8 @@ import javafx.scene.image.ImageView;
 /** 
  * @author Susie Choi
  * First "stage" of the command-parsing process: ensuring valid syntax for all commands, 
- * e.g. no command should have semicolons. Dependency on RegexMatcher and existence of 
- * Syntax file to check user input against valid syntax. parseText is intended to be called (by Controller) 
+ * e.g. no command should have semicolons. Dependency on Lexer, which splits user input into tokens 
+ * according to the syntax described in the Syntax file. parseText is intended to be called (by Controller) 
  * with the user's commands as a string. Dependency on CommandMaker to continue the parsing process. 
  * 
  */
@@ -51,27 +50,25 @@ import javafx.scene.image.ImageView;
 class TextFieldParser {	
 
 	public static final String DEFAULT_FILEPATH = "interpreter/";
-	public static final String DEFAULT_SYNTAX_FILENAME = "Syntax";
 	public static final ResourceBundle DEFAULT_LANGUAGE = ResourceBundle.getBundle("interpreter/English");
 	public static final String DEFAULT_NUM_ARGS_FILE = "NumArgsForCommands";
-	public static final String DEFAULT_COMMENT_SYMBOL = "Comment";
 	
-	private String mySyntaxFileName; 
+	private Lexer myLexer; 
 	private CommandMaker myCommandMaker; 
 	private Queue<Command> myCommandQueue;
 	private IntegerProperty myBackColor;
 	private BooleanProperty myBackColorChangeHeard;
 
 	protected TextFieldParser() {
-		this(DEFAULT_FILEPATH+DEFAULT_SYNTAX_FILENAME, DEFAULT_LANGUAGE, DEFAULT_FILEPATH+DEFAULT_NUM_ARGS_FILE);
+		this(DEFAULT_LANGUAGE, DEFAULT_FILEPATH+DEFAULT_NUM_ARGS_FILE);
 	}
 
 	protected TextFieldParser(ResourceBundle language) {
-		this(DEFAULT_FILEPATH+DEFAULT_SYNTAX_FILENAME, language, DEFAULT_FILEPATH+DEFAULT_NUM_ARGS_FILE);
+		this(language, DEFAULT_FILEPATH+DEFAULT_NUM_ARGS_FILE);
 	}
 
-	protected TextFieldParser(String syntaxFileName, ResourceBundle languageBundle, String numArgsFileName) {
-		mySyntaxFileName = syntaxFileName;
+	protected TextFieldParser(ResourceBundle languageBundle, String numArgsFileName) {
+		myLexer = new Lexer();
 		myCommandMaker = new CommandMaker(languageBundle, numArgsFileName); 
 		myCommandQueue = new LinkedList<Command>(); 
 		myBackColor = new SimpleIntegerProperty(0);
@@ -98,60 +95,51 @@ class TextFieldParser {
 	 * @throws BadFormatException 
 	 */
 	protected double parseText(String userInputString) throws TurtleNotFoundException, BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		String[] userInputByLine = userInputString.split("\\r?\\n");
-		ArrayList<String> userInputList = new ArrayList<String>();
-		for (int i = 0; i < userInputByLine.length; i++) {
-			if (userInputByLine[i] != null && userInputByLine[i].length() > 0) {
-				userInputList.add(userInputByLine[i].trim());
-			}
-		}
-		userInputByLine = userInputList.toArray(new String[userInputList.size()]);
-		String[] userInputTypes = new String[userInputByLine.length];
-
-		RegexMatcher regexMatcher = new RegexMatcher(mySyntaxFileName);
-		for (int idx = 0; idx < userInputByLine.length; idx++) { 
-			userInputTypes[idx] = regexMatcher.findMatchingKey(userInputByLine[idx].substring(0, 1));
+		String source = ProgramCache.normalize(userInputString);
+		CompiledProgram program = myCommandMaker.findCompiledProgram(source);
+		if (program != null) {
+			return myCommandMaker.execute(program);
 		}
-
-		ArrayList<String> nonCommentInputByLine = new ArrayList<String>();
-		for (int idx = 0; idx < userInputTypes.length; idx ++) {
-			if (! userInputTypes[idx].equals(DEFAULT_COMMENT_SYMBOL)) {
-				nonCommentInputByLine.add(userInputByLine[idx]);
+		Token[] tokens = myLexer.tokenize(source);
+		int numTokens = 0;
+		for (Token token : tokens) {
+			if (token.getType() != TokenType.COMMENT) {
+				numTokens++;
 			}
 		}
-
-		ArrayList<String> tokenizedInput = new ArrayList<String>();
-		for (int idx = 0; idx < nonCommentInputByLine.size(); idx ++) {
-			String[] whiteSpaceSplitLine = nonCommentInputByLine.get(idx).split("\\s+");
-			for (String token : whiteSpaceSplitLine) {
-				if (token.length() > 0 && !token.equals("")) {
-					tokenizedInput.add(token);
-				}
+		if (numTokens == 0) {
+			return 0;
+		}
+		Token[] userInput = new Token[numTokens];
+		int idx = 0;
+		for (Token token : tokens) {
+			if (token.getType() != TokenType.COMMENT) {
+				userInput[idx++] = token;
 			}
 		}
-
-		String[] tokenizedInputArray = tokenizedInput.toArray(new String[tokenizedInput.size()]);
-		return parseTextArray(tokenizedInputArray);
+		return myCommandMaker.parseValidTokens(source, userInput); // TODO consider special case in which turtle name is command name; 
 	}
 
-
-
-	private double parseTextArray(String[] userInputArray) throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
-		String[] listOfTypes = new String[userInputArray.length];
-		RegexMatcher regexMatcher = new RegexMatcher(mySyntaxFileName);
-
-		for (int idx = 0; idx < userInputArray.length; idx++) {
-			listOfTypes[idx] = regexMatcher.findMatchingKey(userInputArray[idx]);
-			//			System.out.println(listOfTypes[idx]+" "+userInputArray[idx]);
-		}
-		//		for (String s : userInputArray) System.out.println(s);
-		double finalReturnVal = myCommandMaker.parseValidTextArray(userInputArray[0], userInputArray, listOfTypes); // TODO consider special case in which turtle name is command name; 
-		
-		return finalReturnVal; 
+	/**
+	 * Chooses how programs are executed (see ExecutionEngine)
+	 */
+	protected void setExecutionEngine(ExecutionEngine engine) {
+		myCommandMaker.setExecutionEngine(engine);
 	}
 
+	/**
+	 * Keeps the turtles in a headless TurtleStore from now on (see CommandMaker.useTurtleStore)
+	 */
+	protected void useTurtleStore() {
+		myCommandMaker.useTurtleStore();
+	}
 
-
+	/**
+	 * Runs Ask on groups of turtles in parallel, on parallelism threads (see CommandMaker.useParallelAsk)
+	 */
+	protected void useParallelAsk(int parallelism) {
+		myCommandMaker.useParallelAsk(parallelism);
+	}
 
 	// GETTERS
 	/**
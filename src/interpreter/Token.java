@@ -0,0 +1,55 @@
+package interpreter;
+
+/**
+ * Immutable token of SLogo source produced by the Lexer: its text, syntactic type, offset in the
+ * source it was read from and, for constants, its already-parsed numeric value.
+ *
+ */
+final class Token {
+	private final String myText;
+	private final TokenType myType;
+	private final int myOffset;
+	private final double myValue;
+
+	protected Token(String text, TokenType type, int offset) {
+		this(text, type, offset, 0);
+	}
+
+	protected Token(String text, TokenType type, int offset, double value) {
+		myText = text;
+		myType = type;
+		myOffset = offset;
+		myValue = value;
+	}
+
+	protected String getText() {
+		return myText;
+	}
+
+	protected TokenType getType() {
+		return myType;
+	}
+
+	/**
+	 * @return index of the token's first character in the source
+	 */
+	protected int getOffset() {
+		return myOffset;
+	}
+
+	/**
+	 * @return numeric value of a constant (0 for other types of tokens)
+	 */
+	protected double getValue() {
+		return myValue;
+	}
+
+	protected boolean isConstant() {
+		return myType == TokenType.CONSTANT;
+	}
+
+	@Override
+	public String toString() {
+		return myText;
+	}
+}
@@ -0,0 +1,29 @@
+package interpreter;
+
+/**
+ * Syntactic types of the tokens produced by the Lexer. Each type corresponds to a key of Syntax.properties.
+ *
+ */
+enum TokenType {
+	COMMENT("Comment"),
+	CONSTANT("Constant"),
+	COMMAND("Command"),
+	VARIABLE("Variable"),
+	BRACKET_START("BracketStart"),
+	BRACKET_END("BracketEnd"),
+	PAREN_START("ParenStart"),
+	PAREN_END("ParenEnd");
+
+	private final String mySyntaxName;
+
+	private TokenType(String syntaxName) {
+		mySyntaxName = syntaxName;
+	}
+
+	/**
+	 * @return key of Syntax.properties for this type, e.g. "Constant"
+	 */
+	protected String getSyntaxName() {
+		return mySyntaxName;
+	}
+}
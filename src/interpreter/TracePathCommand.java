@@ -0,0 +1,144 @@
+package interpreter;
+
+import java.util.List;
+
+/**
+ * Runs a Repeat, DoTimes or For whose body only moves and turns the turtles (see TreeOptimizer) in passes over
+ * primitive arrays rather than command by command: the arguments of the body are computed for a chunk of
+ * iterations, then each active turtle walks the whole chunk at once and draws it as a single polyline. The turtles
+ * end up where step-by-step execution would leave them (the same arithmetic is done in the same order), and the
+ * loop variable and return value are the same as DoTimesCommand's and ForCommand's.
+ *
+ */
+class TracePathCommand extends Command {
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	private boolean isFor;
+	private Variable myLoopVariable;
+	private Command[] myRangeCommands;
+	private int[] myOpcodes;
+	private Command[] myArgCommands;
+
+	/**
+	 * @param args is the name of the loop, its variable, its range expressions (one for Repeat and DoTimes, three
+	 * for For), then the name and argument of each command of its body
+	 */
+	protected TracePathCommand(List<Command> args, Turtle activeTurtles) {
+		isFor = ((StringCommand) args.get(0)).getString().equals(CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER);
+		myLoopVariable = ((VariableCommand) args.get(1)).getVariable();
+		myRangeCommands = args.subList(2, isFor ? 5 : 3).toArray(new Command[0]);
+		int bodyStart = 2 + myRangeCommands.length;
+		int numCommands = (args.size() - bodyStart)/2;
+		myOpcodes = new int[numCommands];
+		myArgCommands = new Command[numCommands];
+		for (int k = 0; k < numCommands; k++) {
+			myOpcodes[k] = getOpcode(((StringCommand) args.get(bodyStart + 2*k)).getString());
+			myArgCommands[k] = args.get(bodyStart + 2*k + 1);
+		}
+		setActiveTurtles(activeTurtles);
+	}
+
+	/**
+	 * @param commandName is language-independent name of a command of the body, e.g. "Forward"
+	 * @return its instruction in BytecodeProgram
+	 */
+	private int getOpcode(String commandName) {
+		switch (commandName) {
+		case "Forward":
+			return BytecodeProgram.FORWARD;
+		case "Backward":
+			return BytecodeProgram.BACKWARD;
+		case "Left":
+			return BytecodeProgram.LEFT;
+		case "Right":
+			return BytecodeProgram.RIGHT;
+		default:
+			throw new IllegalArgumentException(commandName + " cannot be traced");
+		}
+	}
+
+	/**
+	 * @return return value of the last command of the body in the last iteration (-1 for Repeat and DoTimes,
+	 * 0 for For, if there are none)
+	 * @see interpreter.Command#execute()
+	 */
+	@Override
+	protected double execute() throws UnidentifiedCommandException {
+		double start = isFor ? myRangeCommands[0].execute() : 1.0;
+		double ending = myRangeCommands[isFor ? 1 : 0].execute();
+		double increment = isFor ? myRangeCommands[2].execute() : 1.0;
+		double returnVal = isFor ? 0.0 : -1.0;
+		boolean outerIsSet = myLoopVariable.isSet();
+		double outerValue = myLoopVariable.get();
+		// the arguments are math on constants and variables, so the turtle they are evaluated for does not matter
+		Turtle argTurtle = getActiveTurtles().toSingleTurtle();
+		for (Command argCommand : myArgCommands) {
+			argCommand.setActiveTurtles(argTurtle);
+		}
+		double[][] argValues = new double[myArgCommands.length][DEFAULT_CHUNK_SIZE];
+		try {
+			double k = start;
+			while (k <= ending) {
+				int numIterations = 0;
+				for (; numIterations < DEFAULT_CHUNK_SIZE && k <= ending; numIterations++, k += increment) {
+					myLoopVariable.set(k);
+					for (int c = 0; c < myArgCommands.length; c++) {
+						argValues[c][numIterations] = myArgCommands[c].execute();
+					}
+				}
+				int chunkSize = numIterations;
+				getActiveTurtles().executeSequentially(turtle -> trace(turtle.toSingleTurtle(), argValues, chunkSize));
+				returnVal = argValues[myArgCommands.length - 1][numIterations - 1];
+			}
+		}
+		finally {
+			BytecodeInterpreter.restoreVariable(myLoopVariable, outerIsSet, outerValue);
+		}
+		return returnVal;
+	}
+
+	/**
+	 * Moves and turns turtle as the body would in each of numIterations iterations, as MoveTurtleForwardCommand,
+	 * MoveTurtleBackwardCommand, RotateTurtleCounterclockwiseCommand and RotateTurtleClockwiseCommand do
+	 * @param argValues is, for each command of the body, its argument in each iteration
+	 */
+	private void trace(SingleTurtle turtle, double[][] argValues, int numIterations) {
+		double x = turtle.getX();
+		double y = turtle.getY();
+		double angle = turtle.getAngle();
+		double[] xs = new double[numIterations * myOpcodes.length];
+		double[] ys = new double[xs.length];
+		int numPoints = 0;
+		for (int iteration = 0; iteration < numIterations; iteration++) {
+			for (int c = 0; c < myOpcodes.length; c++) {
+				double value = argValues[c][iteration];
+				switch (myOpcodes[c]) {
+				case BytecodeProgram.FORWARD: {
+					double radians = Math.toRadians(angle);
+					x = x - value*Math.sin(-radians);
+					y = y - value*Math.cos(-radians);
+					xs[numPoints] = x;
+					ys[numPoints++] = y;
+					break;
+				}
+				case BytecodeProgram.BACKWARD: {
+					double radians = Math.toRadians(angle);
+					x = x + value*Math.sin(-radians);
+					y = y + value*Math.cos(-radians);
+					xs[numPoints] = x;
+					ys[numPoints++] = y;
+					break;
+				}
+				case BytecodeProgram.LEFT:
+					angle = angle - value;
+					break;
+				default:
+					angle = angle + value;
+					break;
+				}
+			}
+		}
+		turtle.tracePath(xs, ys, numPoints);
+		turtle.setAngle(angle);
+	}
+}
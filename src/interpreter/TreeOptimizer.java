@@ -0,0 +1,278 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites the trees built by CommandTreeBuilder before they are executed:
+ * - math and logic on constants is folded into a constant, e.g. "fd sum 10 product 2 pi" into "fd 16.28...";
+ * - an If or IfElse whose condition is a constant keeps only the branch it takes;
+ * - math on variables that a Repeat, DoTimes or For does not change is computed once, just before the loop,
+ *   into a temporary (see VariableTable.getTemporary) that the body reads instead;
+ * - a loop whose body only moves and turns the turtles by math on constants and variables (e.g. the polygon
+ *   "repeat 5 [ fd 50 rt 144 ]" or the spiral "dotimes [ :i 100 ] [ fd :i rt 30 ]") becomes a TracePath,
+ *   which computes the whole path at once (see TracePathCommand).
+ * Only math and logic (see BytecodeCompiler.getExpressionOpcode) are folded or hoisted: Random and the turtle
+ * queries can give a different value each time and for each turtle, so they stay where they are. Loops that can
+ * run other code (user-defined commands, If, Ask) are not hoisted from, since that code could change any
+ * variable. Commands that are missing arguments are left alone, so that they are reported as before.
+ *
+ */
+class TreeOptimizer {
+	public static final String DEFAULT_TRACE_PATH_IDENTIFIER = "TracePath";
+	public static final int DEFAULT_MAKE_VARIABLE_NUM_ARGS = 2;
+	private static final Set<String> LOOP_IDENTIFIERS = new HashSet<String>(Arrays.asList(CommandTreeBuilder.DEFAULT_REPEAT_IDENTIFIER,
+			CommandTreeBuilder.DEFAULT_DOTIMES_IDENTIFIER, CommandTreeBuilder.DEFAULT_FOR_IDENTIFIER));
+	private static final Set<String> RUNS_OTHER_CODE = new HashSet<String>(Arrays.asList(CommandTreeBuilder.DEFAULT_USERCOMMAND_NAME,
+			CommandTreeBuilder.DEFAULT_USERCOMMAND_IDENTIFIER, CommandTreeBuilder.DEFAULT_IF_IDENTIFIER, CommandTreeBuilder.DEFAULT_IFELSE_IDENTIFIER,
+			CommandTreeBuilder.DEFAULT_ASK_IDENTIFIER, CommandTreeBuilder.DEFAULT_ASK_WITH_IDENTIFIER));
+	private static final Set<String> MOVES = new HashSet<String>(Arrays.asList("Forward", "Backward"));
+	private static final Set<String> TURNS = new HashSet<String>(Arrays.asList("Left", "Right"));
+
+	private VariableTable myVariables;
+	private int myNumTemporaries;
+
+	protected TreeOptimizer(VariableTable variables) {
+		myVariables = variables;
+	}
+
+	/**
+	 * @param commandTrees is trees of the commands of an input (or of the body of a user-defined command), in order
+	 * @return trees that do the same when executed in order (those of loops may be preceded by MakeVariables of temporaries)
+	 */
+	protected List<CommandNode> optimize(List<CommandNode> commandTrees) {
+		myNumTemporaries = 0;
+		List<CommandNode> optimized = new ArrayList<CommandNode>();
+		for (CommandNode commandTree : commandTrees) {
+			if (isComplete(commandTree)) {
+				addStatement(optimizeNode(commandTree), optimized);
+			}
+			else {
+				optimized.add(commandTree);
+			}
+		}
+		return optimized;
+	}
+
+	/**
+	 * Adds a command that is executed on its own (rather than as an argument) to statements, preceded by the
+	 * temporaries hoisted out of it if it is a loop
+	 */
+	private void addStatement(CommandNode statement, List<CommandNode> statements) {
+		if (LOOP_IDENTIFIERS.contains(statement.getInfo()) && !statement.getIsString()) {
+			statement = hoistInvariants(statement, statements);
+			if (isPath(statement)) {
+				statement = toTracePath(statement);
+			}
+		}
+		statements.add(statement);
+	}
+
+	/**
+	 * @return true if the body of loopNode is commands that move or turn the turtles (at least one of which
+	 * moves them) by math on constants and variables
+	 */
+	private boolean isPath(CommandNode loopNode) {
+		List<CommandNode> children = loopNode.getChildren();
+		CommandNode body = children.get(children.size() - 1);
+		if (!isVariableName(children.get(0)) || !body.getInfo().equals(CommandTreeBuilder.DEFAULT_BLOCK_IDENTIFIER)) {
+			return false;
+		}
+		boolean moves = false;
+		for (CommandNode command : body.getChildren()) {
+			if (command.getIsString() || !(MOVES.contains(command.getInfo()) || TURNS.contains(command.getInfo()))
+					|| !isInvariant(command.getChildren().get(0), new HashSet<String>())) {
+				return false;
+			}
+			moves |= MOVES.contains(command.getInfo());
+		}
+		return moves;
+	}
+
+	/**
+	 * @return TracePath whose arguments are the name of the loop, its variable and range, then the name and
+	 * argument of each command of its body
+	 */
+	private CommandNode toTracePath(CommandNode loopNode) {
+		List<CommandNode> children = loopNode.getChildren();
+		List<CommandNode> pathChildren = new ArrayList<CommandNode>();
+		pathChildren.add(new CommandNode(loopNode.getInfo(), loopNode.getTurtles(), loopNode.getActiveTurtles()));
+		pathChildren.addAll(children.subList(0, children.size() - 1));
+		for (CommandNode command : children.get(children.size() - 1).getChildren()) {
+			pathChildren.add(new CommandNode(command.getInfo(), command.getTurtles(), command.getActiveTurtles()));
+			pathChildren.add(command.getChildren().get(0));
+		}
+		return new CommandNode(DEFAULT_TRACE_PATH_IDENTIFIER, pathChildren.size(), pathChildren, loopNode.getTurtles(), loopNode.getActiveTurtles(), false);
+	}
+
+	private CommandNode optimizeNode(CommandNode node) {
+		if (node.getIsDouble() || node.getIsString() || node.getVariable() != null) {
+			return node;
+		}
+		List<CommandNode> children = new ArrayList<CommandNode>();
+		if (node.getInfo().equals(CommandTreeBuilder.DEFAULT_BLOCK_IDENTIFIER)) {
+			for (CommandNode child : node.getChildren()) {
+				addStatement(optimizeNode(child), children);
+			}
+			return new CommandNode(node.getInfo(), children.size(), children, node.getTurtles(), node.getActiveTurtles(), false);
+		}
+		for (CommandNode child : node.getChildren()) {
+			children.add(optimizeNode(child));
+		}
+		int opcode = BytecodeCompiler.getExpressionOpcode(node.getInfo());
+		if (opcode != BytecodeCompiler.NOT_AN_EXPRESSION && allConstant(children)) {
+			double left = children.isEmpty() ? 0 : children.get(0).getValue();
+			double right = (children.size() < 2) ? 0 : children.get(1).getValue();
+			return new CommandNode(BytecodeInterpreter.applyOperator(opcode, left, right), node.getTurtles(), node.getActiveTurtles());
+		}
+		if (isConditional(node) && children.get(children.size() - 1).getIsDouble()) {
+			return dropUntakenBranch(node, children);
+		}
+		return new CommandNode(node.getInfo(), node.getNumArgs(), children, node.getTurtles(), node.getActiveTurtles(), false);
+	}
+
+	private boolean isConditional(CommandNode node) {
+		return node.getInfo().equals(CommandTreeBuilder.DEFAULT_IF_IDENTIFIER) || node.getInfo().equals(CommandTreeBuilder.DEFAULT_IFELSE_IDENTIFIER);
+	}
+
+	/**
+	 * @param children is the optimized children of an If or IfElse, whose condition (the last) is a constant
+	 * @return node that does what the If or IfElse would
+	 */
+	private CommandNode dropUntakenBranch(CommandNode node, List<CommandNode> children) {
+		boolean isTaken = children.get(children.size() - 1).getValue() > 0;
+		if (node.getInfo().equals(CommandTreeBuilder.DEFAULT_IF_IDENTIFIER)) {
+			// IfCommand returns 0 without building its body if the condition is not positive
+			return isTaken ? new CommandNode(node.getInfo(), node.getNumArgs(), children, node.getTurtles(), node.getActiveTurtles(), false)
+					: new CommandNode(0, node.getTurtles(), node.getActiveTurtles());
+		}
+		else {
+			CommandNode branch = children.get(isTaken ? 0 : 1);
+			List<CommandNode> ifChildren = Arrays.asList(branch, new CommandNode(1, node.getTurtles(), node.getActiveTurtles()));
+			return new CommandNode(CommandTreeBuilder.DEFAULT_IF_IDENTIFIER, ifChildren.size(), ifChildren, node.getTurtles(), node.getActiveTurtles(), false);
+		}
+	}
+
+	/**
+	 * Moves math that does not change while loopNode runs out of its body, adding a MakeVariable of a
+	 * temporary for each such expression to statements
+	 * @return loop whose body reads the temporaries instead
+	 */
+	private CommandNode hoistInvariants(CommandNode loopNode, List<CommandNode> statements) {
+		if (runsOtherCode(loopNode)) {
+			return loopNode;
+		}
+		Set<String> changedNames = new HashSet<String>();
+		findChangedVariables(loopNode, changedNames);
+		List<CommandNode> children = new ArrayList<CommandNode>(loopNode.getChildren());
+		children.set(children.size() - 1, hoist(children.get(children.size() - 1), changedNames, statements));
+		return new CommandNode(loopNode.getInfo(), loopNode.getNumArgs(), children, loopNode.getTurtles(), loopNode.getActiveTurtles(), false);
+	}
+
+	/**
+	 * @return node with each largest subtree of math that reads variables none of which are in changedNames
+	 * replaced by a temporary that statements is given a MakeVariable for
+	 */
+	private CommandNode hoist(CommandNode node, Set<String> changedNames, List<CommandNode> statements) {
+		if (node.getIsDouble() || node.getIsString() || node.getVariable() != null) {
+			return node;
+		}
+		if (isInvariant(node, changedNames)) {
+			Variable temporary = myVariables.getTemporary(++myNumTemporaries);
+			List<CommandNode> makeChildren = Arrays.asList(new CommandNode(temporary, true, node.getTurtles(), node.getActiveTurtles()), node);
+			statements.add(new CommandNode(CommandTreeBuilder.DEFAULT_MAKE_VARIABLE_IDENTIFIER, DEFAULT_MAKE_VARIABLE_NUM_ARGS, makeChildren,
+					node.getTurtles(), node.getActiveTurtles(), false));
+			return new CommandNode(temporary, false, node.getTurtles(), node.getActiveTurtles());
+		}
+		List<CommandNode> children = new ArrayList<CommandNode>();
+		for (CommandNode child : node.getChildren()) {
+			children.add(hoist(child, changedNames, statements));
+		}
+		return new CommandNode(node.getInfo(), node.getNumArgs(), children, node.getTurtles(), node.getActiveTurtles(), false);
+	}
+
+	/**
+	 * @return true if node is math and logic on constants and variables that are not in changedNames
+	 */
+	private boolean isInvariant(CommandNode node, Set<String> changedNames) {
+		if (node.getIsDouble()) {
+			return true;
+		}
+		if (node.getIsString()) {
+			return false;
+		}
+		if (node.getVariable() != null) {
+			return !changedNames.contains(node.getVariable().getName());
+		}
+		if (BytecodeCompiler.getExpressionOpcode(node.getInfo()) == BytecodeCompiler.NOT_AN_EXPRESSION) {
+			return false;
+		}
+		for (CommandNode child : node.getChildren()) {
+			if (!isInvariant(child, changedNames)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the names of the variables that MakeVariables and loops in node set to changedNames
+	 */
+	private void findChangedVariables(CommandNode node, Set<String> changedNames) {
+		for (CommandNode child : node.getChildren()) {
+			if (isVariableName(child)) {
+				changedNames.add(child.getVariable().getName());
+			}
+			findChangedVariables(child, changedNames);
+		}
+	}
+
+	/**
+	 * @return true if node names the variable set by a MakeVariable or a loop
+	 */
+	private boolean isVariableName(CommandNode node) {
+		return node.getVariable() != null && node.getIsString();
+	}
+
+	private boolean runsOtherCode(CommandNode node) {
+		if (node.getIsString() || node.getIsDouble()) {
+			return false;
+		}
+		if (RUNS_OTHER_CODE.contains(node.getInfo())) {
+			return true;
+		}
+		for (CommandNode child : node.getChildren()) {
+			if (runsOtherCode(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean allConstant(List<CommandNode> nodes) {
+		for (CommandNode node : nodes) {
+			if (!node.getIsDouble()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Same check as CommandTreeReader makes before executing a tree: every command has all of its arguments
+	 */
+	private boolean isComplete(CommandNode node) {
+		if (node.getIsDouble() || node.getIsString()) {
+			return true;
+		}
+		for (CommandNode child : node.getChildren()) {
+			if (!isComplete(child)) {
+				return false;
+			}
+		}
+		return node.getNumChildren() == node.getNumArgs();
+	}
+}
@@ -170,6 +170,36 @@ public abstract class Turtle {
 	 * @param action is lambda of action to be done on each turtle
 	 */
 	protected abstract void executeSequentially(Consumer<Turtle> action);
+	/**
+	 * Moves each turtle along its own heading, drawing a line if its pen is down, as MoveTurtleForwardCommand
+	 * does. By default one turtle at a time; TurtleArray moves them all in one loop over the store.
+	 * @param distance is distance to move forward (negative to move backward)
+	 */
+	protected void forward(double distance) {
+		executeSequentially(turtle -> {
+			double angle = Math.toRadians(turtle.getAngle());
+			turtle.setXY(turtle.getX()-distance*Math.sin(-angle), turtle.getY()-distance*Math.cos(-angle));
+		});
+	}
+	/**
+	 * Moves each turtle forward, then turns it, before doing the same to the next turtle
+	 * @param distance is distance to move forward (negative to move backward)
+	 * @param degrees is degrees to turn clockwise (negative to turn counterclockwise)
+	 */
+	protected void forwardAndTurn(double distance, double degrees) {
+		executeSequentially(turtle -> {
+			double angle = Math.toRadians(turtle.getAngle());
+			turtle.setXY(turtle.getX()-distance*Math.sin(-angle), turtle.getY()-distance*Math.cos(-angle));
+			turtle.setAngle(turtle.getAngle()+degrees);
+		});
+	}
+	/**
+	 * Turns each turtle from its own heading, as RotateTurtleClockwiseCommand does
+	 * @param degrees is degrees to turn clockwise (negative to turn counterclockwise)
+	 */
+	protected void turn(double degrees) {
+		executeSequentially(turtle -> turtle.setAngle(turtle.getAngle()+degrees));
+	}
 	/**
 	 * Calculates distance between two points
 	 * @param oldX is first x coord
@@ -182,9 +212,9 @@ public abstract class Turtle {
 	/**
 	 * Adds a turtle to the given Turtle
 	 * @param turtle is SingleTurtle to be added
-	 * @return MultipleTurtles containing updated list of turtles
+	 * @return MultipleTurtles (or TurtleArray) containing updated list of turtles
 	 */
-	protected abstract MultipleTurtles addTurtle(SingleTurtle turtle);
+	protected abstract Turtle addTurtle(SingleTurtle turtle);
 	/**
 	 * Returns actual (mutable) turtle with the given id
 	 * @param id
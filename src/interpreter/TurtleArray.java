@@ -0,0 +1,350 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javafx.scene.image.Image;
+
+/**
+ * Turtle made of turtles of a TurtleStore, chosen by their ordinals: the headless counterpart of
+ * MultipleTurtles. Getters read the last turtle and setters change every turtle, as with MultipleTurtles,
+ * but straight in the store's arrays. Each turtle is handed out as a StoredTurtle, and copies of the turtles
+ * (toSingleTurtle, getAllImmutableTurtles) are only made when asked for.
+ *
+ */
+class TurtleArray extends Turtle {
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private TurtleStore myStore;
+	private int[] myOrdinals;
+	private int mySize;
+	private int[] myIndexes;
+	private SingleTurtle myLastCopy;
+	private long myLastCopyVersion;
+	private long myStoreVersion;
+
+	/**
+	 * @param store is store that turtles added to this TurtleArray are kept in
+	 */
+	protected TurtleArray(TurtleStore store) {
+		myStore = store;
+		myOrdinals = new int[DEFAULT_CAPACITY];
+		myIndexes = new int[DEFAULT_CAPACITY];
+	}
+
+	protected TurtleStore getStore() {
+		return myStore;
+	}
+
+	// GETTERS
+
+	/**
+	 * @return double ID of the last turtle
+	 */
+	@Override
+	protected double getID() {
+		return myStore.getID(getLastOrdinal());
+	}
+
+	@Override
+	protected double getX() {
+		return myStore.getX(getLastOrdinal());
+	}
+
+	@Override
+	protected double getY() {
+		return myStore.getY(getLastOrdinal());
+	}
+
+	@Override
+	protected double getOldX() {
+		return myStore.getOldX(getLastOrdinal());
+	}
+
+	@Override
+	protected double getOldY() {
+		return myStore.getOldY(getLastOrdinal());
+	}
+
+	@Override
+	protected double getAngle() {
+		return myStore.getAngle(getLastOrdinal());
+	}
+
+	@Override
+	protected boolean getTurtleVisibility() {
+		return myStore.isVisible(getLastOrdinal());
+	}
+
+	@Override
+	protected boolean getPenVisibility() {
+		return myStore.isPenDown(getLastOrdinal());
+	}
+
+	@Override
+	protected String getPenColor() {
+		return myStore.getPenColor(getLastOrdinal());
+	}
+
+	@Override
+	protected double getImageIdx() {
+		return myStore.getImageIdx(getLastOrdinal());
+	}
+
+	@Override
+	protected int size() {
+		return mySize;
+	}
+
+	@Override
+	protected double calcDistance(double oldX, double oldY, double x, double y) {
+		double xSquared = Math.pow((oldX-x), 2);
+		double ySquared = Math.pow((oldY-y), 2);
+		return Math.sqrt(xSquared+ySquared);
+	}
+
+	@Override
+	protected boolean containsTurtleWithID(String ID) {
+		try {
+			return indexOf(Double.parseDouble(ID)) >= 0;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the turtle with the given ID, or (as MultipleTurtles does) a copy of the first turtle if there
+	 * is none
+	 */
+	@Override
+	protected SingleTurtle getTurtleWithID(String ID) throws UnidentifiedCommandException {
+		int index;
+		try {
+			index = indexOf(Double.parseDouble(ID));
+		}
+		catch (NumberFormatException e) {
+			throw new UnidentifiedCommandException("You entered any invalid ID");
+		}
+		if (index < 0) {
+			if (mySize == 0) {
+				throw new UnidentifiedCommandException("Invalid ID");
+			}
+			return new StoredTurtle(myStore, myOrdinals[0]).getCopy();
+		}
+		return new StoredTurtle(myStore, myOrdinals[index]);
+	}
+
+	/**
+	 * @return copy of the last turtle, made again only if a turtle or the last copy changed
+	 */
+	@Override
+	protected SingleTurtle toSingleTurtle() {
+		if (myLastCopy == null || myLastCopy.getID() != getID() || myStoreVersion != myStore.getVersion()
+				|| myLastCopy.getVersion() != myLastCopyVersion) {
+			myLastCopy = new StoredTurtle(myStore, getLastOrdinal()).getCopy();
+			myLastCopyVersion = myLastCopy.getVersion();
+			myStoreVersion = myStore.getVersion();
+		}
+		return myLastCopy;
+	}
+
+	@Override
+	protected List<SingleTurtle> getAllImmutableTurtles() {
+		List<SingleTurtle> copies = new ArrayList<>();
+		for (int k = 0; k < mySize; k++) {
+			copies.add(new StoredTurtle(myStore, myOrdinals[k]).getCopy());
+		}
+		return copies;
+	}
+
+	// SETTERS
+
+	@Override
+	protected void executeSequentially(Consumer<Turtle> action) {
+		myStore.beginStep();
+		for (int k = 0; k < mySize; k++) {
+			action.accept(new StoredTurtle(myStore, myOrdinals[k]));
+		}
+	}
+
+	@Override
+	protected void forward(double distance) {
+		myStore.beginStep();
+		myStore.forward(myOrdinals, mySize, distance);
+	}
+
+	@Override
+	protected void forwardAndTurn(double distance, double degrees) {
+		myStore.beginStep();
+		myStore.forwardAndTurn(myOrdinals, mySize, distance, degrees);
+	}
+
+	@Override
+	protected void turn(double degrees) {
+		myStore.turn(myOrdinals, mySize, degrees);
+	}
+
+	@Override
+	protected void hideTurtle() {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setVisible(myOrdinals[k], false);
+		}
+	}
+
+	@Override
+	protected void showTurtle() {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setVisible(myOrdinals[k], true);
+		}
+	}
+
+	@Override
+	protected void setX(double x) {
+		myStore.beginStep();
+		for (int k = 0; k < mySize; k++) {
+			myStore.setXY(myOrdinals[k], x, myStore.getY(myOrdinals[k]));
+		}
+	}
+
+	@Override
+	protected void setY(double y) {
+		myStore.beginStep();
+		for (int k = 0; k < mySize; k++) {
+			myStore.setXY(myOrdinals[k], myStore.getX(myOrdinals[k]), y);
+		}
+	}
+
+	/**
+	 * @return distance the last turtle moved
+	 */
+	@Override
+	protected double setXY(double x, double y) {
+		myStore.beginStep();
+		double distance = 0;
+		for (int k = 0; k < mySize; k++) {
+			distance = myStore.setXY(myOrdinals[k], x, y);
+		}
+		return distance;
+	}
+
+	@Override
+	protected void setShape(Image img, double idxKey) {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setImageIdx(myOrdinals[k], idxKey);
+		}
+	}
+
+	/**
+	 * Does nothing, since the store keeps no images
+	 */
+	@Override
+	protected void setImage(Image newImg) {
+	}
+
+	@Override
+	protected void setPenColor(String colorCode) {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setPenColor(myOrdinals[k], colorCode);
+		}
+	}
+
+	@Override
+	protected void setPenWidth(double width) {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setPenWidth(myOrdinals[k], width);
+		}
+	}
+
+	@Override
+	protected void setAngle(double angle) {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setAngle(myOrdinals[k], angle);
+		}
+	}
+
+	@Override
+	protected void showPen() {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setPenDown(myOrdinals[k], true);
+		}
+	}
+
+	@Override
+	protected void hidePen() {
+		for (int k = 0; k < mySize; k++) {
+			myStore.setPenDown(myOrdinals[k], false);
+		}
+	}
+
+	@Override
+	protected void clearPen() {
+		for (int k = 0; k < mySize; k++) {
+			myStore.clearLines(myOrdinals[k]);
+		}
+	}
+
+	/**
+	 * Adds turtle, keeping it in the store if the store has no turtle with its ID yet
+	 * @return this TurtleArray
+	 */
+	@Override
+	protected TurtleArray addTurtle(SingleTurtle turtle) {
+		int ordinal = myStore.getOrdinal(turtle.getID());
+		if (ordinal < 0) {
+			ordinal = myStore.add(turtle);
+		}
+		return addOrdinal(ordinal);
+	}
+
+	/**
+	 * Adds the turtle of the store with the given ordinal
+	 * @return this TurtleArray
+	 */
+	protected TurtleArray addOrdinal(int ordinal) {
+		if (mySize == myOrdinals.length) {
+			myOrdinals = Arrays.copyOf(myOrdinals, mySize * 2);
+		}
+		if (ordinal >= myIndexes.length) {
+			myIndexes = Arrays.copyOf(myIndexes, Math.max(ordinal + 1, myIndexes.length * 2));
+		}
+		if (myIndexes[ordinal] == 0) {
+			myIndexes[ordinal] = mySize + 1;
+		}
+		myOrdinals[mySize++] = ordinal;
+		return this;
+	}
+
+	/**
+	 * Makes this TurtleArray the given turtles (by ID), keeping any the store has no turtle with that ID for yet
+	 * @return this TurtleArray
+	 */
+	@Override
+	protected Turtle replaceTurtles(List<SingleTurtle> newTurtles) {
+		for (int k = 0; k < mySize; k++) {
+			myIndexes[myOrdinals[k]] = 0;
+		}
+		mySize = 0;
+		for (SingleTurtle turtle : newTurtles) {
+			addTurtle(turtle);
+		}
+		return this;
+	}
+
+	private int getLastOrdinal() {
+		return myOrdinals[mySize-1];
+	}
+
+	/**
+	 * @return index in myOrdinals of the (first) turtle with the given ID, or -1 if it is not one of these turtles
+	 */
+	private int indexOf(double id) {
+		int ordinal = myStore.getOrdinal(id);
+		if (ordinal < 0 || ordinal >= myIndexes.length) {
+			return -1;
+		}
+		return myIndexes[ordinal] - 1;
+	}
+}
@@ -1,7 +1,9 @@
 package interpreter;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Consumer;
 
 import javafx.scene.Group;
@@ -14,6 +16,12 @@ import javafx.scene.image.ImageView;
  * turtles is to: ask for a single turtle with a given ID, add a Turtle to the list, or replace
  * the entire list with a new list of turtles. This was designed to protect the Turtles
  * to the greatest degree possible.
+ * 
+ * Readers get copies of the turtles (snapshots) rather than the turtles themselves. A snapshot is only
+ * made when a reader asks for it, and is given out again until the turtle or the snapshot itself changes
+ * (see SingleTurtle.getVersion), so changing turtles copies nothing and reading them copies only the
+ * turtles that changed since they were last read. A TurtleIndex, kept up to date as turtles are added, finds
+ * the turtle with a given ID.
  * @author Sarahbland
  * Note: based on CollectionHolder by Robert C. Duvall
  *
@@ -24,54 +32,64 @@ import javafx.scene.image.ImageView;
  */
 public class TurtleHolder {
 	private List<SingleTurtle> myCurrentTurtles;
-	private List<SingleTurtle> mySharedTurtles;
+	private Map<SingleTurtle, Snapshot> mySnapshots;
+	private TurtleIndex myIndex;
 	/**
 	 * @param turtles is List of SingleTurtles this TurtleHolder holds and protects
 	 */
 	public TurtleHolder(List<SingleTurtle> turtles) {
-		myCurrentTurtles = turtles;
-		mySharedTurtles = deepCopy(myCurrentTurtles);
+		mySnapshots = new IdentityHashMap<>();
+		myIndex = new TurtleIndex();
+		replaceTurtleList(turtles);
 	}
 	/**
 	 * @param action is lambda that each turtle should do
 	 */
 	protected void applyToAllTurtles (Consumer<Turtle> action) {
 		myCurrentTurtles.forEach(action);
-		resetTemporaryTurtles();
 	}
 	/**
 	 * @param action is lambda that each turtle should complete but should not
 	 * affect actual turtles' properties
 	 */
 	protected void applyTemporarily(Consumer<Turtle> action) {
-		mySharedTurtles.forEach(action);
-	}
-	/**
-	 * resets the list of shared/temporary turtles after a change made to permanent turtles
-	 */
-	protected void resetTemporaryTurtles() {
-		mySharedTurtles = deepCopy(myCurrentTurtles);
+		getCopyTurtleList().forEach(action);
 	}
 	/**
 	 * @param turtle is new turtle to be added
 	 */
 	protected void addTurtle(SingleTurtle turtle) {
+		myIndex.put(turtle.getID(), myCurrentTurtles.size());
 		myCurrentTurtles.add(turtle);
-		resetTemporaryTurtles();
 	} 
 	/**
 	 * @return list of immutable turtles
 	 */
 	public List<SingleTurtle> getCopyTurtleList(){
-		resetTemporaryTurtles();
-		return mySharedTurtles;
+		List<SingleTurtle> copies = new ArrayList<>();
+		for (SingleTurtle turtle : myCurrentTurtles) {
+			copies.add(getSnapshot(turtle));
+		}
+		return copies;
+	}
+	/**
+	 * @return immutable copy of the last turtle
+	 */
+	protected SingleTurtle getLastCopy() {
+		return getSnapshot(myCurrentTurtles.get(myCurrentTurtles.size()-1));
+	}
+	protected int size() {
+		return myCurrentTurtles.size();
 	}
 	/**
 	 * @param turtles is list of turtles this holder should now hold
 	 */
 	protected void replaceTurtleList(List<SingleTurtle> turtles) {
 		myCurrentTurtles = turtles;
-		resetTemporaryTurtles();
+		myIndex.clear();
+		for (int k = 0; k < turtles.size(); k++) {
+			myIndex.put(turtles.get(k).getID(), k);
+		}
 	}
 	/**
 	 * Checks if collection contains a turtle with a given id
@@ -79,22 +97,18 @@ public class TurtleHolder {
 	 * @return true if collection contains it, false if not
 	 */
 	public boolean hasTurtleWithID(double ID) {
-		long countLong = mySharedTurtles.stream().filter(turtle -> turtle.getID()==ID).count();
-		int count = Math.toIntExact(countLong);
-		resetTemporaryTurtles();
-		return count>0;	
+		return myIndex.get(ID) >= 0;
 	}
 	/**
 	 * @param ID is id of turtle desired
 	 * @return mutable turtle with this ID
 	 */
 	protected SingleTurtle getTurtleWithID(double ID) {
-		for(SingleTurtle turtle : myCurrentTurtles) {
-			if(turtle.getID()==ID) {
-				return turtle;
-			}
+		int position = myIndex.get(ID);
+		if(position >= 0) {
+			return myCurrentTurtles.get(position);
 		}
-		return mySharedTurtles.get(0); //returns a "fake" turtle that changing will not do anything to
+		return getSnapshot(myCurrentTurtles.get(0)); //returns a "fake" turtle that changing will not do anything to
 	}
 	/**
 	 * Returns the ImageView held by the turtle with the given ID so it can be attached to scene
@@ -113,21 +127,38 @@ public class TurtleHolder {
 	protected Group getTurtleWithIDPenLines(double ID) {
 		return getTurtleWithID(ID).getPenLines();
 	}
-	
-    /**
-     * Based on Robert Duvall's method
-     * @param original is original list
-     * @return deep copy of that list
-     */
-    private List<SingleTurtle> deepCopy (List<SingleTurtle> original) {
-        List<SingleTurtle> result = new ArrayList<>();
-        for (SingleTurtle c : original) {
-            result.add(c.getCopy());
-        }
-        return result;
-    }
 
-}
+	/**
+	 * @return copy of turtle as it is now, made again only if turtle or the last copy changed
+	 */
+	private SingleTurtle getSnapshot(SingleTurtle turtle) {
+		Snapshot snapshot = mySnapshots.get(turtle);
+		if (snapshot == null || !snapshot.isCurrent()) {
+			snapshot = new Snapshot(turtle);
+			mySnapshots.put(turtle, snapshot);
+		}
+		return snapshot.myCopy;
+	}
 
+	/**
+	 * Copy of a turtle, with the versions of the turtle and of the copy when it was made
+	 */
+	private static final class Snapshot {
+		private final SingleTurtle myTurtle;
+		private final long myTurtleVersion;
+		private final SingleTurtle myCopy;
+		private final long myCopyVersion;
 
+		private Snapshot(SingleTurtle turtle) {
+			myTurtle = turtle;
+			myTurtleVersion = turtle.getVersion();
+			myCopy = turtle.getCopy();
+			myCopyVersion = myCopy.getVersion();
+		}
 
+		private boolean isCurrent() {
+			return myTurtle.getVersion() == myTurtleVersion && myCopy.getVersion() == myCopyVersion;
+		}
+	}
+
+}
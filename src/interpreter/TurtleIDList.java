@@ -0,0 +1,60 @@
+package interpreter;
+
+/**
+ * The IDs that Tell or Ask is given as text (e.g. "1 :other 3"), where each word is a number or a variable
+ * whose value is the ID. The text is split once, and each variable resolved to its slot the first time the IDs
+ * are read, so reading them again (e.g. in a loop) looks nothing up by name. Variables are resolved as the
+ * CommandTreeBuilder resolves them, against the parameters of the user-defined command running when the IDs
+ * are read (see CommandList), and again if they are read with different parameters in scope.
+ *
+ */
+class TurtleIDList {
+	private String[] myWords;
+	private VariableTable myTable;
+	private Variable[] myVariables;
+	private String[] myLocalNames;
+
+	protected TurtleIDList(String text, VariableTable variables) {
+		myWords = text.split(" ");
+		myTable = variables;
+	}
+
+	/**
+	 * @return the IDs, as text: the value of each variable that is set, and each other word as it is
+	 */
+	protected String[] getIDs() {
+		String[] localNames = myTable.getLocalNames();
+		if (myVariables == null || localNames != myLocalNames) {
+			resolve(localNames);
+		}
+		String[] ids = new String[myWords.length];
+		for (int k = 0; k < ids.length; k++) {
+			Variable variable = myVariables[k];
+			ids[k] = (variable != null && variable.isSet()) ? Double.toString(variable.get()) : myWords[k];
+		}
+		return ids;
+	}
+
+	/**
+	 * @param localNames is names of the parameters in scope (null if none)
+	 */
+	private void resolve(String[] localNames) {
+		myVariables = new Variable[myWords.length];
+		for (int k = 0; k < myWords.length; k++) {
+			if (!isNumber(myWords[k])) {
+				myVariables[k] = myTable.resolve(myWords[k], localNames);
+			}
+		}
+		myLocalNames = localNames;
+	}
+
+	private boolean isNumber(String word) {
+		try {
+			Double.parseDouble(word);
+			return true;
+		}
+		catch (NumberFormatException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Hash index from turtle ID to the position of the turtle (in a TurtleHolder's list, or a TurtleStore), so a
+ * turtle is found by its ID without looking through every turtle, and without boxing the ID or making text of
+ * it. IDs are compared as == compares doubles: 0.0 and -0.0 are the same ID, and NaN is never found. Only the
+ * first position put for an ID is kept, as looking through the turtles in order finds the first turtle.
+ *
+ */
+class TurtleIndex {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private double[] myIDs;
+	private int[] myPositions;
+	private int mySize;
+	private int myShift;
+
+	protected TurtleIndex() {
+		myIDs = new double[DEFAULT_CAPACITY];
+		myPositions = new int[DEFAULT_CAPACITY];
+		myShift = Long.numberOfLeadingZeros(DEFAULT_CAPACITY) + 1;
+	}
+
+	/**
+	 * Records that the turtle with the given ID is at position, unless a turtle with that ID already is
+	 */
+	protected void put(double id, int position) {
+		if (id != id) {
+			return;
+		}
+		if (2*(mySize + 1) > myIDs.length) {
+			resize(2*myIDs.length);
+		}
+		int slot = findSlot(id);
+		if (myPositions[slot] == 0) {
+			myIDs[slot] = id;
+			// positions are kept plus one, so that 0 marks an empty slot
+			myPositions[slot] = position + 1;
+			mySize++;
+		}
+	}
+
+	/**
+	 * @return position of the turtle with the given ID, or -1 if there is none
+	 */
+	protected int get(double id) {
+		if (id != id) {
+			return -1;
+		}
+		return myPositions[findSlot(id)] - 1;
+	}
+
+	protected void clear() {
+		Arrays.fill(myPositions, 0);
+		mySize = 0;
+	}
+
+	/**
+	 * @return slot that holds id, or the empty slot it would go in
+	 */
+	private int findSlot(double id) {
+		int mask = myIDs.length - 1;
+		int slot = hash(id);
+		while (myPositions[slot] != 0 && myIDs[slot] != id) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * @return slot to look for id from: the top bits of its bits times HASH_MULTIPLIER, which depend on all of
+	 * its bits (the low bits of an ID that is a whole number are all 0)
+	 */
+	private int hash(double id) {
+		// adding 0.0 makes -0.0 into 0.0, so both hash the same
+		return (int) ((Double.doubleToLongBits(id + 0.0) * HASH_MULTIPLIER) >>> myShift);
+	}
+
+	private void resize(int capacity) {
+		double[] ids = myIDs;
+		int[] positions = myPositions;
+		myIDs = new double[capacity];
+		myPositions = new int[capacity];
+		myShift = Long.numberOfLeadingZeros(capacity) + 1;
+		for (int k = 0; k < ids.length; k++) {
+			if (positions[k] != 0) {
+				int slot = findSlot(ids[k]);
+				myIDs[slot] = ids[k];
+				myPositions[slot] = positions[k];
+			}
+		}
+	}
+}
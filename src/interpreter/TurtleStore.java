@@ -0,0 +1,510 @@
+package interpreter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Headless storage for very many turtles: rather than a SingleTurtle, with its own ImageView, Pen and Group,
+ * for each turtle, the state of every turtle is kept in parallel primitive arrays indexed by the turtle's
+ * ordinal (0 for the first turtle added, 1 for the next, and so on), and the lines their pens draw in one
+ * more array. A turtle costs about a hundred bytes, so a million fit in a few hundred MB. TurtleArray is the
+ * Turtle that commands act on, and StoredTurtle the SingleTurtle for one stored turtle.
+ *
+ * Each line is also stamped with the step it was drawn in (see beginStep), so that groups of turtles can run
+ * the same commands in parallel, each drawing into a buffer of its own (see getBuffer and ParallelAsk), and
+ * their lines still end up in the order running the commands on all the turtles at once would draw them.
+ *
+ */
+class TurtleStore {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int DEFAULT_IMAGE_IDX = 1;
+
+	private int myNumTurtles;
+	private double[] myIDs;
+	private double[] myXs;
+	private double[] myYs;
+	private double[] myOldXs;
+	private double[] myOldYs;
+	private double[] myAngles;
+	private double[] myImageIdxs;
+	private double[] myPenWidths;
+	private int[] myPenColors;
+	private boolean[] isVisible;
+	private boolean[] isPenDown;
+	private TurtleIndex myOrdinals;
+	private List<String> myColorCodes;
+	private Map<String, Integer> myColorIndexes;
+	private int myNumLines;
+	private double[] myLines;
+	private int[] myLineTurtles;
+	private int[] myLineColors;
+	private double[] myLineWidths;
+	private int[] myLineSteps;
+	private int myStep;
+	private long myVersion;
+	private ForkJoinPool myPool;
+
+	protected TurtleStore() {
+		myIDs = new double[DEFAULT_CAPACITY];
+		myXs = new double[DEFAULT_CAPACITY];
+		myYs = new double[DEFAULT_CAPACITY];
+		myOldXs = new double[DEFAULT_CAPACITY];
+		myOldYs = new double[DEFAULT_CAPACITY];
+		myAngles = new double[DEFAULT_CAPACITY];
+		myImageIdxs = new double[DEFAULT_CAPACITY];
+		myPenWidths = new double[DEFAULT_CAPACITY];
+		myPenColors = new int[DEFAULT_CAPACITY];
+		isVisible = new boolean[DEFAULT_CAPACITY];
+		isPenDown = new boolean[DEFAULT_CAPACITY];
+		myOrdinals = new TurtleIndex();
+		myColorCodes = new ArrayList<String>();
+		myColorIndexes = new HashMap<String, Integer>();
+		myLines = new double[4*DEFAULT_CAPACITY];
+		myLineTurtles = new int[DEFAULT_CAPACITY];
+		myLineColors = new int[DEFAULT_CAPACITY];
+		myLineWidths = new double[DEFAULT_CAPACITY];
+		myLineSteps = new int[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Makes a buffer for store (see getBuffer)
+	 */
+	private TurtleStore(TurtleStore store) {
+		myNumTurtles = store.myNumTurtles;
+		myIDs = store.myIDs;
+		myXs = store.myXs;
+		myYs = store.myYs;
+		myOldXs = store.myOldXs;
+		myOldYs = store.myOldYs;
+		myAngles = store.myAngles;
+		myImageIdxs = store.myImageIdxs;
+		myPenWidths = store.myPenWidths;
+		myPenColors = store.myPenColors;
+		isVisible = store.isVisible;
+		isPenDown = store.isPenDown;
+		myOrdinals = store.myOrdinals;
+		myColorCodes = store.myColorCodes;
+		myColorIndexes = store.myColorIndexes;
+		myLines = new double[4*DEFAULT_CAPACITY];
+		myLineTurtles = new int[DEFAULT_CAPACITY];
+		myLineColors = new int[DEFAULT_CAPACITY];
+		myLineWidths = new double[DEFAULT_CAPACITY];
+		myLineSteps = new int[DEFAULT_CAPACITY];
+		myVersion = store.myVersion;
+	}
+
+	/**
+	 * Adds a turtle in the state a new SingleTurtle starts in
+	 * @return ordinal of the new turtle
+	 */
+	protected int add(double id) {
+		if (myNumTurtles == myIDs.length) {
+			grow(myNumTurtles * 2);
+		}
+		int ordinal = myNumTurtles++;
+		myIDs[ordinal] = id;
+		myXs[ordinal] = SingleTurtle.DEFAULT_X_POS;
+		myYs[ordinal] = SingleTurtle.DEFAULT_Y_POS;
+		myOldXs[ordinal] = SingleTurtle.DEFAULT_X_POS;
+		myOldYs[ordinal] = SingleTurtle.DEFAULT_Y_POS;
+		myAngles[ordinal] = SingleTurtle.DEFAULT_ANGLE;
+		myImageIdxs[ordinal] = DEFAULT_IMAGE_IDX;
+		myPenWidths[ordinal] = SingleTurtle.DEFAULT_PEN_WIDTH;
+		myPenColors[ordinal] = getColorIndex(SingleTurtle.DEFAULT_PEN_COLORCODE);
+		isVisible[ordinal] = true;
+		isPenDown[ordinal] = true;
+		myOrdinals.put(id, ordinal);
+		myVersion++;
+		return ordinal;
+	}
+
+	/**
+	 * Adds a turtle in the state turtle is in (the lines it drew stay with it)
+	 * @return ordinal of the new turtle
+	 */
+	protected int add(SingleTurtle turtle) {
+		int ordinal = add(turtle.getID());
+		myXs[ordinal] = turtle.getX();
+		myYs[ordinal] = turtle.getY();
+		myOldXs[ordinal] = turtle.getOldX();
+		myOldYs[ordinal] = turtle.getOldY();
+		myAngles[ordinal] = turtle.getAngle();
+		myImageIdxs[ordinal] = turtle.getImageIdx();
+		myPenWidths[ordinal] = turtle.getPenWidth();
+		myPenColors[ordinal] = getColorIndex(turtle.getPenColor());
+		isVisible[ordinal] = turtle.getTurtleVisibility();
+		isPenDown[ordinal] = turtle.getPenVisibility();
+		return ordinal;
+	}
+
+	/**
+	 * @return ordinal of the turtle with the given ID, or -1 if there is none
+	 */
+	protected int getOrdinal(double id) {
+		return myOrdinals.get(id);
+	}
+
+	protected int size() {
+		return myNumTurtles;
+	}
+
+	/**
+	 * @return a store that shares the turtles of this one but keeps the lines they draw to itself until they
+	 * are merged back (see mergeLines). While buffers are in use, turtles must not be added to this store, and
+	 * pen colors must not be changed, since the colors are shared too; different buffers may be used by
+	 * different threads as long as they change different turtles.
+	 */
+	protected TurtleStore getBuffer() {
+		return new TurtleStore(this);
+	}
+
+	/**
+	 * Adds the lines drawn into buffers of this store to its own lines, step by step: for each step, the lines
+	 * each buffer drew in that step, in the order of buffers. Buffers that ran the same commands on groups of
+	 * turtles, in the order of the groups, so end up with the lines in the order running the commands on all
+	 * the turtles at once would have drawn them.
+	 */
+	protected void mergeLines(List<TurtleStore> buffers) {
+		int[] next = new int[buffers.size()];
+		int numLines = myNumLines;
+		for (TurtleStore buffer : buffers) {
+			numLines += buffer.myNumLines;
+		}
+		ensureLineCapacity(numLines);
+		while (myNumLines < numLines) {
+			int step = Integer.MAX_VALUE;
+			for (int k = 0; k < next.length; k++) {
+				TurtleStore buffer = buffers.get(k);
+				if (next[k] < buffer.myNumLines) {
+					step = Math.min(step, buffer.myLineSteps[next[k]]);
+				}
+			}
+			for (int k = 0; k < next.length; k++) {
+				TurtleStore buffer = buffers.get(k);
+				while (next[k] < buffer.myNumLines && buffer.myLineSteps[next[k]] == step) {
+					int line = next[k]++;
+					System.arraycopy(buffer.myLines, 4*line, myLines, 4*myNumLines, 4);
+					myLineTurtles[myNumLines] = buffer.myLineTurtles[line];
+					myLineColors[myNumLines] = buffer.myLineColors[line];
+					myLineWidths[myNumLines] = buffer.myLineWidths[line];
+					myLineSteps[myNumLines] = myStep;
+					myNumLines++;
+				}
+			}
+		}
+		myVersion++;
+	}
+
+	/**
+	 * Starts a new step: the lines drawn from now on (until the next step) are stamped with it. TurtleArray
+	 * starts one each time it changes its turtles.
+	 */
+	protected void beginStep() {
+		myStep++;
+	}
+
+	/**
+	 * @param pool is the pool Ask runs groups of the turtles on at once (see ParallelAsk), or null (the
+	 * default) to run them one after another
+	 */
+	protected void setPool(ForkJoinPool pool) {
+		myPool = pool;
+	}
+
+	protected ForkJoinPool getPool() {
+		return myPool;
+	}
+
+	/**
+	 * @return number that changes each time the state of any turtle changes
+	 */
+	protected long getVersion() {
+		return myVersion;
+	}
+
+	// GETTERS
+
+	protected double getID(int ordinal) {
+		return myIDs[ordinal];
+	}
+
+	protected double getX(int ordinal) {
+		return myXs[ordinal];
+	}
+
+	protected double getY(int ordinal) {
+		return myYs[ordinal];
+	}
+
+	protected double getOldX(int ordinal) {
+		return myOldXs[ordinal];
+	}
+
+	protected double getOldY(int ordinal) {
+		return myOldYs[ordinal];
+	}
+
+	protected double getAngle(int ordinal) {
+		return myAngles[ordinal];
+	}
+
+	protected double getImageIdx(int ordinal) {
+		return myImageIdxs[ordinal];
+	}
+
+	protected double getPenWidth(int ordinal) {
+		return myPenWidths[ordinal];
+	}
+
+	protected String getPenColor(int ordinal) {
+		return myColorCodes.get(myPenColors[ordinal]);
+	}
+
+	protected boolean isVisible(int ordinal) {
+		return isVisible[ordinal];
+	}
+
+	protected boolean isPenDown(int ordinal) {
+		return isPenDown[ordinal];
+	}
+
+	// SETTERS
+
+	/**
+	 * Moves a turtle as SingleTurtle.setXY does, drawing a line if its pen is down
+	 * @return distance the turtle moved
+	 */
+	protected double setXY(int ordinal, double x, double y) {
+		double oldX = myXs[ordinal];
+		double oldY = myYs[ordinal];
+		myOldXs[ordinal] = oldX;
+		myOldYs[ordinal] = oldY;
+		myXs[ordinal] = x;
+		myYs[ordinal] = y;
+		myVersion++;
+		drawLine(ordinal, oldX, oldY, x, y);
+		return Math.sqrt(Math.pow(oldX - x, 2) + Math.pow(oldY - y, 2));
+	}
+
+	/**
+	 * Moves a turtle through each of the given points in turn, as SingleTurtle.tracePath does
+	 */
+	protected void tracePath(int ordinal, double[] xs, double[] ys, int numPoints) {
+		if (numPoints == 0) {
+			return;
+		}
+		double fromX = myXs[ordinal];
+		double fromY = myYs[ordinal];
+		for (int k = 0; k < numPoints; k++) {
+			drawLine(ordinal, fromX, fromY, xs[k], ys[k]);
+			fromX = xs[k];
+			fromY = ys[k];
+		}
+		myOldXs[ordinal] = (numPoints > 1) ? xs[numPoints-2] : myXs[ordinal];
+		myOldYs[ordinal] = (numPoints > 1) ? ys[numPoints-2] : myYs[ordinal];
+		myXs[ordinal] = xs[numPoints-1];
+		myYs[ordinal] = ys[numPoints-1];
+		myVersion++;
+	}
+
+	/**
+	 * Moves each of the given turtles along its heading, as SingleTurtle.setXY would, in one loop that makes
+	 * room for all the lines first
+	 * @param ordinals is ordinals of the turtles (a turtle given twice moves twice)
+	 * @param distance is distance to move forward (negative to move backward)
+	 */
+	protected void forward(int[] ordinals, int numTurtles, double distance) {
+		ensureLineCapacity(myNumLines + numTurtles);
+		for (int k = 0; k < numTurtles; k++) {
+			moveForward(ordinals[k], distance);
+		}
+		myVersion++;
+	}
+
+	/**
+	 * Moves each of the given turtles along its heading and then turns it, one turtle after another
+	 * @param degrees is degrees to turn clockwise (negative to turn counterclockwise)
+	 */
+	protected void forwardAndTurn(int[] ordinals, int numTurtles, double distance, double degrees) {
+		ensureLineCapacity(myNumLines + numTurtles);
+		for (int k = 0; k < numTurtles; k++) {
+			moveForward(ordinals[k], distance);
+			myAngles[ordinals[k]] += degrees;
+		}
+		myVersion++;
+	}
+
+	/**
+	 * Turns each of the given turtles from its own heading
+	 * @param degrees is degrees to turn clockwise (negative to turn counterclockwise)
+	 */
+	protected void turn(int[] ordinals, int numTurtles, double degrees) {
+		for (int k = 0; k < numTurtles; k++) {
+			myAngles[ordinals[k]] += degrees;
+		}
+		myVersion++;
+	}
+
+	protected void setOldXY(int ordinal, double oldX, double oldY) {
+		myOldXs[ordinal] = oldX;
+		myOldYs[ordinal] = oldY;
+		myVersion++;
+	}
+
+	protected void setAngle(int ordinal, double angle) {
+		myAngles[ordinal] = angle;
+		myVersion++;
+	}
+
+	protected void setImageIdx(int ordinal, double imageIdx) {
+		myImageIdxs[ordinal] = imageIdx;
+		myVersion++;
+	}
+
+	protected void setPenWidth(int ordinal, double width) {
+		myPenWidths[ordinal] = width;
+		myVersion++;
+	}
+
+	protected void setPenColor(int ordinal, String colorCode) {
+		myPenColors[ordinal] = getColorIndex(colorCode);
+		myVersion++;
+	}
+
+	protected void setVisible(int ordinal, boolean visible) {
+		isVisible[ordinal] = visible;
+		myVersion++;
+	}
+
+	protected void setPenDown(int ordinal, boolean down) {
+		isPenDown[ordinal] = down;
+		myVersion++;
+	}
+
+	// LINES
+
+	/**
+	 * @return number of lines drawn by all the turtles (and not cleared)
+	 */
+	protected int getNumLines() {
+		return myNumLines;
+	}
+
+	/**
+	 * @return the lines, 4 numbers each: x and y where the turtle started, then x and y where it stopped
+	 */
+	protected double[] getLines() {
+		return Arrays.copyOf(myLines, 4*myNumLines);
+	}
+
+	protected double getLineWidth(int line) {
+		return myLineWidths[line];
+	}
+
+	protected String getLineColor(int line) {
+		return myColorCodes.get(myLineColors[line]);
+	}
+
+	/**
+	 * @return ordinal of the turtle that drew the line
+	 */
+	protected int getLineTurtle(int line) {
+		return myLineTurtles[line];
+	}
+
+	/**
+	 * Removes the lines a turtle drew, as SingleTurtle.clearPen does
+	 */
+	protected void clearLines(int ordinal) {
+		int numKept = 0;
+		for (int line = 0; line < myNumLines; line++) {
+			if (myLineTurtles[line] != ordinal) {
+				System.arraycopy(myLines, 4*line, myLines, 4*numKept, 4);
+				myLineTurtles[numKept] = myLineTurtles[line];
+				myLineColors[numKept] = myLineColors[line];
+				myLineWidths[numKept] = myLineWidths[line];
+				myLineSteps[numKept] = myLineSteps[line];
+				numKept++;
+			}
+		}
+		myNumLines = numKept;
+		myVersion++;
+	}
+
+	/**
+	 * Moves a turtle as forward does, without counting a change; there must be room for a line
+	 */
+	private void moveForward(int ordinal, double distance) {
+		double x = myXs[ordinal];
+		double y = myYs[ordinal];
+		double angle = Math.toRadians(myAngles[ordinal]);
+		double newX = x - distance*Math.sin(-angle);
+		double newY = y - distance*Math.cos(-angle);
+		myOldXs[ordinal] = x;
+		myOldYs[ordinal] = y;
+		myXs[ordinal] = newX;
+		myYs[ordinal] = newY;
+		if (isPenDown[ordinal]) {
+			addLine(ordinal, x, y, newX, newY);
+		}
+	}
+
+	private void drawLine(int ordinal, double fromX, double fromY, double toX, double toY) {
+		if (!isPenDown[ordinal]) {
+			return;
+		}
+		ensureLineCapacity(myNumLines + 1);
+		addLine(ordinal, fromX, fromY, toX, toY);
+	}
+
+	private void addLine(int ordinal, double fromX, double fromY, double toX, double toY) {
+		myLines[4*myNumLines] = fromX;
+		myLines[4*myNumLines + 1] = fromY;
+		myLines[4*myNumLines + 2] = toX;
+		myLines[4*myNumLines + 3] = toY;
+		myLineTurtles[myNumLines] = ordinal;
+		myLineColors[myNumLines] = myPenColors[ordinal];
+		myLineWidths[myNumLines] = myPenWidths[ordinal];
+		myLineSteps[myNumLines] = myStep;
+		myNumLines++;
+	}
+
+	private void ensureLineCapacity(int numLines) {
+		if (numLines > myLineTurtles.length) {
+			int capacity = Math.max(numLines, 2*myLineTurtles.length);
+			myLines = Arrays.copyOf(myLines, 4*capacity);
+			myLineTurtles = Arrays.copyOf(myLineTurtles, capacity);
+			myLineColors = Arrays.copyOf(myLineColors, capacity);
+			myLineWidths = Arrays.copyOf(myLineWidths, capacity);
+			myLineSteps = Arrays.copyOf(myLineSteps, capacity);
+		}
+	}
+
+	private int getColorIndex(String colorCode) {
+		Integer index = myColorIndexes.get(colorCode);
+		if (index == null) {
+			index = myColorCodes.size();
+			myColorCodes.add(colorCode);
+			myColorIndexes.put(colorCode, index);
+		}
+		return index;
+	}
+
+	private void grow(int capacity) {
+		myIDs = Arrays.copyOf(myIDs, capacity);
+		myXs = Arrays.copyOf(myXs, capacity);
+		myYs = Arrays.copyOf(myYs, capacity);
+		myOldXs = Arrays.copyOf(myOldXs, capacity);
+		myOldYs = Arrays.copyOf(myOldYs, capacity);
+		myAngles = Arrays.copyOf(myAngles, capacity);
+		myImageIdxs = Arrays.copyOf(myImageIdxs, capacity);
+		myPenWidths = Arrays.copyOf(myPenWidths, capacity);
+		myPenColors = Arrays.copyOf(myPenColors, capacity);
+		isVisible = Arrays.copyOf(isVisible, capacity);
+		isPenDown = Arrays.copyOf(isPenDown, capacity);
+	}
+}
@@ -0,0 +1,342 @@
+package interpreter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A user-defined command (made with "to"), parsed once into its parameter names and body. The body is built
+ * into CommandNode trees when the command is defined (or, if it uses commands that are not defined yet, the
+ * first time it is called) and compiled for the BytecodeInterpreter, so each call only puts its arguments in a
+ * VariableFrame and runs the program. The BytecodeInterpreter runs calls made by the program on a stack of its
+ * own rather than the Java stack, so that deeply recursive commands do not overflow the Java stack (this includes
+ * calls in the arguments of math and turtle commands, e.g. "sum 1 size :n", if the commands called are pure).
+ * Once the command has been called DEFAULT_TIER_UP_THRESHOLD times (or the value of the system property
+ * "slogo.tierUpThreshold"; 0 turns this off), its body is translated into a JVM class (see ProcedureCompiler),
+ * which runs every later call made while fewer than DEFAULT_MAX_COMPILED_CALL_DEPTH calls are running.
+ * If the PurityAnalyzer finds the command pure, the return values of its calls are kept in a MemoTable of
+ * DEFAULT_MEMO_TABLE_SIZE values (or the value of the system property "slogo.memoTableSize"; 0 turns this off),
+ * so that a call with the same arguments as a recent one returns at once. Whether a command is pure is decided
+ * even if that is off, for the checks BytecodeCompiler.compileCallExpression compiles.
+ * Calls made by the tree-walker (see UserInstructionCommand) execute the trees of the body instead, as long as
+ * fewer than DEFAULT_MAX_COMPILED_CALL_DEPTH calls are running (see callTrees).
+ *
+ */
+class UserProcedure {
+	public static final String DEFAULT_TIER_UP_PROPERTY = "slogo.tierUpThreshold";
+	public static final int DEFAULT_TIER_UP_THRESHOLD = 50;
+	public static final int DEFAULT_MAX_COMPILED_CALL_DEPTH = 64;
+	public static final String DEFAULT_MEMO_TABLE_PROPERTY = "slogo.memoTableSize";
+	public static final int DEFAULT_MEMO_TABLE_SIZE = 1024;
+	private static final int TIER_UP_THRESHOLD = Integer.getInteger(DEFAULT_TIER_UP_PROPERTY, DEFAULT_TIER_UP_THRESHOLD);
+	private static final int MEMO_TABLE_SIZE = Integer.getInteger(DEFAULT_MEMO_TABLE_PROPERTY, DEFAULT_MEMO_TABLE_SIZE);
+
+	private String myName;
+	private String[] myParamNames;
+	private String[] myBody;
+	private List<CommandNode> myBodyTrees;
+	private BytecodeProgram myBodyBytecode;
+	private CompiledProcedure myCompiledBody;
+	private int myNumCalls;
+	private boolean isAnalyzed;
+	private boolean isPure;
+	private MemoTable myMemoTable;
+	private UserProcedure myRedefinition;
+	private CommandTreeBuilder myBuilder;
+	private VariableTable myVariables;
+	private Map<String, UserProcedure> myUserProcedures;
+
+	/**
+	 * @param name is name of the command
+	 * @param content is the command's parameters and body, e.g. "[ :length :width ] [ fd :length rt 90 fd :width ]"
+	 */
+	protected UserProcedure(String name, String content, VariableTable variables, Map<String, String> userDefCommands, Map<String, UserProcedure> userProcedures) {
+		myName = name;
+		myBuilder = new CommandTreeBuilder(variables, userDefCommands, userProcedures);
+		myVariables = variables;
+		myUserProcedures = userProcedures;
+		String[] tokens = content.trim().split("\\s+");
+		if (tokens.length == 0 || !tokens[0].equals(CommandTreeBuilder.DEFAULT_BRACKET_START_IDENTIFIER)) {
+			myParamNames = new String[0];
+			myBody = tokens;
+			return;
+		}
+		int varsEnd = findMatchingBracket(tokens, 0);
+		int bodyEnd = findMatchingBracket(tokens, varsEnd+1);
+		int bodyStart = Math.min(varsEnd+2, tokens.length);
+		myParamNames = Arrays.copyOfRange(tokens, 1, varsEnd);
+		myBody = Arrays.copyOfRange(tokens, bodyStart, Math.max(bodyStart, bodyEnd));
+	}
+
+	/**
+	 * @param tokens is content of a user-defined command, split on whitespace
+	 * @param openIdx is index of a "["
+	 * @return index of the "]" that closes it
+	 */
+	private int findMatchingBracket(String[] tokens, int openIdx) {
+		int depth = 0;
+		for (int idx = openIdx; idx < tokens.length; idx++) {
+			if (tokens[idx].equals(CommandTreeBuilder.DEFAULT_BRACKET_START_IDENTIFIER)) {
+				depth++;
+			}
+			else if (tokens[idx].equals(CommandTreeBuilder.DEFAULT_BRACKET_END_IDENTIFIER)) {
+				depth--;
+				if (depth == 0) {
+					return idx;
+				}
+			}
+		}
+		return tokens.length;
+	}
+
+	/**
+	 * Builds the body into trees, unless that has already been done
+	 */
+	protected void compile() throws BadFormatException, UnidentifiedCommandException, MissingInformationException {
+		if (myBodyTrees == null) {
+			myBodyTrees = myBuilder.build(null, null, myBody, myParamNames);
+		}
+	}
+
+	/**
+	 * Executes the body with a new VariableFrame holding the values of the parameters
+	 * @param args is values of the arguments, in the order of the parameters
+	 * @return return value of the last command in the body (-1 if the body is empty)
+	 */
+	protected double call(double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return call(args, turtles, activeTurtles, false);
+	}
+
+	/**
+	 * Same as call, but executes the trees of the body with the tree-walker, so that the ExecutionEngine chosen
+	 * runs the bodies of user-defined commands too, unless the JVM class runs the call or
+	 * DEFAULT_MAX_COMPILED_CALL_DEPTH calls are running (the BytecodeInterpreter then runs it, so that deep
+	 * recursion does not overflow the Java stack)
+	 */
+	protected double callTrees(double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		return call(args, turtles, activeTurtles, true);
+	}
+
+	private double call(double[] args, Turtle turtles, Turtle activeTurtles, boolean runsTrees) throws UnidentifiedCommandException {
+		UserProcedure procedure = prepareCall(args);
+		MemoTable memoTable = procedure.myMemoTable;
+		if (memoTable == null) {
+			return procedure.execute(args, turtles, activeTurtles, runsTrees);
+		}
+		Double memoized = memoTable.get(args);
+		if (memoized != null) {
+			return memoized;
+		}
+		// the body may change the values of its parameters, which are kept in args
+		double[] key = args.clone();
+		double returnVal = procedure.execute(args, turtles, activeTurtles, runsTrees);
+		memoTable.put(key, returnVal);
+		return returnVal;
+	}
+
+	/**
+	 * Runs a call prepared by prepareCall, with the JVM class, the tree-walker (if runsTrees) or the
+	 * BytecodeInterpreter
+	 */
+	private double execute(double[] args, Turtle turtles, Turtle activeTurtles, boolean runsTrees) throws UnidentifiedCommandException {
+		if (runsCompiled()) {
+			return callCompiled(args, turtles, activeTurtles);
+		}
+		if (runsTrees && myVariables.getCallDepth() < DEFAULT_MAX_COMPILED_CALL_DEPTH) {
+			myVariables.pushFrame(makeFrame(args));
+			try {
+				return myBuilder.execute(myBodyTrees, turtles, activeTurtles);
+			}
+			finally {
+				myVariables.popFrame();
+			}
+		}
+		return myBuilder.executeCall(this, args, turtles, activeTurtles);
+	}
+
+	/**
+	 * Builds and compiles the body of the command that a call with args runs (this command, or the one that
+	 * redefined it) and decides whether that command is pure, unless that has already been done, and counts the call
+	 * @return that command
+	 */
+	protected UserProcedure prepareCall(double[] args) throws UnidentifiedCommandException {
+		UserProcedure procedure = this;
+		while (procedure.myRedefinition != null) {
+			procedure = procedure.myRedefinition.checkArgs(args, myName);
+		}
+		procedure.compileForCall();
+		return procedure;
+	}
+
+	/**
+	 * @return the command that calls of this one run (this command, or the last one that redefined it)
+	 */
+	protected UserProcedure getDefinition() {
+		UserProcedure procedure = this;
+		while (procedure.myRedefinition != null) {
+			procedure = procedure.myRedefinition;
+		}
+		return procedure;
+	}
+
+	/**
+	 * @return true if a call prepared by prepareCall should run the JVM class: there is one, and few enough calls
+	 * are running that nesting the Java frames of another is safe
+	 */
+	protected boolean runsCompiled() {
+		return myCompiledBody != null && myVariables.getCallDepth() < DEFAULT_MAX_COMPILED_CALL_DEPTH;
+	}
+
+	/**
+	 * Runs a call prepared by prepareCall with the JVM class
+	 */
+	protected double callCompiled(double[] args, Turtle turtles, Turtle activeTurtles) throws UnidentifiedCommandException {
+		myVariables.pushFrame(makeFrame(args));
+		try {
+			return myCompiledBody.run(turtles, activeTurtles);
+		}
+		finally {
+			myVariables.popFrame();
+		}
+	}
+
+	/**
+	 * @return VariableFrame for a call with args
+	 */
+	protected VariableFrame makeFrame(double[] args) {
+		return new VariableFrame(myParamNames, args);
+	}
+
+	/**
+	 * @return the compiled body (after prepareCall or compileBody)
+	 */
+	protected BytecodeProgram getBodyBytecode() {
+		return myBodyBytecode;
+	}
+
+	/**
+	 * @return table of the return values of recent calls (after prepareCall), or null if they are not kept
+	 */
+	protected MemoTable getMemoTable() {
+		return myMemoTable;
+	}
+
+	/**
+	 * Builds and compiles the body of the command that a call with numArgs arguments runs and decides whether that
+	 * command is pure, unless that has already been done (without counting a call)
+	 * @return true if the call runs a pure command (false if it would throw, e.g. as numArgs is wrong)
+	 */
+	protected boolean isPureCall(int numArgs) {
+		UserProcedure procedure = getDefinition();
+		if (procedure.getNumParams() != numArgs) {
+			return false;
+		}
+		try {
+			procedure.compileBody();
+		}
+		catch (UnidentifiedCommandException e) {
+			return false;
+		}
+		if (!procedure.isAnalyzed) {
+			new PurityAnalyzer(myUserProcedures).analyze(procedure);
+		}
+		return procedure.isPure;
+	}
+
+	/**
+	 * @return true if the PurityAnalyzer has decided whether the command is pure
+	 */
+	protected boolean isAnalyzed() {
+		return isAnalyzed;
+	}
+
+	protected boolean isPure() {
+		return isPure;
+	}
+
+	/**
+	 * Records what the PurityAnalyzer decided, giving a pure command a MemoTable
+	 */
+	protected void setPure(boolean pure) {
+		isAnalyzed = true;
+		isPure = pure;
+		myMemoTable = (pure && MEMO_TABLE_SIZE > 0) ? new MemoTable(MEMO_TABLE_SIZE) : null;
+	}
+
+	/**
+	 * Drops what the PurityAnalyzer decided, and the MemoTable, since a command this one calls may have been
+	 * redefined
+	 */
+	protected void forgetPurity() {
+		isAnalyzed = false;
+		isPure = false;
+		myMemoTable = null;
+	}
+
+	/**
+	 * @return reader with which the body executes the subtrees it leaves to the tree-walker
+	 */
+	protected CommandTreeReader getCommandTreeReader() {
+		return myBuilder.getCommandTreeReader();
+	}
+
+	/**
+	 * Makes calls of this command (from trees and programs compiled while it was defined) call redefinition
+	 * instead, and drops everything compiled from this command's body
+	 */
+	protected void redefine(UserProcedure redefinition) {
+		myRedefinition = redefinition;
+		myBodyTrees = null;
+		myBodyBytecode = null;
+		myCompiledBody = null;
+		forgetPurity();
+	}
+
+	/**
+	 * @param calledName is name the command was called by
+	 * @return this command, if it takes as many arguments as args
+	 */
+	private UserProcedure checkArgs(double[] args, String calledName) throws UnidentifiedCommandException {
+		if (args.length != getNumParams()) {
+			throw new UnidentifiedCommandException("The command: " + calledName + " does not have the proper number of arguments.");
+		}
+		return this;
+	}
+
+	/**
+	 * Builds and compiles the body, unless that has already been done
+	 */
+	protected void compileBody() throws UnidentifiedCommandException {
+		try {
+			compile();
+		}
+		catch (BadFormatException | MissingInformationException e) {
+			throw new UnidentifiedCommandException(e.getMessage());
+		}
+		if (myBodyBytecode == null) {
+			myBodyBytecode = myBuilder.compileBytecode(myBodyTrees, myParamNames);
+		}
+	}
+
+	/**
+	 * Builds and compiles the body and decides whether the command is pure, unless that has already been done,
+	 * and counts the call
+	 */
+	private void compileForCall() throws UnidentifiedCommandException {
+		compileBody();
+		if (!isAnalyzed && MEMO_TABLE_SIZE > 0) {
+			new PurityAnalyzer(myUserProcedures).analyze(this);
+		}
+		if (++myNumCalls == TIER_UP_THRESHOLD) {
+			myCompiledBody = myBuilder.compileProcedure(myBodyBytecode);
+		}
+	}
+
+	protected String getName() {
+		return myName;
+	}
+
+	protected int getNumParams() {
+		return myParamNames.length;
+	}
+}
@@ -0,0 +1,69 @@
+package interpreter;
+
+/**
+ * A variable resolved once, when the tree using it is built, to a slot of the VariableTable: either a global
+ * slot or a slot in the frame of the user-defined command whose body it appears in. Reading or writing it
+ * costs an array access rather than a lookup by name.
+ *
+ */
+final class Variable {
+	private final VariableTable myTable;
+	private final String myName;
+	private final int mySlot;
+	private final boolean isLocal;
+
+	protected Variable(VariableTable table, String name, int slot, boolean local) {
+		myTable = table;
+		myName = name;
+		mySlot = slot;
+		isLocal = local;
+	}
+
+	/**
+	 * @return value of the variable (0 if it has not been set)
+	 */
+	protected double get() {
+		return isLocal ? myTable.getLocal(mySlot) : myTable.getGlobal(mySlot);
+	}
+
+	protected void set(double value) {
+		if (isLocal) {
+			myTable.setLocal(mySlot, value);
+		}
+		else {
+			myTable.setGlobal(mySlot, value);
+		}
+	}
+
+	/**
+	 * @return true if the variable has a value (parameters always do)
+	 */
+	protected boolean isSet() {
+		return isLocal || myTable.isGlobalSet(mySlot);
+	}
+
+	/**
+	 * Removes the value of a global variable (parameters keep theirs)
+	 */
+	protected void unset() {
+		if (!isLocal) {
+			myTable.unsetGlobal(mySlot);
+		}
+	}
+
+	/**
+	 * @return true if the variable is a parameter of a user-defined command
+	 */
+	protected boolean isLocal() {
+		return isLocal;
+	}
+
+	protected String getName() {
+		return myName;
+	}
+
+	@Override
+	public String toString() {
+		return myName;
+	}
+}
@@ -0,0 +1,48 @@
+package interpreter;
+
+/**
+ * Command that reads the current value of a variable each time it is executed, so that variables used
+ * as arguments (e.g. "fd :distance") see changes made by earlier commands, loops and user-defined commands.
+ * Also names the variable that MakeVariable, DoTimes and For set.
+ *
+ */
+final class VariableCommand extends Command {
+	private Variable myVariable;
+
+	protected VariableCommand(Variable variable) {
+		myVariable = variable;
+	}
+
+	/**
+	 * @return value of the variable (0 if it has not been set)
+	 * @see interpreter.Command#execute()
+	 */
+	@Override
+	protected double execute() {
+		return myVariable.get();
+	}
+
+	@Override
+	protected double evaluate(Turtle turtle) {
+		return myVariable.get();
+	}
+
+	@Override
+	protected boolean isPure() {
+		return true;
+	}
+
+	@Override
+	protected boolean isTurtleIndependent() {
+		return true;
+	}
+
+	protected Variable getVariable() {
+		return myVariable;
+	}
+
+	@Override
+	public String toString() {
+		return myVariable.getName();
+	}
+}
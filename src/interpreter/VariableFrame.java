@@ -0,0 +1,32 @@
+package interpreter;
+
+/**
+ * Local variables of one call of a user-defined command: the values of its parameters, stored in a
+ * primitive array indexed by the slot each parameter was given when the command's body was built.
+ *
+ */
+final class VariableFrame {
+	private final String[] myNames;
+	private final double[] myValues;
+
+	/**
+	 * @param names is names of the parameters, e.g. {":length", ":width"}; the slot of each is its index
+	 * @param values is values of the parameters, in the same order
+	 */
+	protected VariableFrame(String[] names, double[] values) {
+		myNames = names;
+		myValues = values;
+	}
+
+	protected String[] getNames() {
+		return myNames;
+	}
+
+	protected double getValue(int slot) {
+		return myValues[slot];
+	}
+
+	protected void setValue(int slot, double value) {
+		myValues[slot] = value;
+	}
+}
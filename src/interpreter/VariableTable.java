@@ -0,0 +1,191 @@
+package interpreter;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Symbol table and storage for SLogo variables. Each global variable name is given a slot in primitive arrays
+ * the first time a tree using it is built; parameters of user-defined commands live in a VariableFrame pushed
+ * for each call. Trees hold Variables that point straight at their slots, so executing them never hashes a name
+ * or boxes a value.
+ *
+ * Also a view of the global variables as a Map from name (e.g. ":distance") to value, for the variables panel,
+ * saving and loading, and commands that still look variables up by name.
+ *
+ */
+class VariableTable extends AbstractMap<String, Double> {
+
+	public static final String DEFAULT_TEMPORARY_PREFIX = "#";
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private Map<String, Integer> myGlobalSlots;
+	private String[] myGlobalNames;
+	private double[] myGlobalValues;
+	private boolean[] myGlobalIsSet;
+	private int myNumGlobals;
+	private Deque<VariableFrame> myFrames;
+
+	protected VariableTable() {
+		myGlobalSlots = new HashMap<String, Integer>();
+		myGlobalNames = new String[DEFAULT_CAPACITY];
+		myGlobalValues = new double[DEFAULT_CAPACITY];
+		myGlobalIsSet = new boolean[DEFAULT_CAPACITY];
+		myFrames = new ArrayDeque<VariableFrame>();
+	}
+
+	/**
+	 * @param name is name of a variable, e.g. ":distance"
+	 * @param localNames is names of the parameters in scope where the variable is used (null if none)
+	 * @return the parameter with that name if there is one, otherwise the global variable with that name
+	 */
+	protected Variable resolve(String name, String[] localNames) {
+		if (localNames != null) {
+			for (int slot = 0; slot < localNames.length; slot++) {
+				if (localNames[slot].equals(name)) {
+					return new Variable(this, name, slot, true);
+				}
+			}
+		}
+		return new Variable(this, name, getGlobalSlot(name), false);
+	}
+
+	/**
+	 * @param index is number of the temporary, e.g. 1
+	 * @return global variable, left out of the map view, for a value the TreeOptimizer computes ahead of a loop
+	 * (users cannot name it, since variable names start with ":")
+	 */
+	protected Variable getTemporary(int index) {
+		String name = DEFAULT_TEMPORARY_PREFIX + index;
+		return new Variable(this, name, getGlobalSlot(name), false);
+	}
+
+	/**
+	 * @return names of the parameters of the user-defined command currently being executed (null if none is)
+	 */
+	protected String[] getLocalNames() {
+		VariableFrame frame = myFrames.peek();
+		return (frame == null) ? null : frame.getNames();
+	}
+
+	protected void pushFrame(VariableFrame frame) {
+		myFrames.push(frame);
+	}
+
+	protected void popFrame() {
+		myFrames.pop();
+	}
+
+	/**
+	 * @return number of calls of user-defined commands currently being executed
+	 */
+	protected int getCallDepth() {
+		return myFrames.size();
+	}
+
+	/**
+	 * Gives each global variable of table the same value here (or none, if it has none there), e.g. so that a
+	 * copy of the variables can be read and changed by another thread
+	 */
+	protected void copyGlobals(VariableTable table) {
+		for (int k = 0; k < table.myNumGlobals; k++) {
+			int slot = getGlobalSlot(table.myGlobalNames[k]);
+			myGlobalValues[slot] = table.myGlobalValues[k];
+			myGlobalIsSet[slot] = table.myGlobalIsSet[k];
+		}
+	}
+
+	private int getGlobalSlot(String name) {
+		Integer slot = myGlobalSlots.get(name);
+		if (slot != null) {
+			return slot;
+		}
+		if (myNumGlobals == myGlobalNames.length) {
+			myGlobalNames = Arrays.copyOf(myGlobalNames, myNumGlobals * 2);
+			myGlobalValues = Arrays.copyOf(myGlobalValues, myNumGlobals * 2);
+			myGlobalIsSet = Arrays.copyOf(myGlobalIsSet, myNumGlobals * 2);
+		}
+		myGlobalNames[myNumGlobals] = name;
+		myGlobalSlots.put(name, myNumGlobals);
+		return myNumGlobals++;
+	}
+
+	protected double getGlobal(int slot) {
+		return myGlobalValues[slot];
+	}
+
+	protected void setGlobal(int slot, double value) {
+		myGlobalValues[slot] = value;
+		myGlobalIsSet[slot] = true;
+	}
+
+	protected boolean isGlobalSet(int slot) {
+		return myGlobalIsSet[slot];
+	}
+
+	protected void unsetGlobal(int slot) {
+		myGlobalValues[slot] = 0;
+		myGlobalIsSet[slot] = false;
+	}
+
+	protected double getLocal(int slot) {
+		return myFrames.peek().getValue(slot);
+	}
+
+	protected void setLocal(int slot, double value) {
+		myFrames.peek().setValue(slot, value);
+	}
+
+	// MAP VIEW OF THE GLOBAL VARIABLES
+
+	@Override
+	public Double get(Object name) {
+		Integer slot = myGlobalSlots.get(name);
+		if (slot == null || !myGlobalIsSet[slot]) {
+			return null;
+		}
+		return myGlobalValues[slot];
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		Integer slot = myGlobalSlots.get(name);
+		return slot != null && myGlobalIsSet[slot];
+	}
+
+	@Override
+	public Double put(String name, Double value) {
+		int slot = getGlobalSlot(name);
+		Double previous = myGlobalIsSet[slot] ? myGlobalValues[slot] : null;
+		setGlobal(slot, value);
+		return previous;
+	}
+
+	@Override
+	public Double remove(Object name) {
+		Double previous = get(name);
+		if (previous != null) {
+			unsetGlobal(myGlobalSlots.get(name));
+		}
+		return previous;
+	}
+
+	/**
+	 * @return snapshot of the global variables that have values (other than temporaries), in the order they were first used
+	 */
+	@Override
+	public Set<Map.Entry<String, Double>> entrySet() {
+		Set<Map.Entry<String, Double>> entries = new LinkedHashSet<Map.Entry<String, Double>>();
+		for (int slot = 0; slot < myNumGlobals; slot++) {
+			if (myGlobalIsSet[slot] && !myGlobalNames[slot].startsWith(DEFAULT_TEMPORARY_PREFIX)) {
+				entries.add(new AbstractMap.SimpleImmutableEntry<String, Double>(myGlobalNames[slot], myGlobalValues[slot]));
+			}
+		}
+		return entries;
+	}
+}
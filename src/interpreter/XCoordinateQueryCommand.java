@@ -9,7 +9,7 @@ package interpreter;
  * @author Sarahbland
  *
  */
-class XCoordinateQueryCommand extends Command{
+final class XCoordinateQueryCommand extends Command{
 
     /**
      * @param turtle is turtle whose x-coordinate is desired
@@ -23,7 +23,17 @@ class XCoordinateQueryCommand extends Command{
      */
     @Override
     protected double execute() {
-    		double returnVal = getActiveTurtles().getX();
+    		return evaluate(getActiveTurtles());
+    }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+    		double returnVal = turtle.getX();
     		return -returnVal;
     }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
 }
@@ -9,7 +9,7 @@ package interpreter;
  * @author Sarahbland
  *
  */
-class YCoordinateQueryCommand extends Command{
+final class YCoordinateQueryCommand extends Command{
     /**
      * @param turtle is turtle whose x-coordinate is desired
      */
@@ -22,8 +22,17 @@ class YCoordinateQueryCommand extends Command{
      */
     @Override
     protected double execute() {
-    		System.out.println("active turtle size" + getActiveTurtles().size());
-   		double returnVal = getActiveTurtles().getY();
+    		return evaluate(getActiveTurtles());
+    }
+
+    @Override
+    protected double evaluate(Turtle turtle) {
+   		double returnVal = turtle.getY();
    		return -returnVal;
     }
+
+    @Override
+    protected boolean isPure() {
+    	return true;
+    }
 }